@@ -0,0 +1,26 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.concurrent.ConcurrentSkipListMapState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** 50 readers per writer sharing the same map */
+public class ConcurrentSkipListMapBenchmark {
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(50)
+  public void get(ConcurrentSkipListMapState state, Blackhole blackhole) {
+    blackhole.consume(state.getMap().get(state.nextKey()));
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public void put(ConcurrentSkipListMapState state, Blackhole blackhole) {
+    Integer key = state.nextKey();
+    blackhole.consume(state.getMap().put(key, key));
+  }
+}
@@ -0,0 +1,59 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.footprint.FootprintState;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Fills collections with pre-allocated keys, so with {@code -prof gc} the normalized allocation rate divided by the
+ * size is the per-entry cost of a collection
+ */
+public class FootprintBenchmark {
+
+  private static <M extends Map<Integer, Integer>> M fill(M map, Integer[] keys) {
+    for (Integer key : keys) {
+      map.put(key, key);
+    }
+    return map;
+  }
+
+  private static <S extends Set<Integer>> S fill(S set, Integer[] keys) {
+    for (Integer key : keys) {
+      set.add(key);
+    }
+    return set;
+  }
+
+  @Benchmark
+  public TreapMap<Integer, Integer> treapMap(FootprintState state) {
+    return fill(new TreapMap<>(), state.getKeys());
+  }
+
+  @Benchmark
+  public ArrayTreapMap<Integer, Integer> arrayTreapMap(FootprintState state) {
+    return fill(new ArrayTreapMap<>(), state.getKeys());
+  }
+
+  @Benchmark
+  public TreeMap<Integer, Integer> treeMap(FootprintState state) {
+    return fill(new TreeMap<>(), state.getKeys());
+  }
+
+  @Benchmark
+  public TreapSet<Integer> treapSet(FootprintState state) {
+    return fill(new TreapSet<>(), state.getKeys());
+  }
+
+  @Benchmark
+  public ArrayTreapSet<Integer> arrayTreapSet(FootprintState state) {
+    return fill(new ArrayTreapSet<>(), state.getKeys());
+  }
+
+  @Benchmark
+  public TreeSet<Integer> treeSet(FootprintState state) {
+    return fill(new TreeSet<>(), state.getKeys());
+  }
+}
@@ -44,6 +44,38 @@ public class SetToArrayBenchmark {
     }
   }
 
+  @State(Scope.Benchmark)
+  public static class IntTreapState {
+
+    private final IntTreapSet set = new IntTreapSet();
+
+    public IntTreapState() {
+      for (int i = 0; i < VALUES_LIMIT; ++i) {
+        set.add(random.nextInt(VALUES_LIMIT));
+      }
+    }
+
+    IntTreapSet getSet() {
+      return set;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class LongTreapState {
+
+    private final LongTreapSet set = new LongTreapSet();
+
+    public LongTreapState() {
+      for (int i = 0; i < VALUES_LIMIT; ++i) {
+        set.add(random.nextInt(VALUES_LIMIT));
+      }
+    }
+
+    LongTreapSet getSet() {
+      return set;
+    }
+  }
+
   @Benchmark
   public void treap_set(TreapState state, Blackhole blackhole) {
     blackhole.consume(state.getSet().toArray());
@@ -53,4 +85,14 @@ public class SetToArrayBenchmark {
   public void tree_set(TreeState state, Blackhole blackhole) {
     blackhole.consume(state.getSet().toArray());
   }
+
+  @Benchmark
+  public void int_treap_set(IntTreapState state, Blackhole blackhole) {
+    blackhole.consume(state.getSet().toArray());
+  }
+
+  @Benchmark
+  public void long_treap_set(LongTreapState state, Blackhole blackhole) {
+    blackhole.consume(state.getSet().toArray());
+  }
 }
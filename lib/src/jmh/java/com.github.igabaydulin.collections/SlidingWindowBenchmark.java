@@ -0,0 +1,25 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.window.WindowState;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/** A sample is added to a full window and p99 of the window is queried */
+public class SlidingWindowBenchmark {
+
+  private static final double P99 = 0.99;
+
+  @Benchmark
+  public long slidingWindowQuantiles(WindowState state) {
+    return state.addToQuantiles(P99);
+  }
+
+  @Benchmark
+  public long sortPerQuery(WindowState state) {
+    return state.addAndSort(P99);
+  }
+
+  @Benchmark
+  public long treeMapCounts(WindowState state) {
+    return state.addToTreeMap(P99);
+  }
+}
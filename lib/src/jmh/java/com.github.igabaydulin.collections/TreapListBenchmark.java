@@ -0,0 +1,36 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.list.ListState;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class TreapListBenchmark {
+
+  private static Integer insertRemove(List<Integer> list, int index) {
+    list.add(index, index);
+    return list.remove(index);
+  }
+
+  @Benchmark
+  public Integer treapListInsertRemove(ListState state) {
+    return insertRemove(state.getTreapList(), state.getIndex());
+  }
+
+  @Benchmark
+  public Integer arrayListInsertRemove(ListState state) {
+    return insertRemove(state.getArrayList(), state.getIndex());
+  }
+
+  @Benchmark
+  public void treapListReverse(ListState state) {
+    int to = state.getIndex();
+    state.getTreapList().reverse(to / 2, to);
+  }
+
+  @Benchmark
+  public void arrayListReverse(ListState state) {
+    int to = state.getIndex();
+    Collections.reverse(state.getArrayList().subList(to / 2, to));
+  }
+}
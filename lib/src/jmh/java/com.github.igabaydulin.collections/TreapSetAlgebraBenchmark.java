@@ -0,0 +1,31 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.algebra.TreapSetAlgebraState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.SingleShotTime)
+public class TreapSetAlgebraBenchmark {
+
+  @Benchmark
+  public void union(TreapSetAlgebraState state, Blackhole blackhole) {
+    blackhole.consume(state.getLeft().union(state.getRight()));
+  }
+
+  @Benchmark
+  public void parallelUnion(TreapSetAlgebraState state, Blackhole blackhole) {
+    blackhole.consume(state.getLeft().union(state.getRight(), state.getPool()));
+  }
+
+  @Benchmark
+  public void intersect(TreapSetAlgebraState state, Blackhole blackhole) {
+    blackhole.consume(state.getLeft().intersect(state.getRight()));
+  }
+
+  @Benchmark
+  public void parallelIntersect(TreapSetAlgebraState state, Blackhole blackhole) {
+    blackhole.consume(state.getLeft().intersect(state.getRight(), state.getPool()));
+  }
+}
@@ -1,5 +1,8 @@
 package com.github.igabaydulin.collections;
 
+import com.github.igabaydulin.collections.state.add.ArrayTreapSetState;
+import com.github.igabaydulin.collections.state.add.IntTreapSetState;
+import com.github.igabaydulin.collections.state.add.LongTreapSetState;
 import com.github.igabaydulin.collections.state.add.TreapSetState;
 import com.github.igabaydulin.collections.state.addall.AddAllState;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -12,6 +15,21 @@ public class TreapSetBenchmark {
     state.getSet().add(state.getValue());
   }
 
+  @Benchmark
+  public void arrayAdd(ArrayTreapSetState state) {
+    state.getSet().add(state.getValue());
+  }
+
+  @Benchmark
+  public void intAdd(IntTreapSetState state) {
+    state.getSet().add(state.getValue());
+  }
+
+  @Benchmark
+  public void longAdd(LongTreapSetState state) {
+    state.getSet().add(state.getValue());
+  }
+
   @Benchmark
   public void addAll(AddAllState state, Blackhole blackhole) {
     TreapSet<Integer> treapSet = new TreapSet<>();
@@ -0,0 +1,28 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.state.map.TreeMapState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+public class TreeMapBenchmark {
+
+  @Benchmark
+  public void get(TreeMapState state, Blackhole blackhole) {
+    blackhole.consume(state.getMap().get(state.nextKey()));
+  }
+
+  @Benchmark
+  public void containsKey(TreeMapState state, Blackhole blackhole) {
+    blackhole.consume(state.getMap().containsKey(state.nextKey()));
+  }
+
+  @Benchmark
+  public void removeAndPut(TreeMapState state, Blackhole blackhole) {
+    Integer key = state.nextKey();
+    Integer value = state.getMap().remove(key);
+    if (value != null) {
+      state.getMap().put(key, value);
+    }
+    blackhole.consume(value);
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.igabaydulin.collections.state.add;
+
+import com.github.igabaydulin.collections.LongTreapSet;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+public class LongTreapSetState {
+
+  private Random random = new Random();
+  private @Param("100") int size;
+  private @Param("false") boolean contains;
+  private long value;
+  private LongTreapSet set = new LongTreapSet();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    value = random.nextInt(size);
+    for (int i = 0; i < size; ++i) {
+      if (contains || value != i) {
+        set.add(i);
+      }
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDown() {
+    if (set.size() != size) {
+      throw new IllegalStateException(String.format("Expected: %s elements; Actual: %s elements", size, set.size()));
+    } else if (!set.contains(value)) {
+      throw new IllegalStateException(String.format("Set does not contains %s", value));
+    }
+
+    set.remove(value);
+  }
+
+  public LongTreapSet getSet() {
+    return set;
+  }
+
+  public long getValue() {
+    return value;
+  }
+}
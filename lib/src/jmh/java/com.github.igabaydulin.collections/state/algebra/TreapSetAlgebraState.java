@@ -0,0 +1,53 @@
+package com.github.igabaydulin.collections.state.algebra;
+
+import com.github.igabaydulin.collections.TreapSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+public class TreapSetAlgebraState {
+
+  private Random random = new Random();
+  private @Param("1000000") int size;
+  private TreapSet<Integer> source = new TreapSet<>();
+  private TreapSet<Integer> left;
+  private TreapSet<Integer> right = new TreapSet<>();
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int i = 0; i < size; ++i) {
+      source.add(random.nextInt(4 * size));
+      right.add(random.nextInt(4 * size));
+    }
+    pool = new ForkJoinPool();
+  }
+
+  @Setup(Level.Invocation)
+  public void copy() {
+    left = new TreapSet<>(source);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  public TreapSet<Integer> getLeft() {
+    return left;
+  }
+
+  public TreapSet<Integer> getRight() {
+    return right;
+  }
+
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+}
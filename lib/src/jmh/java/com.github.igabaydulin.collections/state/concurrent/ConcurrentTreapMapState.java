@@ -0,0 +1,31 @@
+package com.github.igabaydulin.collections.state.concurrent;
+
+import com.github.igabaydulin.collections.ConcurrentTreapMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ConcurrentTreapMapState {
+
+  private @Param("100000") int size;
+  private ConcurrentTreapMap<Integer, Integer> map = new ConcurrentTreapMap<>();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int i = 0; i < size; ++i) {
+      map.put(i, i);
+    }
+  }
+
+  public ConcurrentTreapMap<Integer, Integer> getMap() {
+    return map;
+  }
+
+  public Integer nextKey() {
+    return ThreadLocalRandom.current().nextInt(size);
+  }
+}
@@ -0,0 +1,28 @@
+package com.github.igabaydulin.collections.state.footprint;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class FootprintState {
+
+  private Random random = new Random();
+  private @Param("100") int size;
+  private Integer[] keys;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = new Integer[size];
+    for (int i = 0; i < size; ++i) {
+      keys[i] = random.nextInt();
+    }
+  }
+
+  public Integer[] getKeys() {
+    return keys;
+  }
+}
@@ -0,0 +1,40 @@
+package com.github.igabaydulin.collections.state.list;
+
+import com.github.igabaydulin.collections.TreapList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class ListState {
+
+  private Random random = new Random();
+  private @Param("1000000") int size;
+  private TreapList<Integer> treapList;
+  private List<Integer> arrayList;
+
+  @Setup
+  public void setUp() {
+    List<Integer> values = Collections.nCopies(size, 0);
+    treapList = new TreapList<>(values);
+    arrayList = new ArrayList<>(values);
+  }
+
+  public TreapList<Integer> getTreapList() {
+    return treapList;
+  }
+
+  public List<Integer> getArrayList() {
+    return arrayList;
+  }
+
+  /** Returns a random index, the lists keep their size between invocations */
+  public int getIndex() {
+    return random.nextInt(size);
+  }
+}
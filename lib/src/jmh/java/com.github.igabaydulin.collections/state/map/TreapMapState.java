@@ -0,0 +1,41 @@
+package com.github.igabaydulin.collections.state.map;
+
+import com.github.igabaydulin.collections.TreapMap;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class TreapMapState {
+
+  private static final int KEYS_MASK = 1023;
+
+  private Random random = new Random();
+  private @Param("100") int size;
+  private @Param("false") boolean contains;
+  private TreapMap<Integer, Integer> map = new TreapMap<>();
+  private Integer[] keys = new Integer[KEYS_MASK + 1];
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int i = 0; i < size; ++i) {
+      map.put(2 * i, i);
+    }
+
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = contains ? 2 * random.nextInt(size) : 2 * random.nextInt(size) + 1;
+    }
+  }
+
+  public TreapMap<Integer, Integer> getMap() {
+    return map;
+  }
+
+  public Integer nextKey() {
+    return keys[index++ & KEYS_MASK];
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.igabaydulin.collections.state.window;
+
+import com.github.igabaydulin.collections.SlidingWindowQuantiles;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Full windows of {@code size} samples: every sample advances time by one unit and the window keeps the last {@code
+ * size} units, so each added sample evicts the oldest one. Latencies are exponentially distributed with many repeats
+ */
+@State(Scope.Thread)
+public class WindowState {
+
+  private static final int VALUES_MASK = 1023;
+
+  private Random random = new Random();
+  private @Param("100000") int size;
+  private long[] values = new long[VALUES_MASK + 1];
+  private long timestamp;
+
+  private SlidingWindowQuantiles quantiles;
+  /** Values of the window in arrival order for the baselines, the oldest one is at {@code timestamp % size} */
+  private long[] ring;
+  private TreeMap<Long, Integer> counts;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = (long) (-Math.log(1 - random.nextDouble()) * 1000);
+    }
+
+    quantiles = SlidingWindowQuantiles.ofLastPeriod(size);
+    ring = new long[size];
+    counts = new TreeMap<>();
+    for (timestamp = 0; timestamp < size; ++timestamp) {
+      long value = nextValue();
+      quantiles.add(timestamp, value);
+      ring[(int) timestamp] = value;
+      counts.merge(value, 1, Integer::sum);
+    }
+  }
+
+  private long nextValue() {
+    return values[(int) timestamp & VALUES_MASK];
+  }
+
+  private static int rank(int size, double quantile) {
+    return Math.max((int) Math.ceil(quantile * size) - 1, 0);
+  }
+
+  /** Adds the next sample to the window of the treap multiset and selects the quantile in O(log d) */
+  public long addToQuantiles(double quantile) {
+    quantiles.add(timestamp, nextValue());
+    ++timestamp;
+    return quantiles.quantile(quantile);
+  }
+
+  /** Adds the next sample to the ring and sorts a copy of the window to select the quantile in O(n log n) */
+  public long addAndSort(double quantile) {
+    ring[(int) (timestamp % size)] = nextValue();
+    ++timestamp;
+    long[] sorted = ring.clone();
+    Arrays.sort(sorted);
+    return sorted[rank(size, quantile)];
+  }
+
+  /** Keeps counts of values in a {@link TreeMap} and walks its entries to select the quantile in O(d) */
+  public long addToTreeMap(double quantile) {
+    int index = (int) (timestamp % size);
+    counts.compute(ring[index], (value, count) -> count == 1 ? null : count - 1);
+    ring[index] = nextValue();
+    counts.merge(ring[index], 1, Integer::sum);
+    ++timestamp;
+
+    int rank = rank(size, quantile);
+    for (Entry<Long, Integer> entry : counts.entrySet()) {
+      rank -= entry.getValue();
+      if (rank < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException();
+  }
+}
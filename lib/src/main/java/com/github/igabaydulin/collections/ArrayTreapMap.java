@@ -0,0 +1,1865 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Treap map stored as a struct of arrays: a node is an {@code int} index into parallel arrays of keys, values,
+ * priorities, children and subtree sizes. Nodes carry no object headers and no references to each other, so a treap
+ * of n entries is a handful of arrays instead of n objects: traversals read adjacent memory, the garbage collector
+ * has nothing to trace but the keys and values, and {@link #clear()} only resets the counters and drops the keys
+ *
+ * <p>Index 0 is a sentinel standing for a missing child, its subtree size is always 0. Removed nodes are pushed to a
+ * free list linked through their right children and reused by the next insertions; the arrays grow by doubling and
+ * never shrink, see {@link #trimToSize()}
+ *
+ * <p>The algorithms are the ones of {@link TreapMap}: insertion and removal work top-down in place and set operations
+ * split this treap in place. Two maps cannot share nodes, so {@link #split} and {@link #merge} copy the entries into
+ * new maps in O(n), keeping their priorities. Entries returned by the map are immutable snapshots
+ */
+public class ArrayTreapMap<K, V> extends AbstractMap<K, V> implements ValueTreap<K, V> {
+
+  private static final int NIL = 0;
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final Random random;
+  /** Whether no values are kept, values are keys themselves then; used by {@link ArrayTreapSet} */
+  private final boolean keysOnly;
+
+  private Object[] keys;
+  private Object[] values;
+  private float[] priorities;
+  private int[] left;
+  private int[] right;
+  private int[] size;
+
+  private int root = NIL;
+  /** The first index which has never been allocated */
+  private int top = 1;
+  /** The head of the list of released indices linked through {@link #right} */
+  private int free = NIL;
+
+  /** The number of structural modifications of this map, used by iterators to fail fast */
+  private int modCount;
+
+  public ArrayTreapMap() {
+    this(new Random(), false, DEFAULT_CAPACITY);
+  }
+
+  public ArrayTreapMap(long seed) {
+    this(new Random(seed), false, DEFAULT_CAPACITY);
+  }
+
+  /** Creates a map which holds {@code capacity} entries without growing its arrays */
+  public ArrayTreapMap(int capacity) {
+    this(new Random(), false, capacity);
+  }
+
+  /**
+   * Creates a map with entries of the sorted map in O(n), the sorted map must use natural ordering as this map does
+   *
+   * @throws IllegalArgumentException if the sorted map is ordered by a comparator
+   */
+  public ArrayTreapMap(SortedMap<K, ? extends V> map) {
+    this(new Random(), false, map.size());
+    if (map.comparator() != null) {
+      throw new IllegalArgumentException("Only maps with natural ordering can be copied");
+    }
+
+    putSorted(map);
+  }
+
+  private ArrayTreapMap(Random random, boolean keysOnly, int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+
+    this.random = random;
+    this.keysOnly = keysOnly;
+    this.keys = new Object[capacity + 1];
+    this.values = keysOnly ? null : new Object[capacity + 1];
+    this.priorities = new float[capacity + 1];
+    this.left = new int[capacity + 1];
+    this.right = new int[capacity + 1];
+    this.size = new int[capacity + 1];
+  }
+
+  /** Creates a map which keeps no values, so every value is the key itself; it backs {@link ArrayTreapSet} */
+  static <K> ArrayTreapMap<K, K> keysOnly(Random random) {
+    return new ArrayTreapMap<>(random, true, DEFAULT_CAPACITY);
+  }
+
+  private ArrayTreapMap<K, V> emptyCopy(int capacity) {
+    return new ArrayTreapMap<>(random, keysOnly, capacity);
+  }
+
+  Random getRandom() {
+    return random;
+  }
+
+  /** Takes a released index or a fresh one, growing the arrays if they are full */
+  private int allocate(K key, V value, double priority) {
+    int node = free;
+    if (node != NIL) {
+      free = right[node];
+    } else {
+      if (top == keys.length) {
+        grow(1);
+      }
+      node = top++;
+    }
+
+    keys[node] = key;
+    if (values != null) {
+      values[node] = value;
+    }
+    priorities[node] = (float) priority;
+    left[node] = NIL;
+    right[node] = NIL;
+    size[node] = 1;
+    return node;
+  }
+
+  private void release(int node) {
+    keys[node] = null;
+    if (values != null) {
+      values[node] = null;
+    }
+    left[node] = NIL;
+    right[node] = free;
+    free = node;
+  }
+
+  private void releaseSubtree(int node) {
+    for (int next; node != NIL; node = next) {
+      releaseSubtree(left[node]);
+      next = right[node];
+      release(node);
+    }
+  }
+
+  /** Makes room for at least {@code count} more entries beyond the allocated ones */
+  private void grow(int count) {
+    long required = (long) top + count;
+    if (required <= keys.length) {
+      return;
+    }
+    if (required > Integer.MAX_VALUE - 8) {
+      throw new OutOfMemoryError("Required array size is too large");
+    }
+
+    int capacity = (int) Math.max(required, Math.min((long) keys.length * 2, Integer.MAX_VALUE - 8));
+    keys = Arrays.copyOf(keys, capacity);
+    if (values != null) {
+      values = Arrays.copyOf(values, capacity);
+    }
+    priorities = Arrays.copyOf(priorities, capacity);
+    left = Arrays.copyOf(left, capacity);
+    right = Arrays.copyOf(right, capacity);
+    size = Arrays.copyOf(size, capacity);
+  }
+
+  /**
+   * Compacts the nodes into the first indices in key order and shrinks the arrays to the size of the map, so the free
+   * list becomes empty and in-order traversals read the arrays sequentially
+   */
+  public void trimToSize() {
+    ArrayTreapMap<K, V> compact = emptyCopy(size());
+    compact.root = compact.copyNodes(this, inOrder(), 0, size());
+    keys = compact.keys;
+    values = compact.values;
+    priorities = compact.priorities;
+    left = compact.left;
+    right = compact.right;
+    size = compact.size;
+    root = compact.root;
+    top = compact.top;
+    free = NIL;
+    ++modCount;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K key(int node) {
+    return (K) keys[node];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V value(int node) {
+    return keysOnly ? (V) keys[node] : (V) values[node];
+  }
+
+  private void assign(int node, V value) {
+    if (values != null) {
+      values[node] = value;
+    }
+  }
+
+  private Entry<K, V> entry(int node) {
+    return node == NIL ? null : new SimpleImmutableEntry<>(key(node), value(node));
+  }
+
+  private void update(int node) {
+    size[node] = 1 + size[left[node]] + size[right[node]];
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(K key1, K key2) {
+    return ((Comparable<K>) key1).compareTo(key2);
+  }
+
+  @Override
+  public int size() {
+    return size[root];
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root == NIL;
+  }
+
+  /**
+   * Removes all entries: only the key (and value) slots are nulled out for the garbage collector, the arrays are kept
+   * for the next insertions and nothing is traversed
+   */
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 1, top, null);
+    if (values != null) {
+      Arrays.fill(values, 1, top, null);
+    }
+    root = NIL;
+    top = 1;
+    free = NIL;
+    ++modCount;
+  }
+
+  @Override
+  public V getByIndex(int index) {
+    return value(nodeAt(index));
+  }
+
+  @Override
+  public int rankOf(K key) {
+    return rank(key, false);
+  }
+
+  @Override
+  public int countInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    if (compare(from, to) > 0) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+
+    return Math.max(0, rank(to, toInclusive) - rank(from, !fromInclusive));
+  }
+
+  @Override
+  public int indexOfFloor(K key) {
+    return rank(key, true) - 1;
+  }
+
+  @Override
+  public int indexOfCeiling(K key) {
+    int rank = rank(key, false);
+    return rank == size() ? -1 : rank;
+  }
+
+  @Override
+  public List<Entry<K, V>> subList(int fromIndex, int toIndex) {
+    return new IndexRange<>(fromIndex, toIndex, this::entry);
+  }
+
+  /** Returns a list view of keys at the indices, see {@link #subList(int, int)} */
+  List<K> keySubList(int fromIndex, int toIndex) {
+    return new IndexRange<>(fromIndex, toIndex, this::key);
+  }
+
+  private int nodeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int node = root;
+    while (true) {
+      int leftSize = size[left[node]];
+      if (leftSize == index) {
+        return node;
+      } else if (leftSize > index) {
+        node = left[node];
+      } else {
+        index -= leftSize + 1;
+        node = right[node];
+      }
+    }
+  }
+
+  /** Returns the node with the given key, using a single comparison per level */
+  private int find(K key) {
+    int node = root;
+    while (node != NIL) {
+      int comparison = compare(key(node), key);
+      if (comparison == 0) {
+        return node;
+      }
+      node = comparison > 0 ? left[node] : right[node];
+    }
+
+    return NIL;
+  }
+
+  @Override
+  public boolean contains(K key) {
+    return find(key) != NIL;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean containsKey(Object key) {
+    return contains((K) key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    for (int node = 1; node < top; ++node) {
+      if (keys[node] != null && Objects.equals(value(node), value)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    if (isEmpty()) {
+      return null;
+    }
+
+    int node = find((K) key);
+    return node == NIL ? null : value(node);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return put(key, value, random.nextDouble());
+  }
+
+  /** Puts the key top-down, see {@link TreapMap#put(Object, Object, double)} */
+  @Override
+  public V put(K key, V value, double priority) {
+    int existing = find(key);
+    if (existing != NIL) {
+      V previousValue = value(existing);
+      assign(existing, value);
+      return previousValue;
+    }
+
+    int inserted = allocate(key, value, priority);
+    float insertedPriority = priorities[inserted];
+    int parent = NIL;
+    boolean isLeft = false;
+    int node = root;
+    while (node != NIL && priorities[node] > insertedPriority) {
+      ++size[node];
+      parent = node;
+      isLeft = compare(key(node), key) > 0;
+      node = isLeft ? left[node] : right[node];
+    }
+
+    splitInto(node, key, inserted);
+    update(inserted);
+    link(parent, isLeft, inserted);
+    ++modCount;
+    return null;
+  }
+
+  /** Splits the subtree by the absent key in place, the halves become the children of the target node */
+  private void splitInto(int node, K key, int target) {
+    if (node == NIL) {
+      left[target] = NIL;
+      right[target] = NIL;
+    } else if (compare(key(node), key) < 0) {
+      splitInto(right[node], key, target);
+      right[node] = left[target];
+      update(node);
+      left[target] = node;
+    } else {
+      splitInto(left[node], key, target);
+      left[node] = right[target];
+      update(node);
+      right[target] = node;
+    }
+  }
+
+  /** Makes the child a left (or right) child of the parent or a root if there is no parent */
+  private void link(int parent, boolean isLeft, int child) {
+    if (parent == NIL) {
+      root = child;
+    } else if (isLeft) {
+      left[parent] = child;
+    } else {
+      right[parent] = child;
+    }
+  }
+
+  /** Removes the key in place and releases its index, see {@link TreapMap#remove(Object)} */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(Object key) {
+    int node = find((K) key);
+    if (node == NIL) {
+      return null;
+    }
+
+    return removeNode(node);
+  }
+
+  private V removeNode(int node) {
+    K key = key(node);
+    int parent = NIL;
+    boolean isLeft = false;
+    int current = root;
+    while (current != node) {
+      --size[current];
+      parent = current;
+      isLeft = compare(key(current), key) > 0;
+      current = isLeft ? left[current] : right[current];
+    }
+
+    link(parent, isLeft, join(left[node], right[node]));
+    V value = value(node);
+    release(node);
+    ++modCount;
+    return value;
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree must be less than keys of the right one */
+  private int join(int leftNode, int rightNode) {
+    if (leftNode == NIL) {
+      return rightNode;
+    } else if (rightNode == NIL) {
+      return leftNode;
+    }
+
+    if (priorities[leftNode] > priorities[rightNode]) {
+      right[leftNode] = join(right[leftNode], rightNode);
+      update(leftNode);
+      return leftNode;
+    }
+
+    left[rightNode] = join(leftNode, left[rightNode]);
+    update(rightNode);
+    return rightNode;
+  }
+
+  /**
+   * Splits the subtree in place into keys less than the key, the node with the key (detached from its children) and
+   * keys greater than the key, which are stored in {@code parts} in this order
+   */
+  private void splitSubtree(int node, K key, int[] parts) {
+    if (node == NIL) {
+      parts[0] = NIL;
+      parts[1] = NIL;
+      parts[2] = NIL;
+      return;
+    }
+
+    int comparison = compare(key(node), key);
+    if (comparison < 0) {
+      splitSubtree(right[node], key, parts);
+      right[node] = parts[0];
+      update(node);
+      parts[0] = node;
+    } else if (comparison > 0) {
+      splitSubtree(left[node], key, parts);
+      left[node] = parts[2];
+      update(node);
+      parts[2] = node;
+    } else {
+      parts[0] = left[node];
+      parts[1] = node;
+      parts[2] = right[node];
+      left[node] = NIL;
+      right[node] = NIL;
+      size[node] = 1;
+    }
+  }
+
+  /**
+   * Builds a Cartesian tree of the nodes, which must be in ascending key order, by priorities in O(n) keeping its
+   * right spine on a stack, see {@link TreapMap#fromSorted(Iterable)}; returns its root
+   */
+  private int buildTree(int[] nodes, int count) {
+    int[] spine = new int[count];
+    int depth = 0;
+    for (int i = 0; i < count; ++i) {
+      int node = nodes[i];
+      int last = NIL;
+      while (depth > 0 && priorities[spine[depth - 1]] < priorities[node]) {
+        last = spine[--depth];
+        update(last);
+      }
+      left[node] = last;
+      if (depth > 0) {
+        right[spine[depth - 1]] = node;
+      }
+      spine[depth++] = node;
+    }
+
+    int node = NIL;
+    while (depth > 0) {
+      node = spine[--depth];
+      update(node);
+    }
+    return node;
+  }
+
+  /** Copies the given nodes of the source map, which are in ascending key order, and builds them into a tree */
+  private int copyNodes(ArrayTreapMap<K, V> source, int[] nodes, int from, int to) {
+    grow(to - from);
+    int[] copies = new int[to - from];
+    for (int i = from; i < to; ++i) {
+      int node = nodes[i];
+      copies[i - from] = allocate(source.key(node), source.value(node), source.priorities[node]);
+    }
+
+    return buildTree(copies, copies.length);
+  }
+
+  /** Returns the nodes in ascending key order */
+  private int[] inOrder() {
+    int[] nodes = new int[size()];
+    int count = 0;
+    int[] stack = new int[16];
+    int depth = 0;
+    int node = root;
+    while (node != NIL || depth > 0) {
+      if (node != NIL) {
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = node;
+        node = left[node];
+      } else {
+        node = stack[--depth];
+        nodes[count++] = node;
+        node = right[node];
+      }
+    }
+
+    return nodes;
+  }
+
+  private void putSorted(SortedMap<K, ? extends V> map) {
+    int[] nodes = new int[map.size()];
+    int count = 0;
+    for (Entry<K, ? extends V> entry : map.entrySet()) {
+      nodes[count++] = allocate(entry.getKey(), entry.getValue(), random.nextDouble());
+    }
+
+    root = buildTree(nodes, count);
+    ++modCount;
+  }
+
+  /**
+   * Appends the keys, which must be in strictly ascending order and greater than keys of the map: they are built into
+   * a separate tree in O(m), which is joined to the map; the map is left unchanged if the order is broken
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order
+   */
+  @Override
+  public boolean putBack(K[] keys, V[] values, double[] priorities) {
+    if (keys.length == 0) {
+      return false;
+    }
+    if (root != NIL && compare(lastKey(), keys[0]) >= 0) {
+      throw new IllegalArgumentException("Keys are not in strictly ascending order");
+    }
+    for (int i = 1; i < keys.length; ++i) {
+      if (compare(keys[i - 1], keys[i]) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly ascending order");
+      }
+    }
+
+    grow(keys.length);
+    int[] nodes = new int[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      nodes[i] = allocate(keys[i], values[i], priorities[i]);
+    }
+
+    root = join(root, buildTree(nodes, nodes.length));
+    ++modCount;
+    return true;
+  }
+
+  @Override
+  public boolean putBack(K[] keys, V[] values) {
+    return putBack(keys, values, randomPriorities(keys.length));
+  }
+
+  /**
+   * Prepends the keys, which must be in strictly descending order and less than keys of the map, see {@link
+   * #putBack(Object[], Object[], double[])}
+   *
+   * @throws IllegalArgumentException if keys are not in strictly descending order
+   */
+  @Override
+  public boolean putFront(K[] keys, V[] values, double[] priorities) {
+    if (keys.length == 0) {
+      return false;
+    }
+    if (root != NIL && compare(keys[0], firstKey()) >= 0) {
+      throw new IllegalArgumentException("Keys are not in strictly descending order");
+    }
+    for (int i = 1; i < keys.length; ++i) {
+      if (compare(keys[i], keys[i - 1]) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly descending order");
+      }
+    }
+
+    grow(keys.length);
+    int[] nodes = new int[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      nodes[keys.length - 1 - i] = allocate(keys[i], values[i], priorities[i]);
+    }
+
+    root = join(buildTree(nodes, nodes.length), root);
+    ++modCount;
+    return true;
+  }
+
+  @Override
+  public boolean putFront(K[] keys, V[] values) {
+    return putFront(keys, values, randomPriorities(keys.length));
+  }
+
+  private double[] randomPriorities(int count) {
+    double[] priorities = new double[count];
+    for (int i = 0; i < priorities.length; ++i) {
+      priorities[i] = random.nextDouble();
+    }
+    return priorities;
+  }
+
+  /**
+   * Splits this map by the key into two new maps, the key goes according to the inclusion. The entries are copied in
+   * O(n) with their priorities, so this map is left unchanged
+   *
+   * @return true if this map contains the key
+   */
+  @Override
+  public boolean split(
+      K key, Reference<ValueTreap<K, V>> left, Reference<ValueTreap<K, V>> right, Inclusion inclusion) {
+    if (isEmpty()) {
+      left.set(null);
+      right.set(null);
+      return false;
+    }
+
+    boolean contains = contains(key);
+    int less = rank(key, false);
+    int leftEnd = contains && inclusion == Inclusion.LEFT ? less + 1 : less;
+    int rightStart = contains && inclusion != Inclusion.RIGHT ? less + 1 : less;
+
+    int[] nodes = inOrder();
+    ArrayTreapMap<K, V> leftMap = emptyCopy(leftEnd);
+    leftMap.root = leftMap.copyNodes(this, nodes, 0, leftEnd);
+    ArrayTreapMap<K, V> rightMap = emptyCopy(nodes.length - rightStart);
+    rightMap.root = rightMap.copyNodes(this, nodes, rightStart, nodes.length);
+
+    left.set(leftMap);
+    right.set(rightMap);
+    return contains;
+  }
+
+  /**
+   * Returns a new map with entries of this map and the {@code right} map, all keys of this map must be less than keys
+   * of the {@code right} map. The entries are copied in O(n + m) with their priorities, both maps are left unchanged
+   */
+  @Override
+  public ArrayTreapMap<K, V> merge(ValueTreap<K, V> right) {
+    ArrayTreapMap<K, V> rightMap = (ArrayTreapMap<K, V>) right;
+    int[] nodes = inOrder();
+    int[] rightNodes = rightMap.inOrder();
+
+    ArrayTreapMap<K, V> merged = emptyCopy(nodes.length + rightNodes.length);
+    int leftRoot = merged.copyNodes(this, nodes, 0, nodes.length);
+    merged.root = merged.join(leftRoot, merged.copyNodes(rightMap, rightNodes, 0, rightNodes.length));
+    return merged;
+  }
+
+  @Override
+  public boolean union(ValueTreap<K, V> other) {
+    return union(other, (value, otherValue) -> otherValue);
+  }
+
+  /**
+   * Adds entries of the other map, see {@link TreapMap#union(ValueTreap, BiFunction)}. Nodes of the other map are
+   * copied into the arrays of this map first, so it is not changed
+   */
+  @Override
+  public boolean union(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine) {
+    ArrayTreapMap<K, V> arrayTreapMap = (ArrayTreapMap<K, V>) other;
+    if (arrayTreapMap == this || arrayTreapMap.isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    grow(arrayTreapMap.size());
+    int copy = copySubtree(arrayTreapMap, arrayTreapMap.root);
+    root = union(root, copy, false, combine, new int[3]);
+    ++modCount;
+    return size != size();
+  }
+
+  /** Copies the subtree of the other map keeping its shape, the arrays must have room for it */
+  private int copySubtree(ArrayTreapMap<K, V> other, int otherNode) {
+    if (otherNode == NIL) {
+      return NIL;
+    }
+
+    int node = allocate(other.key(otherNode), other.value(otherNode), other.priorities[otherNode]);
+    int leftCopy = copySubtree(other, other.left[otherNode]);
+    int rightCopy = copySubtree(other, other.right[otherNode]);
+    left[node] = leftCopy;
+    right[node] = rightCopy;
+    size[node] = other.size[otherNode];
+    return node;
+  }
+
+  private int union(
+      int node, int other, boolean swapped, BiFunction<? super V, ? super V, ? extends V> combine, int[] parts) {
+    if (node == NIL) {
+      return other;
+    } else if (other == NIL) {
+      return node;
+    }
+
+    if (priorities[node] < priorities[other]) {
+      return union(other, node, !swapped, combine, parts);
+    }
+
+    splitSubtree(other, key(node), parts);
+    int leftPart = parts[0];
+    int rightPart = parts[2];
+    if (parts[1] != NIL) {
+      V value = value(parts[1]);
+      assign(node, swapped ? combine.apply(value, value(node)) : combine.apply(value(node), value));
+      release(parts[1]);
+    }
+
+    int leftNode = union(left[node], leftPart, swapped, combine, parts);
+    int rightNode = union(right[node], rightPart, swapped, combine, parts);
+    left[node] = leftNode;
+    right[node] = rightNode;
+    update(node);
+    return node;
+  }
+
+  @Override
+  public boolean intersect(ValueTreap<K, V> other) {
+    return intersect(other, (value, otherValue) -> value);
+  }
+
+  /**
+   * Retains keys of the other map, see {@link TreapMap#intersect(ValueTreap, BiFunction)}; the removed indices are
+   * released for reuse
+   */
+  @Override
+  public boolean intersect(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine) {
+    ArrayTreapMap<K, V> arrayTreapMap = (ArrayTreapMap<K, V>) other;
+    if (arrayTreapMap == this || isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    root = intersect(root, arrayTreapMap, arrayTreapMap.root, combine, new int[3]);
+    ++modCount;
+    return size != size();
+  }
+
+  private int intersect(
+      int node,
+      ArrayTreapMap<K, V> other,
+      int otherNode,
+      BiFunction<? super V, ? super V, ? extends V> combine,
+      int[] parts) {
+    if (node == NIL) {
+      return NIL;
+    } else if (otherNode == NIL) {
+      releaseSubtree(node);
+      return NIL;
+    }
+
+    splitSubtree(node, other.key(otherNode), parts);
+    int middle = parts[1];
+    int rightPart = parts[2];
+    int leftNode = intersect(parts[0], other, other.left[otherNode], combine, parts);
+    int rightNode = intersect(rightPart, other, other.right[otherNode], combine, parts);
+    if (middle == NIL) {
+      return join(leftNode, rightNode);
+    }
+
+    assign(middle, combine.apply(value(middle), other.value(otherNode)));
+    return join(join(leftNode, middle), rightNode);
+  }
+
+  /**
+   * Removes keys of the other map, see {@link TreapMap#difference(ValueTreap)}; the removed indices are released for
+   * reuse
+   */
+  @Override
+  public boolean difference(ValueTreap<K, V> other) {
+    ArrayTreapMap<K, V> arrayTreapMap = (ArrayTreapMap<K, V>) other;
+    if (arrayTreapMap == this) {
+      boolean changed = !isEmpty();
+      clear();
+      return changed;
+    }
+    if (isEmpty() || arrayTreapMap.isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    root = difference(root, arrayTreapMap, arrayTreapMap.root, new int[3]);
+    ++modCount;
+    return size != size();
+  }
+
+  private int difference(int node, ArrayTreapMap<K, V> other, int otherNode, int[] parts) {
+    if (node == NIL || otherNode == NIL) {
+      return node;
+    }
+
+    splitSubtree(node, other.key(otherNode), parts);
+    if (parts[1] != NIL) {
+      release(parts[1]);
+    }
+    int rightPart = parts[2];
+    int leftNode = difference(parts[0], other, other.left[otherNode], parts);
+    return join(leftNode, difference(rightPart, other, other.right[otherNode], parts));
+  }
+
+  /** Returns the height of the treap, it is computed level by level in O(n) and meant for diagnostics and tests */
+  @Override
+  public int height() {
+    int height = 0;
+    int[] level = new int[size()];
+    int head = 0;
+    int tail = 0;
+    if (root != NIL) {
+      level[tail++] = root;
+    }
+
+    while (head < tail) {
+      ++height;
+      for (int end = tail; head < end; ++head) {
+        int node = level[head];
+        if (left[node] != NIL) {
+          level[tail++] = left[node];
+        }
+        if (right[node] != NIL) {
+          level[tail++] = right[node];
+        }
+      }
+    }
+
+    return height;
+  }
+
+  /** Returns the number of keys which are less than (or equal to, if {@code inclusive} is true) the given key */
+  private int rank(K key, boolean inclusive) {
+    int rank = 0;
+    int node = root;
+    while (node != NIL) {
+      int comparison = compare(key(node), key);
+      if (comparison < 0 || (inclusive && comparison == 0)) {
+        rank += size[left[node]] + 1;
+        node = right[node];
+      } else {
+        node = left[node];
+      }
+    }
+
+    return rank;
+  }
+
+  /** Returns the node with the least key greater than (or equal to, if {@code inclusive} is true) the key */
+  private int ceilingNode(K key, boolean inclusive) {
+    int result = NIL;
+    int node = root;
+    while (node != NIL) {
+      int comparison = compare(key(node), key);
+      if (comparison > 0 || (inclusive && comparison == 0)) {
+        result = node;
+        node = left[node];
+      } else {
+        node = right[node];
+      }
+    }
+
+    return result;
+  }
+
+  /** Returns the node with the greatest key less than (or equal to, if {@code inclusive} is true) the key */
+  private int floorNode(K key, boolean inclusive) {
+    int result = NIL;
+    int node = root;
+    while (node != NIL) {
+      int comparison = compare(key(node), key);
+      if (comparison < 0 || (inclusive && comparison == 0)) {
+        result = node;
+        node = right[node];
+      } else {
+        node = left[node];
+      }
+    }
+
+    return result;
+  }
+
+  private int firstNode() {
+    int node = root;
+    while (node != NIL && left[node] != NIL) {
+      node = left[node];
+    }
+    return node;
+  }
+
+  private int lastNode() {
+    int node = root;
+    while (node != NIL && right[node] != NIL) {
+      node = right[node];
+    }
+    return node;
+  }
+
+  @Override
+  public Entry<K, V> lowerEntry(K key) {
+    return entry(floorNode(key, false));
+  }
+
+  @Override
+  public K lowerKey(K key) {
+    return keyOrNull(floorNode(key, false));
+  }
+
+  @Override
+  public Entry<K, V> floorEntry(K key) {
+    return entry(floorNode(key, true));
+  }
+
+  @Override
+  public K floorKey(K key) {
+    return keyOrNull(floorNode(key, true));
+  }
+
+  @Override
+  public Entry<K, V> ceilingEntry(K key) {
+    return entry(ceilingNode(key, true));
+  }
+
+  @Override
+  public K ceilingKey(K key) {
+    return keyOrNull(ceilingNode(key, true));
+  }
+
+  @Override
+  public Entry<K, V> higherEntry(K key) {
+    return entry(ceilingNode(key, false));
+  }
+
+  @Override
+  public K higherKey(K key) {
+    return keyOrNull(ceilingNode(key, false));
+  }
+
+  @Override
+  public Entry<K, V> firstEntry() {
+    return entry(firstNode());
+  }
+
+  @Override
+  public Entry<K, V> lastEntry() {
+    return entry(lastNode());
+  }
+
+  @Override
+  public K firstKey() {
+    return existingKey(firstNode());
+  }
+
+  @Override
+  public K lastKey() {
+    return existingKey(lastNode());
+  }
+
+  private K keyOrNull(int node) {
+    return node == NIL ? null : key(node);
+  }
+
+  private K existingKey(int node) {
+    if (node == NIL) {
+      throw new NoSuchElementException();
+    }
+    return key(node);
+  }
+
+  @Override
+  public Entry<K, V> pollFirstEntry() {
+    return pollNode(firstNode());
+  }
+
+  @Override
+  public Entry<K, V> pollLastEntry() {
+    return pollNode(lastNode());
+  }
+
+  private Entry<K, V> pollNode(int node) {
+    Entry<K, V> entry = entry(node);
+    if (node != NIL) {
+      removeNode(node);
+    }
+    return entry;
+  }
+
+  @Override
+  public NavigableMap<K, V> descendingMap() {
+    return new SubMap(true, null, false, true, null, false, true);
+  }
+
+  @Override
+  public NavigableSet<K> navigableKeySet() {
+    return new NavigableKeySet<>(this);
+  }
+
+  @Override
+  public NavigableSet<K> descendingKeySet() {
+    return new NavigableKeySet<>(descendingMap());
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new Values(new SubMap(true, null, false, true, null, false, false));
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new EntrySet(new SubMap(true, null, false, true, null, false, false));
+  }
+
+  /**
+   * Returns a live view of the portion of this map whose keys range from {@code fromKey} to {@code toKey}, see {@link
+   * TreapMap#subMap(Object, boolean, Object, boolean)}
+   *
+   * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+   */
+  @Override
+  public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    return new SubMap(true, null, false, false, toKey, inclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    return new SubMap(false, fromKey, inclusive, true, null, false, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> subMap(K fromKey, K toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> headMap(K toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> tailMap(K fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  /** Returns {@code null}, keys are ordered by their {@linkplain Comparable natural ordering} */
+  @Override
+  public Comparator<? super K> comparator() {
+    return null;
+  }
+
+  /**
+   * In-order cursor over the nodes of a range keeping pending ancestors on an {@code int} stack. Removal through the
+   * cursor is O(log n): the path is sought again from the root once the node is removed
+   */
+  private abstract class NodeIterator<T> implements Iterator<T> {
+
+    private final SubMap range;
+    private int[] stack = new int[16];
+    private int depth;
+    private K lastKey;
+    private boolean canRemove;
+    private int expectedModCount = modCount;
+
+    NodeIterator(SubMap range) {
+      this.range = range;
+      if (range.descending ? range.toEnd : range.fromStart) {
+        seek(null, true);
+      } else {
+        seek(range.descending ? range.high : range.low, range.descending ? range.highInclusive : range.lowInclusive);
+      }
+    }
+
+    /** Pushes the path to the first node after (or at, if {@code inclusive} is true) the key in iteration order */
+    private void seek(K key, boolean inclusive) {
+      depth = 0;
+      int node = root;
+      while (node != NIL) {
+        int comparison = key == null ? 1 : compare(key(node), key);
+        if (key != null && range.descending) {
+          comparison = -comparison;
+        }
+
+        if (comparison > 0 || (inclusive && comparison == 0)) {
+          push(node);
+          node = range.descending ? right[node] : left[node];
+        } else {
+          node = range.descending ? left[node] : right[node];
+        }
+      }
+    }
+
+    private void push(int node) {
+      if (depth == stack.length) {
+        stack = Arrays.copyOf(stack, depth * 2);
+      }
+      stack[depth++] = node;
+    }
+
+    private void pushPath(int node) {
+      for (; node != NIL; node = range.descending ? right[node] : left[node]) {
+        push(node);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (depth == 0) {
+        return false;
+      }
+
+      K key = key(stack[depth - 1]);
+      return range.descending ? !range.tooLow(key) : !range.tooHigh(key);
+    }
+
+    int nextNode() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      int node = stack[--depth];
+      pushPath(range.descending ? left[node] : right[node]);
+      lastKey = key(node);
+      canRemove = true;
+      return node;
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      ArrayTreapMap.this.remove(lastKey);
+      seek(lastKey, false);
+      expectedModCount = modCount;
+      canRemove = false;
+    }
+  }
+
+  /**
+   * List view of the nodes at a range of indices: an element is selected by subtree sizes in O(log n) and iteration
+   * seeks its first node once, so iterating k elements takes O(log n + k)
+   */
+  private class IndexRange<T> extends AbstractList<T> {
+
+    private final int from;
+    private final int to;
+    private final IntFunction<T> mapper;
+    private final int expectedModCount = ArrayTreapMap.this.modCount;
+
+    IndexRange(int from, int to, IntFunction<T> mapper) {
+      if (from < 0 || to > ArrayTreapMap.this.size() || from > to) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      this.from = from;
+      this.to = to;
+      this.mapper = mapper;
+    }
+
+    private void checkModCount() {
+      if (ArrayTreapMap.this.modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @Override
+    public T get(int index) {
+      checkModCount();
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      return mapper.apply(nodeAt(from + index));
+    }
+
+    @Override
+    public int size() {
+      checkModCount();
+      return to - from;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      checkModCount();
+      if (from == to) {
+        return Collections.emptyIterator();
+      }
+
+      SubMap range = new SubMap(false, key(nodeAt(from)), true, true, null, false, false);
+      return new NodeIterator<T>(range) {
+        private int remaining = to - from;
+
+        @Override
+        public boolean hasNext() {
+          return remaining > 0 && super.hasNext();
+        }
+
+        @Override
+        public T next() {
+          if (remaining == 0) {
+            throw new NoSuchElementException();
+          }
+
+          int node = nextNode();
+          --remaining;
+          return mapper.apply(node);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+
+  private class EntryIterator extends NodeIterator<Entry<K, V>> {
+
+    EntryIterator(SubMap range) {
+      super(range);
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      return entry(nextNode());
+    }
+  }
+
+  private class ValueIterator extends NodeIterator<V> {
+
+    ValueIterator(SubMap range) {
+      super(range);
+    }
+
+    @Override
+    public V next() {
+      return value(nextNode());
+    }
+  }
+
+  /**
+   * Spliterator over a range of positions in iteration order: it is split in halves by positions in O(1) and seeks its
+   * next node by subtree sizes only when the traversal starts or resumes after a split
+   */
+  private class EntrySpliterator implements Spliterator<Entry<K, V>> {
+
+    private final boolean descending;
+    private int index;
+    private final int fence;
+    private int[] stack;
+    private int depth;
+    private final int expectedModCount = modCount;
+
+    EntrySpliterator(boolean descending, int index, int fence) {
+      this.descending = descending;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    /** Pushes the path to the node at the position, the node itself ends up on top of the stack */
+    private void seek(int position) {
+      stack = new int[16];
+      int node = root;
+      while (node != NIL) {
+        int before = size[descending ? right[node] : left[node]];
+        if (position <= before) {
+          push(node);
+          if (position == before) {
+            return;
+          }
+          node = descending ? right[node] : left[node];
+        } else {
+          position -= before + 1;
+          node = descending ? left[node] : right[node];
+        }
+      }
+    }
+
+    private void push(int node) {
+      if (depth == stack.length) {
+        stack = Arrays.copyOf(stack, depth * 2);
+      }
+      stack[depth++] = node;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+      if (index >= fence) {
+        return false;
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (stack == null) {
+        seek(index);
+      }
+
+      int node = stack[--depth];
+      for (int child = descending ? left[node] : right[node];
+          child != NIL;
+          child = descending ? right[child] : left[child]) {
+        push(child);
+      }
+      ++index;
+      action.accept(entry(node));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+      while (tryAdvance(action)) {
+        // every step is done by tryAdvance
+      }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> trySplit() {
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+
+      EntrySpliterator prefix = new EntrySpliterator(descending, index, middle);
+      index = middle;
+      stack = null;
+      depth = 0;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.SIZED
+          | Spliterator.SUBSIZED
+          | Spliterator.ORDERED
+          | Spliterator.SORTED
+          | Spliterator.DISTINCT
+          | Spliterator.NONNULL;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Comparator<? super Entry<K, V>> getComparator() {
+      if (descending) {
+        return Entry.comparingByKey((Comparator<K>) Collections.reverseOrder());
+      }
+      return (first, second) -> ((Comparable<? super K>) first.getKey()).compareTo(second.getKey());
+    }
+  }
+
+  private class Values extends AbstractCollection<V> {
+
+    private final SubMap range;
+
+    Values(SubMap range) {
+      this.range = range;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return new ValueIterator(range);
+    }
+
+    @Override
+    public int size() {
+      return range.size();
+    }
+
+    @Override
+    public void clear() {
+      range.clear();
+    }
+  }
+
+  private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+    private final SubMap range;
+
+    EntrySet(SubMap range) {
+      this.range = range;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new EntryIterator(range);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+      return range.spliterator();
+    }
+
+    @Override
+    public int size() {
+      return range.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return range.isEmpty();
+    }
+
+    /** @throws IllegalArgumentException if the key is out of the view's range */
+    @Override
+    public boolean add(Entry<K, V> entry) {
+      return range.put(entry.getKey(), entry.getValue()) == null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+
+      Entry<?, ?> entry = (Entry<?, ?>) o;
+      V value = range.get(entry.getKey());
+      return value != null && value.equals(entry.getValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!contains(o)) {
+        return false;
+      }
+
+      range.remove(((Entry<?, ?>) o).getKey());
+      return true;
+    }
+
+    @Override
+    public void clear() {
+      range.clear();
+    }
+  }
+
+  /** Range-checked live view of this map, see {@link TreapMap#subMap(Object, boolean, Object, boolean)} */
+  private class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    private final boolean fromStart;
+    private final K low;
+    private final boolean lowInclusive;
+
+    private final boolean toEnd;
+    private final K high;
+    private final boolean highInclusive;
+
+    private final boolean descending;
+
+    SubMap(
+        boolean fromStart,
+        K low,
+        boolean lowInclusive,
+        boolean toEnd,
+        K high,
+        boolean highInclusive,
+        boolean descending) {
+      if (!fromStart && !toEnd) {
+        if (compare(low, high) > 0) {
+          throw new IllegalArgumentException("fromKey > toKey");
+        }
+      } else if (!fromStart) {
+        compare(low, low);
+      } else if (!toEnd) {
+        compare(high, high);
+      }
+
+      this.fromStart = fromStart;
+      this.low = low;
+      this.lowInclusive = lowInclusive;
+      this.toEnd = toEnd;
+      this.high = high;
+      this.highInclusive = highInclusive;
+      this.descending = descending;
+    }
+
+    private boolean tooLow(K key) {
+      if (fromStart) {
+        return false;
+      }
+
+      int comparison = compare(key, low);
+      return comparison < 0 || (comparison == 0 && !lowInclusive);
+    }
+
+    private boolean tooHigh(K key) {
+      if (toEnd) {
+        return false;
+      }
+
+      int comparison = compare(key, high);
+      return comparison > 0 || (comparison == 0 && !highInclusive);
+    }
+
+    private boolean inRange(K key) {
+      return !tooLow(key) && !tooHigh(key);
+    }
+
+    private boolean inClosedRange(K key) {
+      return (fromStart || compare(key, low) >= 0) && (toEnd || compare(high, key) >= 0);
+    }
+
+    private void checkInRange(K key, boolean inclusive) {
+      if (inclusive ? !inRange(key) : !inClosedRange(key)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+    }
+
+    private int clampHigh(int node) {
+      return node == NIL || tooHigh(key(node)) ? NIL : node;
+    }
+
+    private int clampLow(int node) {
+      return node == NIL || tooLow(key(node)) ? NIL : node;
+    }
+
+    private int absLowest() {
+      return clampHigh(fromStart ? ArrayTreapMap.this.firstNode() : ArrayTreapMap.this.ceilingNode(low, lowInclusive));
+    }
+
+    private int absHighest() {
+      return clampLow(toEnd ? ArrayTreapMap.this.lastNode() : ArrayTreapMap.this.floorNode(high, highInclusive));
+    }
+
+    private int absCeiling(K key, boolean inclusive) {
+      return tooLow(key) ? absLowest() : clampHigh(ArrayTreapMap.this.ceilingNode(key, inclusive));
+    }
+
+    private int absFloor(K key, boolean inclusive) {
+      return tooHigh(key) ? absHighest() : clampLow(ArrayTreapMap.this.floorNode(key, inclusive));
+    }
+
+    private int lowerNode(K key) {
+      return descending ? absCeiling(key, false) : absFloor(key, false);
+    }
+
+    private int floorNode(K key) {
+      return descending ? absCeiling(key, true) : absFloor(key, true);
+    }
+
+    private int ceilingNode(K key) {
+      return descending ? absFloor(key, true) : absCeiling(key, true);
+    }
+
+    private int higherNode(K key) {
+      return descending ? absFloor(key, false) : absCeiling(key, false);
+    }
+
+    private int firstNode() {
+      return descending ? absHighest() : absLowest();
+    }
+
+    private int lastNode() {
+      return descending ? absLowest() : absHighest();
+    }
+
+    private int lowRank() {
+      return fromStart ? 0 : rank(low, !lowInclusive);
+    }
+
+    private int highRank() {
+      return toEnd ? ArrayTreapMap.this.size() : rank(high, highInclusive);
+    }
+
+    private Spliterator<Entry<K, V>> spliterator() {
+      int lowRank = lowRank();
+      int highRank = Math.max(lowRank, highRank());
+      int index = descending ? ArrayTreapMap.this.size() - highRank : lowRank;
+      return new EntrySpliterator(descending, index, index + highRank - lowRank);
+    }
+
+    @Override
+    public int size() {
+      return Math.max(0, highRank() - lowRank());
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return absLowest() == NIL;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(Object key) {
+      return inRange((K) key) && ArrayTreapMap.this.containsKey(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+      if (!inRange((K) key)) {
+        return null;
+      }
+
+      return ArrayTreapMap.this.get(key);
+    }
+
+    /** @throws IllegalArgumentException if the key is out of the view's range */
+    @Override
+    public V put(K key, V value) {
+      if (!inRange(key)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+
+      return ArrayTreapMap.this.put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+      if (!inRange((K) key)) {
+        return null;
+      }
+
+      return ArrayTreapMap.this.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      if (fromStart && toEnd) {
+        ArrayTreapMap.this.clear();
+        return;
+      }
+
+      Iterator<Entry<K, V>> iterator = new EntryIterator(this);
+      while (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+      return entry(lowerNode(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+      return keyOrNull(lowerNode(key));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+      return entry(floorNode(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+      return keyOrNull(floorNode(key));
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+      return entry(ceilingNode(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+      return keyOrNull(ceilingNode(key));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+      return entry(higherNode(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+      return keyOrNull(higherNode(key));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+      return entry(firstNode());
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+      return entry(lastNode());
+    }
+
+    @Override
+    public K firstKey() {
+      return existingKey(firstNode());
+    }
+
+    @Override
+    public K lastKey() {
+      return existingKey(lastNode());
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+      return pollNode(firstNode());
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+      return pollNode(lastNode());
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+      if (fromStart && toEnd && descending) {
+        return ArrayTreapMap.this;
+      }
+
+      return new SubMap(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+      return new NavigableKeySet<>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+      return new NavigableKeySet<>(descendingMap());
+    }
+
+    @Override
+    public Set<K> keySet() {
+      return navigableKeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+      return new Values(this);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      return new EntrySet(this);
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+      checkInRange(fromKey, fromInclusive);
+      checkInRange(toKey, toInclusive);
+      if (descending) {
+        return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+      }
+
+      return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+      checkInRange(toKey, inclusive);
+      if (descending) {
+        return new SubMap(false, toKey, inclusive, toEnd, high, highInclusive, true);
+      }
+
+      return new SubMap(fromStart, low, lowInclusive, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+      checkInRange(fromKey, inclusive);
+      if (descending) {
+        return new SubMap(fromStart, low, lowInclusive, false, fromKey, inclusive, true);
+      }
+
+      return new SubMap(false, fromKey, inclusive, toEnd, high, highInclusive, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+      return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+      return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+      return tailMap(fromKey, true);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return descending ? Collections.reverseOrder() : null;
+    }
+  }
+}
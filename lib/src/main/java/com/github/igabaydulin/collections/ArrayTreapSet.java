@@ -0,0 +1,272 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.Spliterator;
+
+/** Treap set backed by {@link ArrayTreapMap}, which keeps no values for it */
+public class ArrayTreapSet<K> extends AbstractSet<K> implements Treap<K> {
+
+  private final ArrayTreapMap<K, K> treapMap;
+
+  public ArrayTreapSet() {
+    this.treapMap = ArrayTreapMap.keysOnly(new Random());
+  }
+
+  public ArrayTreapSet(long seed) {
+    this.treapMap = ArrayTreapMap.keysOnly(new Random(seed));
+  }
+
+  public ArrayTreapSet(Collection<? extends K> values) {
+    this();
+    addAll(values);
+  }
+
+  private ArrayTreapSet(ArrayTreapMap<K, K> treapMap) {
+    this.treapMap = treapMap;
+  }
+
+  @Override
+  public K get(int index) {
+    return treapMap.getByIndex(index);
+  }
+
+  @Override
+  public int rankOf(K value) {
+    return treapMap.rankOf(value);
+  }
+
+  @Override
+  public int countInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    return treapMap.countInRange(from, fromInclusive, to, toInclusive);
+  }
+
+  @Override
+  public int indexOfFloor(K value) {
+    return treapMap.indexOfFloor(value);
+  }
+
+  @Override
+  public int indexOfCeiling(K value) {
+    return treapMap.indexOfCeiling(value);
+  }
+
+  @Override
+  public List<K> subList(int fromIndex, int toIndex) {
+    return treapMap.keySubList(fromIndex, toIndex);
+  }
+
+  @Override
+  public boolean contains(Object value) {
+    try {
+      return treapMap.containsKey(value);
+    } catch (ClassCastException ex) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean add(K value, double priority) {
+    return treapMap.put(value, value, priority) == null;
+  }
+
+  @Override
+  public boolean add(K value) {
+    return treapMap.put(value, value) == null;
+  }
+
+  @Override
+  public boolean addBack(K[] values, double[] priorities) {
+    return treapMap.putBack(values, values, priorities);
+  }
+
+  @Override
+  public boolean addBack(K[] values) {
+    return treapMap.putBack(values, values);
+  }
+
+  @Override
+  public boolean addFront(K[] values, double[] priorities) {
+    return treapMap.putFront(values, values, priorities);
+  }
+
+  @Override
+  public boolean addFront(K[] values) {
+    return treapMap.putFront(values, values);
+  }
+
+  @Override
+  public boolean remove(Object value) {
+    try {
+      return treapMap.remove(value) != null;
+    } catch (ClassCastException ex) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean union(Treap<K> other) {
+    return treapMap.union(((ArrayTreapSet<K>) other).treapMap, (value, otherValue) -> value);
+  }
+
+  @Override
+  public boolean intersect(Treap<K> other) {
+    return treapMap.intersect(((ArrayTreapSet<K>) other).treapMap);
+  }
+
+  @Override
+  public boolean difference(Treap<K> other) {
+    return treapMap.difference(((ArrayTreapSet<K>) other).treapMap);
+  }
+
+  /** Removes all values in O(1) keeping the arrays, see {@link ArrayTreapMap#clear()} */
+  @Override
+  public void clear() {
+    treapMap.clear();
+  }
+
+  /** Compacts the arrays, see {@link ArrayTreapMap#trimToSize()} */
+  public void trimToSize() {
+    treapMap.trimToSize();
+  }
+
+  @Override
+  public boolean split(K value, Reference<Treap<K>> left, Reference<Treap<K>> right, Inclusion inclusion) {
+    Reference<ValueTreap<K, K>> leftDictionary = new Reference<>();
+    Reference<ValueTreap<K, K>> rightDictionary = new Reference<>();
+
+    boolean contains = treapMap.split(value, leftDictionary, rightDictionary, inclusion);
+    left.set(leftDictionary.get() == null ? null : new ArrayTreapSet<>((ArrayTreapMap<K, K>) leftDictionary.get()));
+    right.set(rightDictionary.get() == null ? null : new ArrayTreapSet<>((ArrayTreapMap<K, K>) rightDictionary.get()));
+
+    return contains;
+  }
+
+  @Override
+  public Treap<K> merge(Treap<K> right) {
+    return new ArrayTreapSet<>(treapMap.merge(((ArrayTreapSet<K>) right).treapMap));
+  }
+
+  @Override
+  public int size() {
+    return treapMap.size();
+  }
+
+  @Override
+  public int height() {
+    return treapMap.height();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return treapMap.isEmpty();
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return treapMap.navigableKeySet().iterator();
+  }
+
+  @Override
+  public Spliterator<K> spliterator() {
+    return treapMap.navigableKeySet().spliterator();
+  }
+
+  @Override
+  public K lower(K k) {
+    return treapMap.lowerKey(k);
+  }
+
+  @Override
+  public K floor(K k) {
+    return treapMap.floorKey(k);
+  }
+
+  @Override
+  public K ceiling(K k) {
+    return treapMap.ceilingKey(k);
+  }
+
+  @Override
+  public K higher(K k) {
+    return treapMap.higherKey(k);
+  }
+
+  @Override
+  public K pollFirst() {
+    return treapMap.navigableKeySet().pollFirst();
+  }
+
+  @Override
+  public K pollLast() {
+    return treapMap.navigableKeySet().pollLast();
+  }
+
+  @Override
+  public NavigableSet<K> descendingSet() {
+    return treapMap.descendingKeySet();
+  }
+
+  @Override
+  public Iterator<K> descendingIterator() {
+    return treapMap.descendingKeySet().iterator();
+  }
+
+  @Override
+  public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+    return treapMap.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+    return treapMap.headMap(toElement, inclusive).navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+    return treapMap.tailMap(fromElement, inclusive).navigableKeySet();
+  }
+
+  @Override
+  public SortedSet<K> subSet(K fromElement, K toElement) {
+    return subSet(fromElement, true, toElement, false);
+  }
+
+  @Override
+  public SortedSet<K> headSet(K toElement) {
+    return headSet(toElement, false);
+  }
+
+  @Override
+  public SortedSet<K> tailSet(K fromElement) {
+    return tailSet(fromElement, true);
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return treapMap.comparator();
+  }
+
+  @Override
+  public K first() {
+    return treapMap.firstKey();
+  }
+
+  @Override
+  public K last() {
+    return treapMap.lastKey();
+  }
+
+  @Override
+  public String toString() {
+    return "ArrayTreapSet{" + "array=" + super.toString() + '}';
+  }
+}
@@ -0,0 +1,731 @@
+package com.github.igabaydulin.collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe navigable map over a {@link PersistentTreapMap}
+ *
+ * <p>The current version of the treap is published through an atomic reference: readers load it and work with an
+ * immutable snapshot, so they never block and never see a partially applied write. Writers build a new version by path
+ * copying and publish it with a compare-and-set, retrying if another writer got there first. Several writes can be
+ * published at once with {@link #update(UnaryOperator)}
+ *
+ * <p>Iterators and spliterators are snapshot-based: they reflect the state of the map at the time they were created
+ * and never throw {@link java.util.ConcurrentModificationException}. Entries returned by the map are immutable
+ *
+ * <p>Sub maps and descending maps are live views sharing the same reference. Null keys and values are not permitted
+ */
+public class ConcurrentTreapMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V> {
+
+  private final AtomicReference<PersistentTreapMap<K, V>> root;
+  private final Comparator<? super K> comparator;
+
+  private final boolean fromStart;
+  private final K low;
+  private final boolean lowInclusive;
+
+  private final boolean toEnd;
+  private final K high;
+  private final boolean highInclusive;
+
+  private final boolean descending;
+
+  public ConcurrentTreapMap() {
+    this(null);
+  }
+
+  public ConcurrentTreapMap(Comparator<? super K> comparator) {
+    this(
+        new AtomicReference<>(PersistentTreapMap.empty(comparator)),
+        comparator,
+        true,
+        null,
+        false,
+        true,
+        null,
+        false,
+        false);
+  }
+
+  private ConcurrentTreapMap(
+      AtomicReference<PersistentTreapMap<K, V>> root,
+      Comparator<? super K> comparator,
+      boolean fromStart,
+      K low,
+      boolean lowInclusive,
+      boolean toEnd,
+      K high,
+      boolean highInclusive,
+      boolean descending) {
+    this.root = root;
+    this.comparator = comparator;
+
+    if (!fromStart && !toEnd) {
+      if (compare(low, high) > 0) {
+        throw new IllegalArgumentException("fromKey > toKey");
+      }
+    } else if (!fromStart) {
+      compare(low, low);
+    } else if (!toEnd) {
+      compare(high, high);
+    }
+
+    this.fromStart = fromStart;
+    this.low = low;
+    this.lowInclusive = lowInclusive;
+    this.toEnd = toEnd;
+    this.high = high;
+    this.highInclusive = highInclusive;
+    this.descending = descending;
+  }
+
+  private ConcurrentTreapMap<K, V> view(
+      boolean fromStart,
+      K low,
+      boolean lowInclusive,
+      boolean toEnd,
+      K high,
+      boolean highInclusive,
+      boolean descending) {
+    return new ConcurrentTreapMap<>(
+        root, comparator, fromStart, low, lowInclusive, toEnd, high, highInclusive, descending);
+  }
+
+  /**
+   * Returns the current version of the map (restricted to the view's range) in O(1) for the whole map and in O(log n)
+   * for a sub map; the returned snapshot is never affected by later writes
+   */
+  public PersistentTreapMap<K, V> snapshot() {
+    return restrict(root.get());
+  }
+
+  /**
+   * Atomically replaces the whole backing map with the result of the function; several writes applied by the function
+   * are published at once, so readers see either all of them or none
+   *
+   * <p>The function may be called several times if other writers interfere, so it must be free of side effects
+   */
+  public void update(UnaryOperator<PersistentTreapMap<K, V>> update) {
+    PersistentTreapMap<K, V> current;
+    PersistentTreapMap<K, V> updated;
+    do {
+      current = root.get();
+      updated = update.apply(current);
+    } while (!root.compareAndSet(current, updated));
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(K key1, K key2) {
+    if (comparator == null) {
+      return ((Comparable<? super K>) key1).compareTo(key2);
+    }
+    return comparator.compare(key1, key2);
+  }
+
+  private boolean tooLow(K key) {
+    if (fromStart) {
+      return false;
+    }
+
+    int comparison = compare(key, low);
+    return comparison < 0 || (comparison == 0 && !lowInclusive);
+  }
+
+  private boolean tooHigh(K key) {
+    if (toEnd) {
+      return false;
+    }
+
+    int comparison = compare(key, high);
+    return comparison > 0 || (comparison == 0 && !highInclusive);
+  }
+
+  private boolean inRange(K key) {
+    return !tooLow(key) && !tooHigh(key);
+  }
+
+  private boolean inClosedRange(K key) {
+    return (fromStart || compare(key, low) >= 0) && (toEnd || compare(high, key) >= 0);
+  }
+
+  private void checkInRange(K key, boolean inclusive) {
+    if (inclusive ? !inRange(key) : !inClosedRange(key)) {
+      throw new IllegalArgumentException("key out of range");
+    }
+  }
+
+  private PersistentTreapMap<K, V> restrict(PersistentTreapMap<K, V> map) {
+    if (!fromStart) {
+      map = map.tailMap(low, lowInclusive);
+    }
+    if (!toEnd) {
+      map = map.headMap(high, highInclusive);
+    }
+    return map;
+  }
+
+  private Entry<K, V> clampHigh(Entry<K, V> entry) {
+    return entry == null || tooHigh(entry.getKey()) ? null : entry;
+  }
+
+  private Entry<K, V> clampLow(Entry<K, V> entry) {
+    return entry == null || tooLow(entry.getKey()) ? null : entry;
+  }
+
+  private Entry<K, V> absLowest(PersistentTreapMap<K, V> map) {
+    if (fromStart) {
+      return clampHigh(map.firstEntry());
+    }
+
+    return clampHigh(lowInclusive ? map.ceilingEntry(low) : map.higherEntry(low));
+  }
+
+  private Entry<K, V> absHighest(PersistentTreapMap<K, V> map) {
+    if (toEnd) {
+      return clampLow(map.lastEntry());
+    }
+
+    return clampLow(highInclusive ? map.floorEntry(high) : map.lowerEntry(high));
+  }
+
+  private Entry<K, V> absCeiling(PersistentTreapMap<K, V> map, K key) {
+    if (tooLow(key)) {
+      return absLowest(map);
+    }
+
+    return clampHigh(map.ceilingEntry(key));
+  }
+
+  private Entry<K, V> absHigher(PersistentTreapMap<K, V> map, K key) {
+    if (tooLow(key)) {
+      return absLowest(map);
+    }
+
+    return clampHigh(map.higherEntry(key));
+  }
+
+  private Entry<K, V> absFloor(PersistentTreapMap<K, V> map, K key) {
+    if (tooHigh(key)) {
+      return absHighest(map);
+    }
+
+    return clampLow(map.floorEntry(key));
+  }
+
+  private Entry<K, V> absLower(PersistentTreapMap<K, V> map, K key) {
+    if (tooHigh(key)) {
+      return absHighest(map);
+    }
+
+    return clampLow(map.lowerEntry(key));
+  }
+
+  private static <K> K key(Entry<K, ?> entry) {
+    return entry == null ? null : entry.getKey();
+  }
+
+  private static <K> K existingKey(Entry<K, ?> entry) {
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+    return entry.getKey();
+  }
+
+  @Override
+  public int size() {
+    PersistentTreapMap<K, V> map = root.get();
+    int lowRank = fromStart ? 0 : map.rank(low, !lowInclusive);
+    int highRank = toEnd ? map.size() : map.rank(high, highInclusive);
+    return Math.max(0, highRank - lowRank);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return absLowest(root.get()) == null;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean containsKey(Object key) {
+    return inRange((K) key) && root.get().containsKey((K) key);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key) {
+    if (!inRange((K) key)) {
+      return null;
+    }
+
+    return root.get().get((K) key);
+  }
+
+  /** @throws IllegalArgumentException if the key is out of the view's range */
+  @Override
+  public V put(K key, V value) {
+    Objects.requireNonNull(value);
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("key out of range");
+    }
+
+    PersistentTreapMap<K, V> current;
+    V previous;
+    do {
+      current = root.get();
+      previous = current.get(key);
+    } while (!root.compareAndSet(current, current.put(key, value)));
+
+    return previous;
+  }
+
+  /** @throws IllegalArgumentException if the key is out of the view's range */
+  @Override
+  public V putIfAbsent(K key, V value) {
+    Objects.requireNonNull(value);
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("key out of range");
+    }
+
+    PersistentTreapMap<K, V> current;
+    do {
+      current = root.get();
+      V previous = current.get(key);
+      if (previous != null) {
+        return previous;
+      }
+    } while (!root.compareAndSet(current, current.put(key, value)));
+
+    return null;
+  }
+
+  /** Publishes all entries of the given map at once */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      Objects.requireNonNull(entry.getValue());
+      if (!inRange(entry.getKey())) {
+        throw new IllegalArgumentException("key out of range");
+      }
+    }
+
+    update(
+        current -> {
+          for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            current = current.put(entry.getKey(), entry.getValue());
+          }
+          return current;
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V remove(Object key) {
+    if (!inRange((K) key)) {
+      return null;
+    }
+
+    PersistentTreapMap<K, V> current;
+    V previous;
+    do {
+      current = root.get();
+      previous = current.get((K) key);
+      if (previous == null) {
+        return null;
+      }
+    } while (!root.compareAndSet(current, current.remove((K) key)));
+
+    return previous;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (value == null || !inRange((K) key)) {
+      return false;
+    }
+
+    PersistentTreapMap<K, V> current;
+    do {
+      current = root.get();
+      if (!value.equals(current.get((K) key))) {
+        return false;
+      }
+    } while (!root.compareAndSet(current, current.remove((K) key)));
+
+    return true;
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    Objects.requireNonNull(oldValue);
+    Objects.requireNonNull(newValue);
+    if (!inRange(key)) {
+      return false;
+    }
+
+    PersistentTreapMap<K, V> current;
+    do {
+      current = root.get();
+      if (!oldValue.equals(current.get(key))) {
+        return false;
+      }
+    } while (!root.compareAndSet(current, current.put(key, newValue)));
+
+    return true;
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    Objects.requireNonNull(value);
+    if (!inRange(key)) {
+      return null;
+    }
+
+    PersistentTreapMap<K, V> current;
+    V previous;
+    do {
+      current = root.get();
+      previous = current.get(key);
+      if (previous == null) {
+        return null;
+      }
+    } while (!root.compareAndSet(current, current.put(key, value)));
+
+    return previous;
+  }
+
+  /** Removes the whole range at once in O(log n) by splitting the current version around it */
+  @Override
+  public void clear() {
+    if (fromStart && toEnd) {
+      root.set(PersistentTreapMap.empty(comparator));
+      return;
+    }
+
+    update(
+        current -> {
+          PersistentTreapMap<K, V> rest = PersistentTreapMap.empty(comparator);
+          if (!fromStart) {
+            rest = current.headMap(low, !lowInclusive);
+          }
+          if (!toEnd) {
+            rest = rest.merge(current.tailMap(high, !highInclusive));
+          }
+          return rest;
+        });
+  }
+
+  @Override
+  public Entry<K, V> lowerEntry(K key) {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absHigher(map, key) : absLower(map, key);
+  }
+
+  @Override
+  public K lowerKey(K key) {
+    return key(lowerEntry(key));
+  }
+
+  @Override
+  public Entry<K, V> floorEntry(K key) {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absCeiling(map, key) : absFloor(map, key);
+  }
+
+  @Override
+  public K floorKey(K key) {
+    return key(floorEntry(key));
+  }
+
+  @Override
+  public Entry<K, V> ceilingEntry(K key) {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absFloor(map, key) : absCeiling(map, key);
+  }
+
+  @Override
+  public K ceilingKey(K key) {
+    return key(ceilingEntry(key));
+  }
+
+  @Override
+  public Entry<K, V> higherEntry(K key) {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absLower(map, key) : absHigher(map, key);
+  }
+
+  @Override
+  public K higherKey(K key) {
+    return key(higherEntry(key));
+  }
+
+  @Override
+  public Entry<K, V> firstEntry() {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absHighest(map) : absLowest(map);
+  }
+
+  @Override
+  public Entry<K, V> lastEntry() {
+    PersistentTreapMap<K, V> map = root.get();
+    return descending ? absLowest(map) : absHighest(map);
+  }
+
+  @Override
+  public K firstKey() {
+    return existingKey(firstEntry());
+  }
+
+  @Override
+  public K lastKey() {
+    return existingKey(lastEntry());
+  }
+
+  @Override
+  public Entry<K, V> pollFirstEntry() {
+    return poll(!descending);
+  }
+
+  @Override
+  public Entry<K, V> pollLastEntry() {
+    return poll(descending);
+  }
+
+  private Entry<K, V> poll(boolean lowest) {
+    PersistentTreapMap<K, V> current;
+    Entry<K, V> entry;
+    do {
+      current = root.get();
+      entry = lowest ? absLowest(current) : absHighest(current);
+      if (entry == null) {
+        return null;
+      }
+    } while (!root.compareAndSet(current, current.remove(entry.getKey())));
+
+    return entry;
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> descendingMap() {
+    return view(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+  }
+
+  @Override
+  public NavigableSet<K> navigableKeySet() {
+    return new NavigableKeySet<>(this);
+  }
+
+  @Override
+  public NavigableSet<K> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> descendingKeySet() {
+    return new NavigableKeySet<>(descendingMap());
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new Values();
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new EntrySet();
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    checkInRange(fromKey, fromInclusive);
+    checkInRange(toKey, toInclusive);
+    if (descending) {
+      return view(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+    }
+
+    return view(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    checkInRange(toKey, inclusive);
+    if (descending) {
+      return view(false, toKey, inclusive, toEnd, high, highInclusive, true);
+    }
+
+    return view(fromStart, low, lowInclusive, false, toKey, inclusive, false);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    checkInRange(fromKey, inclusive);
+    if (descending) {
+      return view(fromStart, low, lowInclusive, false, fromKey, inclusive, true);
+    }
+
+    return view(false, fromKey, inclusive, toEnd, high, highInclusive, false);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> subMap(K fromKey, K toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> headMap(K toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public ConcurrentNavigableMap<K, V> tailMap(K fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    if (!descending) {
+      return comparator;
+    }
+
+    if (comparator == null) {
+      return Collections.reverseOrder();
+    }
+    return Collections.reverseOrder(comparator);
+  }
+
+  /** Iterates over the snapshot taken at creation; removal writes through to the map */
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+
+    private final Iterator<Entry<K, V>> iterator;
+    private Entry<K, V> lastEntry;
+
+    EntryIterator(PersistentTreapMap<K, V> snapshot) {
+      this.iterator = descending ? snapshot.descendingIterator() : snapshot.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      lastEntry = iterator.next();
+      return lastEntry;
+    }
+
+    @Override
+    public void remove() {
+      if (lastEntry == null) {
+        throw new IllegalStateException();
+      }
+
+      ConcurrentTreapMap.this.remove(lastEntry.getKey());
+      lastEntry = null;
+    }
+  }
+
+  private class ValueIterator implements Iterator<V> {
+
+    private final EntryIterator iterator;
+
+    ValueIterator(EntryIterator iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public V next() {
+      return iterator.next().getValue();
+    }
+
+    @Override
+    public void remove() {
+      iterator.remove();
+    }
+  }
+
+  private class Values extends AbstractCollection<V> {
+
+    @Override
+    public Iterator<V> iterator() {
+      return new ValueIterator(new EntryIterator(snapshot()));
+    }
+
+    @Override
+    public Spliterator<V> spliterator() {
+      PersistentTreapMap<K, V> snapshot = snapshot();
+      return Spliterators.spliterator(
+          new ValueIterator(new EntryIterator(snapshot)),
+          snapshot.size(),
+          Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public int size() {
+      return ConcurrentTreapMap.this.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return ConcurrentTreapMap.this.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+      ConcurrentTreapMap.this.clear();
+    }
+  }
+
+  private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new EntryIterator(snapshot());
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+      PersistentTreapMap<K, V> snapshot = snapshot();
+      return Spliterators.spliterator(
+          new EntryIterator(snapshot),
+          snapshot.size(),
+          Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public int size() {
+      return ConcurrentTreapMap.this.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return ConcurrentTreapMap.this.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+      ConcurrentTreapMap.this.clear();
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.TreapMap.Node;
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import java.util.Objects;
+
+/**
+ * Map of half-open intervals {@code [start, end)} to values built on {@link TreapMap}: intervals are ordered by start
+ * (then by end) and every node keeps the maximum end of its subtree as a {@link TreapAggregator}, so the subtrees
+ * whose intervals all end before a query are skipped as a whole
+ *
+ * <p>Overlap and stabbing queries descend only into subtrees holding a matching interval, which takes O(log n + k)
+ * for k matches when they are clustered and O(log n) per match at most; matches are passed to a {@link Visitor}
+ * without collecting them. Intervals starting before a bound are removed or moved to another map in O(log n)
+ */
+public class IntervalTreapMap<K extends Comparable<? super K>, V> {
+
+  private final TreapMap<Interval<K>, V> map;
+
+  public IntervalTreapMap() {
+    this.map = new TreapMap<>(MaxEnd.instance());
+  }
+
+  public IntervalTreapMap(long seed) {
+    this.map = new TreapMap<>(seed, MaxEnd.instance());
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Associates the value with the interval, which replaces the value of an equal interval
+   *
+   * @return the previous value of the interval or null if there was no such interval
+   * @throws IllegalArgumentException if {@code start} is not less than {@code end}
+   */
+  public V put(K start, K end, V value) {
+    return map.put(new Interval<>(start, end), value);
+  }
+
+  public V get(K start, K end) {
+    return map.get(new Interval<>(start, end));
+  }
+
+  public V remove(K start, K end) {
+    return map.remove(new Interval<>(start, end));
+  }
+
+  /** Visits all intervals in ascending order */
+  public void forEach(Visitor<? super K, ? super V> visitor) {
+    map.forEach((interval, value) -> visitor.visit(interval.start, interval.end, value));
+  }
+
+  /**
+   * Visits intervals overlapping {@code [from, to)}, i.e. starting before {@code to} and ending after {@code from}, in
+   * ascending order
+   *
+   * @throws IllegalArgumentException if {@code from} is greater than {@code to}
+   */
+  public void forEachOverlapping(K from, K to, Visitor<? super K, ? super V> visitor) {
+    int comparison = from.compareTo(to);
+    if (comparison > 0) {
+      throw new IllegalArgumentException("from > to");
+    }
+    if (comparison < 0) {
+      visit(map.getRoot(), from, to, false, visitor);
+    }
+  }
+
+  /** Visits intervals containing the point, i.e. starting at or before it and ending after it, in ascending order */
+  public void forEachContaining(K point, Visitor<? super K, ? super V> visitor) {
+    visit(map.getRoot(), point, point, true, visitor);
+  }
+
+  /** Returns the number of intervals overlapping {@code [from, to)}, see {@link #forEachOverlapping} */
+  public int countOverlapping(K from, K to) {
+    int[] count = new int[1];
+    forEachOverlapping(from, to, (start, end, value) -> ++count[0]);
+    return count[0];
+  }
+
+  /**
+   * Visits intervals of the subtree starting before {@code to} (or at it, if {@code toInclusive} is set) and ending
+   * after {@code from}; subtrees whose maximum end is not greater than {@code from} are skipped, and the right spine is
+   * followed in a loop, so the recursion depth is bounded by the height of the treap
+   */
+  @SuppressWarnings("unchecked")
+  private void visit(
+      Node<Interval<K>, V> node, K from, K to, boolean toInclusive, Visitor<? super K, ? super V> visitor) {
+    while (node != null && ((K) TreapMap.aggregateOf(node)).compareTo(from) > 0) {
+      visit(node.getLeft(), from, to, toInclusive, visitor);
+
+      Interval<K> interval = node.getKey();
+      int comparison = interval.start.compareTo(to);
+      if (comparison > 0 || (comparison == 0 && !toInclusive)) {
+        return;
+      }
+      if (interval.end.compareTo(from) > 0) {
+        visitor.visit(interval.start, interval.end, node.getValue());
+      }
+      node = node.getRight();
+    }
+  }
+
+  /** Removes intervals starting before the bound in O(log n) however many they are, e.g. to slide a time window */
+  public void removeStartingBefore(K bound) {
+    map.removeRange(0, countStartingBefore(bound));
+  }
+
+  /**
+   * Moves intervals starting at or after the bound to the {@code right} map in O(log n) by {@link
+   * TreapMap#splitInPlace(Object, TreapMap, Inclusion)}; previous content of the {@code right} map is discarded
+   */
+  public void splitInPlace(K bound, IntervalTreapMap<K, V> right) {
+    int index = countStartingBefore(bound);
+    if (index == size()) {
+      right.clear();
+      return;
+    }
+
+    map.splitInPlace(map.getRoot().getByIndex(index).getKey(), right.map, Inclusion.RIGHT);
+  }
+
+  /**
+   * Moves all intervals of the {@code right} map into this one in O(log n) by {@link TreapMap#mergeInPlace(TreapMap)},
+   * the {@code right} map becomes empty. All intervals of this map must be less than intervals of the {@code right} map
+   */
+  public void mergeInPlace(IntervalTreapMap<K, V> right) {
+    map.mergeInPlace(right.map);
+  }
+
+  /** Returns the number of intervals whose start is less than the bound */
+  private int countStartingBefore(K bound) {
+    int count = 0;
+    Node<Interval<K>, V> node = map.getRoot();
+    while (node != null) {
+      if (node.getKey().start.compareTo(bound) < 0) {
+        count += (node.getLeft() == null ? 0 : node.getLeft().getSize()) + 1;
+        node = node.getRight();
+      } else {
+        node = node.getLeft();
+      }
+    }
+
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return "IntervalTreapMap{" + "map=" + map.entrySet() + '}';
+  }
+
+  /** Consumer of intervals with their values */
+  @FunctionalInterface
+  public interface Visitor<K, V> {
+
+    void visit(K start, K end, V value);
+  }
+
+  /** Key of the map, intervals are compared by start and then by end */
+  static final class Interval<K extends Comparable<? super K>> implements Comparable<Interval<K>> {
+
+    private final K start;
+    private final K end;
+
+    Interval(K start, K end) {
+      if (start.compareTo(end) >= 0) {
+        throw new IllegalArgumentException("start >= end");
+      }
+
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int compareTo(Interval<K> other) {
+      int comparison = start.compareTo(other.start);
+      return comparison != 0 ? comparison : end.compareTo(other.end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Interval<?> interval = (Interval<?>) o;
+      return start.equals(interval.start) && end.equals(interval.end);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + start + ", " + end + ")";
+    }
+  }
+
+  /** Maximum end of intervals, null for no intervals */
+  private static final class MaxEnd<K extends Comparable<? super K>>
+      implements TreapAggregator<Interval<K>, Object, K> {
+
+    private static final MaxEnd<?> INSTANCE = new MaxEnd<>();
+
+    /** Returns the shared instance, maps can be split and merged only if they keep aggregates of the same aggregator */
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>> MaxEnd<K> instance() {
+      return (MaxEnd<K>) INSTANCE;
+    }
+
+    @Override
+    public K identity() {
+      return null;
+    }
+
+    @Override
+    public K lift(Interval<K> interval, Object value) {
+      return interval.end;
+    }
+
+    @Override
+    public K combine(K left, K right) {
+      if (left == null) {
+        return right;
+      } else if (right == null) {
+        return left;
+      }
+      return left.compareTo(right) >= 0 ? left : right;
+    }
+  }
+}
@@ -0,0 +1,420 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Treap map with primitive {@code long} keys and values, see {@link LongObjTreapMap}. As values cannot be null, lookups
+ * take a default value returned for absent keys
+ */
+public class LongLongTreapMap {
+
+  private final Random random;
+  private Node root;
+  /** Holder of subtrees reused by {@link #splitInPlace}, so that in-place splits allocate nothing */
+  private final Node[] splitParts = new Node[2];
+  private int modCount;
+
+  public LongLongTreapMap() {
+    this(new Random());
+  }
+
+  public LongLongTreapMap(long seed) {
+    this(new Random(seed));
+  }
+
+  private LongLongTreapMap(Random random) {
+    this.random = random;
+  }
+
+  public int size() {
+    return size(root);
+  }
+
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  public void clear() {
+    root = null;
+    ++modCount;
+  }
+
+  public boolean containsKey(long key) {
+    return find(key) != null;
+  }
+
+  /** Returns the value of the key or the default value if there is no such key */
+  public long getOrDefault(long key, long defaultValue) {
+    Node node = find(key);
+    return node == null ? defaultValue : node.value;
+  }
+
+  /** Returns the value of the key at the given position in ascending key order */
+  public long getByIndex(int index) {
+    return nodeAt(index).value;
+  }
+
+  /** Returns the key at the given position in ascending key order */
+  public long keyAt(int index) {
+    return nodeAt(index).key;
+  }
+
+  public long firstKey() {
+    if (root == null) {
+      throw new NoSuchElementException();
+    }
+
+    Node node = root;
+    while (node.left != null) {
+      node = node.left;
+    }
+    return node.key;
+  }
+
+  public long lastKey() {
+    if (root == null) {
+      throw new NoSuchElementException();
+    }
+
+    Node node = root;
+    while (node.right != null) {
+      node = node.right;
+    }
+    return node.key;
+  }
+
+  public boolean put(long key, long value) {
+    return put(key, value, random.nextDouble());
+  }
+
+  /** @return true if there was no such key, otherwise the value is replaced */
+  public boolean put(long key, long value, double priority) {
+    Node existing = find(key);
+    if (existing != null) {
+      existing.value = value;
+      return false;
+    }
+
+    Node inserted = new Node(key, value, priority);
+    Node parent = null;
+    boolean isLeft = false;
+    Node node = root;
+    while (node != null && node.priority > inserted.priority) {
+      ++node.size;
+      parent = node;
+      isLeft = node.key > key;
+      node = isLeft ? node.left : node.right;
+    }
+
+    splitInto(node, key, inserted);
+    inserted.updateSize();
+    link(parent, isLeft, inserted);
+    ++modCount;
+    return true;
+  }
+
+  /** @return true if there was such key */
+  public boolean remove(long key) {
+    Node node = find(key);
+    if (node == null) {
+      return false;
+    }
+
+    Node parent = null;
+    boolean isLeft = false;
+    Node current = root;
+    while (current != node) {
+      --current.size;
+      parent = current;
+      isLeft = current.key > key;
+      current = isLeft ? current.left : current.right;
+    }
+
+    link(parent, isLeft, join(node.left, node.right));
+    ++modCount;
+    return true;
+  }
+
+  /**
+   * Splits this map in place by the key: existing nodes are relinked instead of being copied, this map keeps
+   * the keys less than the key and the {@code right} map receives the greater ones; the key itself goes according to
+   * the inclusion. Previous content of the {@code right} map is discarded
+   *
+   * @return true if this map contained the key
+   * @throws IllegalArgumentException if the {@code right} map is this map
+   */
+  public boolean splitInPlace(long key, LongLongTreapMap right, Inclusion inclusion) {
+    if (right == this) {
+      throw new IllegalArgumentException("Map cannot be split into itself");
+    }
+
+    Node[] parts = splitParts;
+    Node middle = splitSubtree(root, key, parts);
+    if (middle != null && inclusion == Inclusion.LEFT) {
+      parts[0] = join(parts[0], middle);
+    } else if (middle != null && inclusion == Inclusion.RIGHT) {
+      parts[1] = join(middle, parts[1]);
+    }
+
+    root = parts[0];
+    right.root = parts[1];
+    parts[0] = null;
+    parts[1] = null;
+    ++modCount;
+    ++right.modCount;
+    return middle != null;
+  }
+
+  /**
+   * Merges the {@code right} map into this one in place by relinking the existing nodes; the {@code right} map becomes
+   * empty. All keys of this map must be less than keys of the {@code right} map
+   *
+   * @throws IllegalArgumentException if the {@code right} map is this map
+   */
+  public void mergeInPlace(LongLongTreapMap right) {
+    if (right == this) {
+      throw new IllegalArgumentException("Map cannot be merged with itself");
+    }
+
+    root = join(root, right.root);
+    right.root = null;
+    ++modCount;
+    ++right.modCount;
+  }
+
+  /** Returns an iterator over keys in ascending order */
+  public PrimitiveIterator.OfLong keyIterator() {
+    return new KeyIterator();
+  }
+
+  /** Returns keys in ascending order */
+  public long[] toKeyArray() {
+    long[] keys = new long[size()];
+    fill(root, keys, 0, true);
+    return keys;
+  }
+
+  /** Returns values in ascending key order */
+  public long[] toValueArray() {
+    long[] values = new long[size()];
+    fill(root, values, 0, false);
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("LongLongTreapMap{");
+    appendTo(root, builder);
+    if (root != null) {
+      builder.setLength(builder.length() - 2);
+    }
+    return builder.append('}').toString();
+  }
+
+  private Node find(long key) {
+    Node node = root;
+    while (node != null && node.key != key) {
+      node = node.key > key ? node.left : node.right;
+    }
+    return node;
+  }
+
+  /** Returns the number of keys less than the key or, if inclusive, not greater than it */
+  int rank(long key, boolean inclusive) {
+    int rank = 0;
+    Node node = root;
+    while (node != null) {
+      if (node.key < key || (inclusive && node.key == key)) {
+        rank += size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return rank;
+  }
+
+  private Node nodeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    Node node = root;
+    while (true) {
+      int leftSize = size(node.left);
+      if (leftSize == index) {
+        return node;
+      } else if (leftSize > index) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  private void link(Node parent, boolean isLeft, Node child) {
+    if (parent == null) {
+      root = child;
+    } else if (isLeft) {
+      parent.left = child;
+    } else {
+      parent.right = child;
+    }
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /** Splits the subtree by the absent key in place, the halves become children of the target node */
+  private static void splitInto(Node node, long key, Node target) {
+    if (node == null) {
+      target.left = null;
+      target.right = null;
+    } else if (node.key < key) {
+      splitInto(node.right, key, target);
+      node.right = target.left;
+      node.updateSize();
+      target.left = node;
+    } else {
+      splitInto(node.left, key, target);
+      node.left = target.right;
+      node.updateSize();
+      target.right = node;
+    }
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree must be less than keys of the right one */
+  private static Node join(Node left, Node right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      left.right = join(left.right, right);
+      left.updateSize();
+      return left;
+    }
+
+    right.left = join(left, right.left);
+    right.updateSize();
+    return right;
+  }
+
+  /**
+   * Splits the subtree by the key in place into the keys less than the key ({@code parts[0]}) and greater than the key
+   * ({@code parts[1]})
+   *
+   * @return the detached node of the key or null if there is no such node
+   */
+  private static Node splitSubtree(Node node, long key, Node[] parts) {
+    if (node == null) {
+      parts[0] = null;
+      parts[1] = null;
+      return null;
+    }
+
+    if (node.key < key) {
+      Node middle = splitSubtree(node.right, key, parts);
+      node.right = parts[0];
+      node.updateSize();
+      parts[0] = node;
+      return middle;
+    } else if (node.key > key) {
+      Node middle = splitSubtree(node.left, key, parts);
+      node.left = parts[1];
+      node.updateSize();
+      parts[1] = node;
+      return middle;
+    }
+
+    parts[0] = node.left;
+    parts[1] = node.right;
+    node.left = null;
+    node.right = null;
+    node.updateSize();
+    return node;
+  }
+
+  private static int fill(Node node, long[] array, int index, boolean keys) {
+    for (; node != null; node = node.right) {
+      index = fill(node.left, array, index, keys);
+      array[index++] = keys ? node.key : node.value;
+    }
+    return index;
+  }
+
+  private static void appendTo(Node node, StringBuilder builder) {
+    for (; node != null; node = node.right) {
+      appendTo(node.left, builder);
+      builder.append(node.key).append('=').append(node.value).append(", ");
+    }
+  }
+
+  private static final class Node {
+
+    private final long key;
+    private final float priority;
+    private long value;
+
+    private Node left;
+    private Node right;
+    private int size;
+
+    Node(long key, long value, double priority) {
+      this.key = key;
+      this.value = value;
+      this.priority = (float) priority;
+      this.size = 1;
+    }
+
+    void updateSize() {
+      size = 1 + size(left) + size(right);
+    }
+  }
+
+  /** In-order cursor over keys keeping pending ancestors on a stack */
+  private class KeyIterator implements PrimitiveIterator.OfLong {
+
+    private final Deque<Node> stack = new ArrayDeque<>();
+    private final int expectedModCount = modCount;
+
+    KeyIterator() {
+      pushPath(root);
+    }
+
+    private void pushPath(Node node) {
+      for (; node != null; node = node.left) {
+        stack.push(node);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public long nextLong() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node node = stack.pop();
+      pushPath(node.right);
+      return node.key;
+    }
+  }
+}
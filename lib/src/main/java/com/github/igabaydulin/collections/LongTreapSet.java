@@ -0,0 +1,388 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Treap set of primitive {@code long} values, see {@link LongObjTreapMap}. Values are stored unboxed in nodes, so
+ * neither lookups nor insertions box values, and iteration goes through {@link PrimitiveIterator.OfLong}
+ */
+public class LongTreapSet implements Iterable<Long> {
+
+  private final Random random;
+  private Node root;
+  /** Holder of subtrees reused by {@link #splitInPlace}, so that in-place splits allocate nothing */
+  private final Node[] splitParts = new Node[2];
+  private int modCount;
+
+  public LongTreapSet() {
+    this(new Random());
+  }
+
+  public LongTreapSet(long seed) {
+    this(new Random(seed));
+  }
+
+  private LongTreapSet(Random random) {
+    this.random = random;
+  }
+
+  public int size() {
+    return size(root);
+  }
+
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  public void clear() {
+    root = null;
+    ++modCount;
+  }
+
+  public boolean contains(long value) {
+    return find(value) != null;
+  }
+
+  /** Returns the value at the given position in ascending order */
+  public long get(int index) {
+    return nodeAt(index).key;
+  }
+
+  public long first() {
+    if (root == null) {
+      throw new NoSuchElementException();
+    }
+
+    Node node = root;
+    while (node.left != null) {
+      node = node.left;
+    }
+    return node.key;
+  }
+
+  public long last() {
+    if (root == null) {
+      throw new NoSuchElementException();
+    }
+
+    Node node = root;
+    while (node.right != null) {
+      node = node.right;
+    }
+    return node.key;
+  }
+
+  public boolean add(long value) {
+    return add(value, random.nextDouble());
+  }
+
+  /** @return true if there was no such value */
+  public boolean add(long value, double priority) {
+    if (find(value) != null) {
+      return false;
+    }
+
+    Node inserted = new Node(value, priority);
+    Node parent = null;
+    boolean isLeft = false;
+    Node node = root;
+    while (node != null && node.priority > inserted.priority) {
+      ++node.size;
+      parent = node;
+      isLeft = node.key > value;
+      node = isLeft ? node.left : node.right;
+    }
+
+    splitInto(node, value, inserted);
+    inserted.updateSize();
+    link(parent, isLeft, inserted);
+    ++modCount;
+    return true;
+  }
+
+  /** @return true if there was such value */
+  public boolean remove(long value) {
+    Node node = find(value);
+    if (node == null) {
+      return false;
+    }
+
+    Node parent = null;
+    boolean isLeft = false;
+    Node current = root;
+    while (current != node) {
+      --current.size;
+      parent = current;
+      isLeft = current.key > value;
+      current = isLeft ? current.left : current.right;
+    }
+
+    link(parent, isLeft, join(node.left, node.right));
+    ++modCount;
+    return true;
+  }
+
+  /**
+   * Splits this set in place by the value: existing nodes are relinked instead of being copied, this set keeps the
+   * values less than the value and the {@code right} set receives the greater ones; the value itself goes according
+   * to the inclusion. Previous content of the {@code right} set is discarded
+   *
+   * @return true if this set contained the value
+   * @throws IllegalArgumentException if the {@code right} set is this set
+   */
+  public boolean splitInPlace(long value, LongTreapSet right, Inclusion inclusion) {
+    if (right == this) {
+      throw new IllegalArgumentException("Set cannot be split into itself");
+    }
+
+    Node[] parts = splitParts;
+    Node middle = splitSubtree(root, value, parts);
+    if (middle != null && inclusion == Inclusion.LEFT) {
+      parts[0] = join(parts[0], middle);
+    } else if (middle != null && inclusion == Inclusion.RIGHT) {
+      parts[1] = join(middle, parts[1]);
+    }
+
+    root = parts[0];
+    right.root = parts[1];
+    parts[0] = null;
+    parts[1] = null;
+    ++modCount;
+    ++right.modCount;
+    return middle != null;
+  }
+
+  /**
+   * Merges the {@code right} set into this one in place by relinking the existing nodes; the {@code right} set becomes
+   * empty. All values of this set must be less than values of the {@code right} set
+   *
+   * @throws IllegalArgumentException if the {@code right} set is this set
+   */
+  public void mergeInPlace(LongTreapSet right) {
+    if (right == this) {
+      throw new IllegalArgumentException("Set cannot be merged with itself");
+    }
+
+    root = join(root, right.root);
+    right.root = null;
+    ++modCount;
+    ++right.modCount;
+  }
+
+  /** Returns an iterator over values in ascending order */
+  @Override
+  public PrimitiveIterator.OfLong iterator() {
+    return new ValueIterator();
+  }
+
+  /** Returns values in ascending order */
+  public long[] toArray() {
+    long[] values = new long[size()];
+    fill(root, values, 0);
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return "LongTreapSet{" + "array=" + Arrays.toString(toArray()) + '}';
+  }
+
+  private Node find(long key) {
+    Node node = root;
+    while (node != null && node.key != key) {
+      node = node.key > key ? node.left : node.right;
+    }
+    return node;
+  }
+
+  /** Returns the number of values less than the key or, if inclusive, not greater than it */
+  int rank(long key, boolean inclusive) {
+    int rank = 0;
+    Node node = root;
+    while (node != null) {
+      if (node.key < key || (inclusive && node.key == key)) {
+        rank += size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return rank;
+  }
+
+  private Node nodeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    Node node = root;
+    while (true) {
+      int leftSize = size(node.left);
+      if (leftSize == index) {
+        return node;
+      } else if (leftSize > index) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  private void link(Node parent, boolean isLeft, Node child) {
+    if (parent == null) {
+      root = child;
+    } else if (isLeft) {
+      parent.left = child;
+    } else {
+      parent.right = child;
+    }
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /** Splits the subtree by the absent key in place, the halves become children of the target node */
+  private static void splitInto(Node node, long key, Node target) {
+    if (node == null) {
+      target.left = null;
+      target.right = null;
+    } else if (node.key < key) {
+      splitInto(node.right, key, target);
+      node.right = target.left;
+      node.updateSize();
+      target.left = node;
+    } else {
+      splitInto(node.left, key, target);
+      node.left = target.right;
+      node.updateSize();
+      target.right = node;
+    }
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree must be less than keys of the right one */
+  private static Node join(Node left, Node right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      left.right = join(left.right, right);
+      left.updateSize();
+      return left;
+    }
+
+    right.left = join(left, right.left);
+    right.updateSize();
+    return right;
+  }
+
+  /**
+   * Splits the subtree by the key in place into the values less than the key ({@code parts[0]}) and greater than the
+   * key ({@code parts[1]})
+   *
+   * @return the detached node of the key or null if there is no such node
+   */
+  private static Node splitSubtree(Node node, long key, Node[] parts) {
+    if (node == null) {
+      parts[0] = null;
+      parts[1] = null;
+      return null;
+    }
+
+    if (node.key < key) {
+      Node middle = splitSubtree(node.right, key, parts);
+      node.right = parts[0];
+      node.updateSize();
+      parts[0] = node;
+      return middle;
+    } else if (node.key > key) {
+      Node middle = splitSubtree(node.left, key, parts);
+      node.left = parts[1];
+      node.updateSize();
+      parts[1] = node;
+      return middle;
+    }
+
+    parts[0] = node.left;
+    parts[1] = node.right;
+    node.left = null;
+    node.right = null;
+    node.updateSize();
+    return node;
+  }
+
+  private static int fill(Node node, long[] array, int index) {
+    for (; node != null; node = node.right) {
+      index = fill(node.left, array, index);
+      array[index++] = node.key;
+    }
+    return index;
+  }
+
+  private static final class Node {
+
+    private final long key;
+    private final float priority;
+
+    private Node left;
+    private Node right;
+    private int size;
+
+    Node(long key, double priority) {
+      this.key = key;
+      this.priority = (float) priority;
+      this.size = 1;
+    }
+
+    void updateSize() {
+      size = 1 + size(left) + size(right);
+    }
+  }
+
+  /** In-order cursor over values keeping pending ancestors on a stack */
+  private class ValueIterator implements PrimitiveIterator.OfLong {
+
+    private final Deque<Node> stack = new ArrayDeque<>();
+    private final int expectedModCount = modCount;
+
+    ValueIterator() {
+      pushPath(root);
+    }
+
+    private void pushPath(Node node) {
+      for (; node != null; node = node.left) {
+        stack.push(node);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public long nextLong() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node node = stack.pop();
+      pushPath(node.right);
+      return node.key;
+    }
+  }
+}
@@ -0,0 +1,462 @@
+package com.github.igabaydulin.collections;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SortedMap;
+
+/**
+ * Map of primitive {@code long} keys and values read from a memory-mapped file, see {@link LongLongTreapMap}. Opening
+ * the file only maps it, lookups read the mapped pages without deserializing them
+ *
+ * <p>The file holds a 16-byte header (magic, version and size) followed by 16-byte key-value records in ascending key
+ * order, written once from an in-order traversal by {@link #write(Path, SortedMap)} or {@link #save(Path)}. The records
+ * form an implicit perfectly balanced search tree, so a lookup is a binary search and {@link #getByIndex} reads the
+ * record at the position directly
+ *
+ * <p>The file is never modified: updates go to in-heap overlay treaps of added keys, updated values and removed keys,
+ * and every query merges the file with them. The overlay is merged back by {@link #save(Path)}, which writes the whole
+ * map into a new file in one pass, after which the new file is opened instead
+ */
+public class MappedLongLongTreapMap implements AutoCloseable {
+
+  private static final int MAGIC = 0x54524550;
+  private static final int VERSION = 1;
+  private static final int HEADER = 16;
+
+  private static final int RECORD_SHIFT = 4;
+  private static final int VALUE = 8;
+  /** A mapping holds 2^26 records (1 GB), the last one is shorter */
+  private static final int CHUNK_SHIFT = 26;
+  private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+  private ByteBuffer[] chunks;
+  private final int fileSize;
+
+  /** Entries with keys absent from the file */
+  private final LongLongTreapMap added = new LongLongTreapMap();
+  /** New values of keys present in the file */
+  private final LongLongTreapMap updated = new LongLongTreapMap();
+  /** Keys removed from the file */
+  private final LongTreapSet removed = new LongTreapSet();
+
+  private int size;
+  private int modCount;
+
+  private MappedLongLongTreapMap(ByteBuffer[] chunks, int fileSize) {
+    this.chunks = chunks;
+    this.fileSize = fileSize;
+    this.size = fileSize;
+  }
+
+  /** Maps the file written by {@link #write(Path, SortedMap)} or {@link #save(Path)} */
+  public static MappedLongLongTreapMap open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // reads the whole header
+      }
+      header.flip();
+      if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new IOException("Not a treap file: " + path);
+      }
+
+      long size = header.getLong();
+      if (size < 0 || size > Integer.MAX_VALUE || channel.size() != HEADER + (size << RECORD_SHIFT)) {
+        throw new IOException("Corrupted treap file: " + path);
+      }
+
+      ByteBuffer[] chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+      for (int i = 0; i < chunks.length; ++i) {
+        long first = (long) i << CHUNK_SHIFT;
+        long records = Math.min(size - first, 1L << CHUNK_SHIFT);
+        chunks[i] = channel.map(MapMode.READ_ONLY, HEADER + (first << RECORD_SHIFT), records << RECORD_SHIFT);
+      }
+      return new MappedLongLongTreapMap(chunks, (int) size);
+    }
+  }
+
+  /**
+   * Writes the map into the file in the format read by {@link #open(Path)}
+   *
+   * @throws IllegalArgumentException if the map does not iterate keys in strictly ascending order
+   */
+  public static void write(Path path, SortedMap<Long, Long> map) throws IOException {
+    try (DataOutputStream output = newOutput(path, map.size())) {
+      boolean first = true;
+      long previous = 0;
+      for (Entry<Long, Long> entry : map.entrySet()) {
+        long key = entry.getKey();
+        if (!first && previous >= key) {
+          throw new IllegalArgumentException("Keys are not in strictly ascending order");
+        }
+        output.writeLong(key);
+        output.writeLong(entry.getValue());
+        first = false;
+        previous = key;
+      }
+    }
+  }
+
+  private static DataOutputStream newOutput(Path path, int size) throws IOException {
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeLong(size);
+    return output;
+  }
+
+  /**
+   * Writes this map with its overlay merged into the file, which can be opened instead of the current one. The records
+   * are written to a temporary sibling file, which is then atomically moved into place, so the path may be the file
+   * this map is opened from: its mapping keeps reading the replaced file until the map is closed
+   */
+  public void save(Path path) throws IOException {
+    checkOpen();
+    Path target = path.toAbsolutePath();
+    Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output = newOutput(temporary, size)) {
+        Cursor cursor = new Cursor(0, fileSize, 0, added.size());
+        while (cursor.next()) {
+          output.writeLong(cursor.key);
+          output.writeLong(cursor.value);
+        }
+      }
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /** Unmaps the file right away if the runtime allows it, otherwise the mapping is left to the garbage collector */
+  @Override
+  public void close() {
+    if (chunks == null) {
+      return;
+    }
+
+    for (ByteBuffer chunk : chunks) {
+      OffHeapLongLongTreapMap.free(chunk);
+    }
+    chunks = null;
+    ++modCount;
+  }
+
+  private void checkOpen() {
+    if (chunks == null) {
+      throw new IllegalStateException("Map is closed");
+    }
+  }
+
+  private long fileKey(int position) {
+    return chunks[position >>> CHUNK_SHIFT].getLong((position & CHUNK_MASK) << RECORD_SHIFT);
+  }
+
+  private long fileValue(int position) {
+    return chunks[position >>> CHUNK_SHIFT].getLong(((position & CHUNK_MASK) << RECORD_SHIFT) + VALUE);
+  }
+
+  /** Returns the position of the key in the file or {@code -(insertion point) - 1}, see {@link java.util.Arrays} */
+  private int search(long key) {
+    int low = 0;
+    int high = fileSize - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long middleKey = fileKey(middle);
+      if (middleKey < key) {
+        low = middle + 1;
+      } else if (middleKey > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /** Returns the number of file keys less than the key which are not removed */
+  private int survivorsBefore(long key) {
+    int position = search(key);
+    return (position < 0 ? -position - 1 : position) - removed.rank(key, false);
+  }
+
+  public int size() {
+    checkOpen();
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean containsKey(long key) {
+    checkOpen();
+    return search(key) >= 0 ? !removed.contains(key) : added.containsKey(key);
+  }
+
+  /** Returns the value of the key or the default value if there is no such key */
+  public long getOrDefault(long key, long defaultValue) {
+    checkOpen();
+    int position = search(key);
+    if (position < 0) {
+      return added.getOrDefault(key, defaultValue);
+    } else if (removed.contains(key)) {
+      return defaultValue;
+    }
+    return updated.getOrDefault(key, fileValue(position));
+  }
+
+  /** Returns the value of the key at the given position in ascending key order */
+  public long getByIndex(int index) {
+    int position = locate(index);
+    if (position < 0) {
+      return added.getByIndex(-position - 1);
+    }
+    return updated.getOrDefault(fileKey(position), fileValue(position));
+  }
+
+  /** Returns the key at the given position in ascending key order */
+  public long keyAt(int index) {
+    int position = locate(index);
+    return position >= 0 ? fileKey(position) : added.keyAt(-position - 1);
+  }
+
+  public long firstKey() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return keyAt(0);
+  }
+
+  public long lastKey() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return keyAt(size - 1);
+  }
+
+  /** Returns the greatest key not greater than the key or the default key if there is no such key */
+  public long floorKey(long key, long defaultKey) {
+    checkOpen();
+    int rank = survivorsBefore(key) + added.rank(key, false) + (containsKey(key) ? 1 : 0);
+    return rank == 0 ? defaultKey : keyAt(rank - 1);
+  }
+
+  /** Returns the least key not less than the key or the default key if there is no such key */
+  public long ceilingKey(long key, long defaultKey) {
+    checkOpen();
+    int rank = survivorsBefore(key) + added.rank(key, false);
+    return rank == size ? defaultKey : keyAt(rank);
+  }
+
+  /** @return true if there was no such key, otherwise the value is replaced */
+  public boolean put(long key, long value) {
+    checkOpen();
+    boolean inserted;
+    if (search(key) < 0) {
+      inserted = added.put(key, value);
+    } else {
+      updated.put(key, value);
+      inserted = removed.remove(key);
+    }
+
+    if (inserted) {
+      ++size;
+      ++modCount;
+    }
+    return inserted;
+  }
+
+  /** @return true if there was such key */
+  public boolean remove(long key) {
+    checkOpen();
+    boolean contained;
+    if (search(key) < 0) {
+      contained = added.remove(key);
+    } else {
+      contained = removed.add(key);
+      updated.remove(key);
+    }
+
+    if (contained) {
+      --size;
+      ++modCount;
+    }
+    return contained;
+  }
+
+  /** Passes the entries to the action in ascending key order */
+  public void forEach(EntryConsumer action) {
+    checkOpen();
+    Cursor cursor = new Cursor(0, fileSize, 0, added.size());
+    while (cursor.next()) {
+      action.accept(cursor.key, cursor.value);
+    }
+  }
+
+  /** Passes the entries with keys from {@code fromKey} inclusive to {@code toKey} exclusive in ascending key order */
+  public void forEach(long fromKey, long toKey, EntryConsumer action) {
+    checkOpen();
+    if (fromKey >= toKey) {
+      return;
+    }
+
+    int from = search(fromKey);
+    int to = search(toKey);
+    Cursor cursor =
+        new Cursor(
+            from < 0 ? -from - 1 : from,
+            to < 0 ? -to - 1 : to,
+            added.rank(fromKey, false),
+            added.rank(toKey, false));
+    while (cursor.next()) {
+      action.accept(cursor.key, cursor.value);
+    }
+  }
+
+  /** Returns an iterator over keys in ascending order */
+  public PrimitiveIterator.OfLong keyIterator() {
+    checkOpen();
+    return new KeyIterator();
+  }
+
+  @Override
+  public String toString() {
+    if (chunks == null) {
+      return "MappedLongLongTreapMap{closed}";
+    }
+
+    StringBuilder builder = new StringBuilder("MappedLongLongTreapMap{");
+    forEach((key, value) -> builder.append(key).append('=').append(value).append(", "));
+    if (size > 0) {
+      builder.setLength(builder.length() - 2);
+    }
+    return builder.append('}').toString();
+  }
+
+  /**
+   * Returns the file position of the entry at the index in ascending key order, or {@code -j - 1} if it is the j-th
+   * added entry. Ranks of the added keys in the map grow with their indices, so the number of added keys before the
+   * entry is found by a binary search over them; the file position of the entry is then found by a binary search over
+   * the file, skipping removed keys
+   */
+  private int locate(int index) {
+    checkOpen();
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int low = 0;
+    int high = added.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int rank = middle + survivorsBefore(added.keyAt(middle));
+      if (rank == index) {
+        return -middle - 1;
+      } else if (rank < index) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    // the entry is the survivor-th file key which is not removed, find the least position followed by more survivors
+    int survivor = index - low;
+    low = 1;
+    high = fileSize;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (middle - removed.rank(fileKey(middle), false) > survivor) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low - 1;
+  }
+
+  /** Consumer of primitive key-value pairs */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(long key, long value);
+  }
+
+  /** Merges a range of file positions with a range of added entries skipping removed keys */
+  private class Cursor {
+
+    private int position;
+    private final int end;
+    private int addedIndex;
+    private final int addedEnd;
+
+    private long key;
+    private long value;
+
+    Cursor(int position, int end, int addedIndex, int addedEnd) {
+      this.position = position;
+      this.end = end;
+      this.addedIndex = addedIndex;
+      this.addedEnd = addedEnd;
+    }
+
+    boolean next() {
+      while (position < end && !removed.isEmpty() && removed.contains(fileKey(position))) {
+        ++position;
+      }
+
+      if (addedIndex < addedEnd && (position == end || added.keyAt(addedIndex) < fileKey(position))) {
+        key = added.keyAt(addedIndex);
+        value = added.getByIndex(addedIndex++);
+        return true;
+      } else if (position < end) {
+        key = fileKey(position);
+        value = updated.isEmpty() ? fileValue(position) : updated.getOrDefault(key, fileValue(position));
+        ++position;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private class KeyIterator implements PrimitiveIterator.OfLong {
+
+    private final Cursor cursor = new Cursor(0, fileSize, 0, added.size());
+    private final int expectedModCount = modCount;
+    private boolean ready;
+    private boolean hasNext;
+
+    @Override
+    public boolean hasNext() {
+      if (!ready) {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        hasNext = cursor.next();
+        ready = true;
+      }
+      return hasNext;
+    }
+
+    @Override
+    public long nextLong() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      return cursor.key;
+    }
+  }
+}
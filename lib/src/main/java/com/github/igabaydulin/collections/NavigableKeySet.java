@@ -0,0 +1,233 @@
+package com.github.igabaydulin.collections;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Navigable set of keys backed by a {@link NavigableMap}: changes of the map are reflected in the set and vice versa
+ *
+ * <p>Keys cannot be added through the set (otherwise value would be undefined), {@link #add(Object)} throws {@link
+ * UnsupportedOperationException}
+ */
+class NavigableKeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+
+  private final NavigableMap<K, ?> map;
+
+  NavigableKeySet(NavigableMap<K, ?> map) {
+    this.map = map;
+  }
+
+  @Override
+  public K lower(K k) {
+    return map.lowerKey(k);
+  }
+
+  @Override
+  public K floor(K k) {
+    return map.floorKey(k);
+  }
+
+  @Override
+  public K ceiling(K k) {
+    return map.ceilingKey(k);
+  }
+
+  @Override
+  public K higher(K k) {
+    return map.higherKey(k);
+  }
+
+  @Override
+  public K pollFirst() {
+    Entry<K, ?> entry = map.pollFirstEntry();
+    if (entry == null) {
+      return null;
+    }
+    return entry.getKey();
+  }
+
+  @Override
+  public K pollLast() {
+    Entry<K, ?> entry = map.pollLastEntry();
+    if (entry == null) {
+      return null;
+    }
+    return entry.getKey();
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return new KeyIterator<>(map.entrySet().iterator());
+  }
+
+  @Override
+  public Iterator<K> descendingIterator() {
+    return new KeyIterator<>(map.descendingMap().entrySet().iterator());
+  }
+
+  @Override
+  public Spliterator<K> spliterator() {
+    return new KeySpliterator<>(map.entrySet().spliterator(), map.comparator());
+  }
+
+  @Override
+  public NavigableSet<K> descendingSet() {
+    return new NavigableKeySet<>(map.descendingMap());
+  }
+
+  @Override
+  public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+    return new NavigableKeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+  }
+
+  @Override
+  public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+    return new NavigableKeySet<>(map.headMap(toElement, inclusive));
+  }
+
+  @Override
+  public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+    return new NavigableKeySet<>(map.tailMap(fromElement, inclusive));
+  }
+
+  @Override
+  public SortedSet<K> subSet(K fromElement, K toElement) {
+    return subSet(fromElement, true, toElement, false);
+  }
+
+  @Override
+  public SortedSet<K> headSet(K toElement) {
+    return headSet(toElement, false);
+  }
+
+  @Override
+  public SortedSet<K> tailSet(K fromElement) {
+    return tailSet(fromElement, true);
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return map.comparator();
+  }
+
+  @Override
+  public K first() {
+    return map.firstKey();
+  }
+
+  @Override
+  public K last() {
+    return map.lastKey();
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return map.containsKey(o);
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!map.containsKey(o)) {
+      return false;
+    }
+
+    map.remove(o);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  private static class KeyIterator<K> implements Iterator<K> {
+
+    private final Iterator<? extends Entry<K, ?>> entryIterator;
+
+    KeyIterator(Iterator<? extends Entry<K, ?>> entryIterator) {
+      this.entryIterator = entryIterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entryIterator.hasNext();
+    }
+
+    @Override
+    public K next() {
+      return entryIterator.next().getKey();
+    }
+
+    @Override
+    public void remove() {
+      entryIterator.remove();
+    }
+  }
+
+  private static class KeySpliterator<K> implements Spliterator<K> {
+
+    private final Spliterator<? extends Entry<K, ?>> entrySpliterator;
+    private final Comparator<? super K> comparator;
+
+    KeySpliterator(Spliterator<? extends Entry<K, ?>> entrySpliterator, Comparator<? super K> comparator) {
+      this.entrySpliterator = entrySpliterator;
+      this.comparator = comparator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super K> action) {
+      return entrySpliterator.tryAdvance(entry -> action.accept(entry.getKey()));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super K> action) {
+      entrySpliterator.forEachRemaining(entry -> action.accept(entry.getKey()));
+    }
+
+    @Override
+    public Spliterator<K> trySplit() {
+      Spliterator<? extends Entry<K, ?>> prefix = entrySpliterator.trySplit();
+      if (prefix == null) {
+        return null;
+      }
+
+      return new KeySpliterator<>(prefix, comparator);
+    }
+
+    @Override
+    public long estimateSize() {
+      return entrySpliterator.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return entrySpliterator.characteristics();
+    }
+
+    @Override
+    public Comparator<? super K> getComparator() {
+      if (hasCharacteristics(Spliterator.SORTED)) {
+        return comparator;
+      }
+
+      throw new IllegalStateException();
+    }
+  }
+}
@@ -0,0 +1,621 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Treap map with primitive {@code long} keys and values whose nodes live off heap, see {@link LongLongTreapMap}. Nodes
+ * are {@code int} indices into direct {@link ByteBuffer} slabs, so the garbage collector sees a few dozen objects at
+ * most however large the map is
+ *
+ * <p>A node takes 32 bytes: key, value, left and right child indices, subtree size and priority. Slabs double in size
+ * from 32 KB up to 1 GB, then 1 GB slabs are added; removed nodes are reused through a free list. The memory is
+ * released by {@link #close()}, after which the map cannot be used; {@link #clear()} keeps it for reuse
+ *
+ * <p>Two maps cannot share nodes, so {@link #split} and {@link #merge} copy the nodes into new maps in O(n), keeping
+ * their priorities; the new maps have to be closed as well
+ */
+public class OffHeapLongLongTreapMap implements AutoCloseable {
+
+  private static final int NIL = 0;
+
+  private static final int NODE_SHIFT = 5;
+  private static final int KEY = 0;
+  private static final int VALUE = 8;
+  private static final int LEFT = 16;
+  private static final int RIGHT = 20;
+  private static final int SIZE = 24;
+  private static final int PRIORITY = 28;
+
+  /** The first slab holds 2^10 nodes, every next one is twice as large up to 2^25 nodes (1 GB) */
+  private static final int FIRST_SHIFT = 10;
+  private static final int LAST_SHIFT = 25;
+  private static final int MAX_NODES = Integer.MAX_VALUE - (1 << FIRST_SHIFT);
+
+  private static final Consumer<ByteBuffer> FREE = freeFunction();
+
+  private final Random random;
+  private ByteBuffer[] slabs;
+  private int capacity;
+
+  private int root = NIL;
+  /** The first index which has never been allocated */
+  private int top = 1;
+  /** The head of the list of released indices linked through right children */
+  private int free = NIL;
+  private int modCount;
+
+  public OffHeapLongLongTreapMap() {
+    this(new Random());
+  }
+
+  public OffHeapLongLongTreapMap(long seed) {
+    this(new Random(seed));
+  }
+
+  private OffHeapLongLongTreapMap(Random random) {
+    this.random = random;
+    this.slabs = new ByteBuffer[4];
+    addSlab();
+  }
+
+  /** Returns the slab of the node, see {@link #FIRST_SHIFT} */
+  private static int slabOf(int node) {
+    int n = node + (1 << FIRST_SHIFT);
+    if (n < 1 << LAST_SHIFT) {
+      return 31 - Integer.numberOfLeadingZeros(n) - FIRST_SHIFT;
+    }
+    return LAST_SHIFT - FIRST_SHIFT - 1 + (n >>> LAST_SHIFT);
+  }
+
+  /** Returns the offset of the node in its slab */
+  private static int offsetOf(int node) {
+    int n = node + (1 << FIRST_SHIFT);
+    if (n < 1 << LAST_SHIFT) {
+      return (n ^ Integer.highestOneBit(n)) << NODE_SHIFT;
+    }
+    return (n & ((1 << LAST_SHIFT) - 1)) << NODE_SHIFT;
+  }
+
+  private void addSlab() {
+    int slab = slabOf(capacity);
+    if (slab == slabs.length) {
+      slabs = Arrays.copyOf(slabs, slab * 2);
+    }
+
+    int nodes = 1 << Math.min(FIRST_SHIFT + slab, LAST_SHIFT);
+    slabs[slab] = ByteBuffer.allocateDirect(nodes << NODE_SHIFT).order(ByteOrder.nativeOrder());
+    capacity += nodes;
+  }
+
+  private void checkOpen() {
+    if (slabs == null) {
+      throw new IllegalStateException("Map is closed");
+    }
+  }
+
+  private int allocate(long key, long value, float priority) {
+    int node = free;
+    if (node != NIL) {
+      free = right(node);
+    } else {
+      if (top == capacity) {
+        if (capacity >= MAX_NODES) {
+          throw new IllegalStateException("Map is full");
+        }
+        addSlab();
+      }
+      node = top++;
+    }
+
+    ByteBuffer slab = slabs[slabOf(node)];
+    int offset = offsetOf(node);
+    slab.putLong(offset + KEY, key);
+    slab.putLong(offset + VALUE, value);
+    slab.putInt(offset + LEFT, NIL);
+    slab.putInt(offset + RIGHT, NIL);
+    slab.putInt(offset + SIZE, 1);
+    slab.putFloat(offset + PRIORITY, priority);
+    return node;
+  }
+
+  private void release(int node) {
+    setLeft(node, NIL);
+    setRight(node, free);
+    free = node;
+  }
+
+  private long key(int node) {
+    return slabs[slabOf(node)].getLong(offsetOf(node) + KEY);
+  }
+
+  private long value(int node) {
+    return slabs[slabOf(node)].getLong(offsetOf(node) + VALUE);
+  }
+
+  private int left(int node) {
+    return slabs[slabOf(node)].getInt(offsetOf(node) + LEFT);
+  }
+
+  private int right(int node) {
+    return slabs[slabOf(node)].getInt(offsetOf(node) + RIGHT);
+  }
+
+  private int size(int node) {
+    return node == NIL ? 0 : slabs[slabOf(node)].getInt(offsetOf(node) + SIZE);
+  }
+
+  private float priority(int node) {
+    return slabs[slabOf(node)].getFloat(offsetOf(node) + PRIORITY);
+  }
+
+  private void setValue(int node, long value) {
+    slabs[slabOf(node)].putLong(offsetOf(node) + VALUE, value);
+  }
+
+  private void setLeft(int node, int child) {
+    slabs[slabOf(node)].putInt(offsetOf(node) + LEFT, child);
+  }
+
+  private void setRight(int node, int child) {
+    slabs[slabOf(node)].putInt(offsetOf(node) + RIGHT, child);
+  }
+
+  private void setSize(int node, int size) {
+    slabs[slabOf(node)].putInt(offsetOf(node) + SIZE, size);
+  }
+
+  private void update(int node) {
+    setSize(node, 1 + size(left(node)) + size(right(node)));
+  }
+
+  public int size() {
+    checkOpen();
+    return size(root);
+  }
+
+  public boolean isEmpty() {
+    checkOpen();
+    return root == NIL;
+  }
+
+  /** Removes all entries, the slabs are kept for the next insertions */
+  public void clear() {
+    checkOpen();
+    root = NIL;
+    top = 1;
+    free = NIL;
+    ++modCount;
+  }
+
+  /** Releases the slabs right away if the runtime allows it, otherwise they are left to the garbage collector */
+  @Override
+  public void close() {
+    if (slabs == null) {
+      return;
+    }
+
+    for (ByteBuffer slab : slabs) {
+      if (slab != null) {
+        free(slab);
+      }
+    }
+    slabs = null;
+    root = NIL;
+    ++modCount;
+  }
+
+  public boolean containsKey(long key) {
+    checkOpen();
+    return find(key) != NIL;
+  }
+
+  /** Returns the value of the key or the default value if there is no such key */
+  public long getOrDefault(long key, long defaultValue) {
+    checkOpen();
+    int node = find(key);
+    return node == NIL ? defaultValue : value(node);
+  }
+
+  /** Returns the value of the key at the given position in ascending key order */
+  public long getByIndex(int index) {
+    return value(nodeAt(index));
+  }
+
+  /** Returns the key at the given position in ascending key order */
+  public long keyAt(int index) {
+    return key(nodeAt(index));
+  }
+
+  public long firstKey() {
+    checkOpen();
+    if (root == NIL) {
+      throw new NoSuchElementException();
+    }
+
+    int node = root;
+    while (left(node) != NIL) {
+      node = left(node);
+    }
+    return key(node);
+  }
+
+  public long lastKey() {
+    checkOpen();
+    if (root == NIL) {
+      throw new NoSuchElementException();
+    }
+
+    int node = root;
+    while (right(node) != NIL) {
+      node = right(node);
+    }
+    return key(node);
+  }
+
+  public boolean put(long key, long value) {
+    return put(key, value, random.nextDouble());
+  }
+
+  /** @return true if there was no such key, otherwise the value is replaced */
+  public boolean put(long key, long value, double priority) {
+    checkOpen();
+    int existing = find(key);
+    if (existing != NIL) {
+      setValue(existing, value);
+      return false;
+    }
+
+    int inserted = allocate(key, value, (float) priority);
+    float insertedPriority = priority(inserted);
+    int parent = NIL;
+    boolean isLeft = false;
+    int node = root;
+    while (node != NIL && priority(node) > insertedPriority) {
+      setSize(node, size(node) + 1);
+      parent = node;
+      isLeft = key(node) > key;
+      node = isLeft ? left(node) : right(node);
+    }
+
+    splitInto(node, key, inserted);
+    update(inserted);
+    link(parent, isLeft, inserted);
+    ++modCount;
+    return true;
+  }
+
+  /** @return true if there was such key */
+  public boolean remove(long key) {
+    checkOpen();
+    int node = find(key);
+    if (node == NIL) {
+      return false;
+    }
+
+    int parent = NIL;
+    boolean isLeft = false;
+    int current = root;
+    while (current != node) {
+      setSize(current, size(current) - 1);
+      parent = current;
+      isLeft = key(current) > key;
+      current = isLeft ? left(current) : right(current);
+    }
+
+    link(parent, isLeft, join(left(node), right(node)));
+    release(node);
+    ++modCount;
+    return true;
+  }
+
+  /**
+   * Splits this map by the key into two new off-heap maps, the key goes according to the inclusion. The nodes are
+   * copied in O(n), so this map is left unchanged
+   *
+   * @return true if this map contains the key
+   */
+  public boolean split(
+      long key,
+      Reference<OffHeapLongLongTreapMap> left,
+      Reference<OffHeapLongLongTreapMap> right,
+      Inclusion inclusion) {
+    boolean contains = containsKey(key);
+    OffHeapLongLongTreapMap leftMap = new OffHeapLongLongTreapMap(random);
+    OffHeapLongLongTreapMap rightMap = new OffHeapLongLongTreapMap(random);
+    Builder leftBuilder = leftMap.new Builder();
+    Builder rightBuilder = rightMap.new Builder();
+    forEachNode(
+        node -> {
+          long nodeKey = key(node);
+          if (nodeKey < key || (nodeKey == key && inclusion == Inclusion.LEFT)) {
+            leftBuilder.append(nodeKey, value(node), priority(node));
+          } else if (nodeKey > key || inclusion == Inclusion.RIGHT) {
+            rightBuilder.append(nodeKey, value(node), priority(node));
+          }
+        });
+
+    leftMap.root = leftBuilder.build();
+    rightMap.root = rightBuilder.build();
+    left.set(leftMap);
+    right.set(rightMap);
+    return contains;
+  }
+
+  /**
+   * Returns a new off-heap map with keys of this map and the {@code right} map, all keys of this map must be less than
+   * keys of the {@code right} map. The nodes are copied in O(n + m), both maps are left unchanged
+   */
+  public OffHeapLongLongTreapMap merge(OffHeapLongLongTreapMap right) {
+    checkOpen();
+    right.checkOpen();
+    OffHeapLongLongTreapMap merged = new OffHeapLongLongTreapMap(random);
+    Builder builder = merged.new Builder();
+    forEachNode(node -> builder.append(key(node), value(node), priority(node)));
+    right.forEachNode(node -> builder.append(right.key(node), right.value(node), right.priority(node)));
+    merged.root = builder.build();
+    return merged;
+  }
+
+  /** Returns an iterator over keys in ascending order */
+  public PrimitiveIterator.OfLong keyIterator() {
+    checkOpen();
+    return new KeyIterator();
+  }
+
+  /** Returns keys in ascending order */
+  public long[] toKeyArray() {
+    long[] keys = new long[size()];
+    int[] index = new int[1];
+    forEachNode(node -> keys[index[0]++] = key(node));
+    return keys;
+  }
+
+  /** Returns values in ascending key order */
+  public long[] toValueArray() {
+    long[] values = new long[size()];
+    int[] index = new int[1];
+    forEachNode(node -> values[index[0]++] = value(node));
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    if (slabs == null) {
+      return "OffHeapLongLongTreapMap{closed}";
+    }
+
+    StringBuilder builder = new StringBuilder("OffHeapLongLongTreapMap{");
+    forEachNode(node -> builder.append(key(node)).append('=').append(value(node)).append(", "));
+    if (root != NIL) {
+      builder.setLength(builder.length() - 2);
+    }
+    return builder.append('}').toString();
+  }
+
+  private int find(long key) {
+    int node = root;
+    while (node != NIL) {
+      ByteBuffer slab = slabs[slabOf(node)];
+      int offset = offsetOf(node);
+      long nodeKey = slab.getLong(offset + KEY);
+      if (nodeKey == key) {
+        return node;
+      }
+      node = slab.getInt(offset + (nodeKey > key ? LEFT : RIGHT));
+    }
+    return NIL;
+  }
+
+  private int nodeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int node = root;
+    while (true) {
+      int leftSize = size(left(node));
+      if (leftSize == index) {
+        return node;
+      } else if (leftSize > index) {
+        node = left(node);
+      } else {
+        index -= leftSize + 1;
+        node = right(node);
+      }
+    }
+  }
+
+  private void link(int parent, boolean isLeft, int child) {
+    if (parent == NIL) {
+      root = child;
+    } else if (isLeft) {
+      setLeft(parent, child);
+    } else {
+      setRight(parent, child);
+    }
+  }
+
+  /** Splits the subtree by the absent key in place, the halves become children of the target node */
+  private void splitInto(int node, long key, int target) {
+    if (node == NIL) {
+      setLeft(target, NIL);
+      setRight(target, NIL);
+    } else if (key(node) < key) {
+      splitInto(right(node), key, target);
+      setRight(node, left(target));
+      update(node);
+      setLeft(target, node);
+    } else {
+      splitInto(left(node), key, target);
+      setLeft(node, right(target));
+      update(node);
+      setRight(target, node);
+    }
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree must be less than keys of the right one */
+  private int join(int leftNode, int rightNode) {
+    if (leftNode == NIL) {
+      return rightNode;
+    } else if (rightNode == NIL) {
+      return leftNode;
+    }
+
+    if (priority(leftNode) > priority(rightNode)) {
+      setRight(leftNode, join(right(leftNode), rightNode));
+      update(leftNode);
+      return leftNode;
+    }
+
+    setLeft(rightNode, join(leftNode, left(rightNode)));
+    update(rightNode);
+    return rightNode;
+  }
+
+  /** Passes the nodes to the action in ascending key order, pending ancestors are kept on an {@code int} stack */
+  private void forEachNode(IntConsumer action) {
+    checkOpen();
+    int[] stack = new int[64];
+    int depth = 0;
+    int node = root;
+    while (node != NIL || depth > 0) {
+      if (node != NIL) {
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = node;
+        node = left(node);
+      } else {
+        node = stack[--depth];
+        action.accept(node);
+        node = right(node);
+      }
+    }
+  }
+
+  /** Frees the direct or mapped buffer right away if the runtime allows it, the buffer must not be used afterwards */
+  static void free(ByteBuffer buffer) {
+    FREE.accept(buffer);
+  }
+
+  /**
+   * Returns a function which frees a direct buffer: {@code Unsafe.invokeCleaner} since Java 9 or the buffer's cleaner
+   * on Java 8. If neither is accessible the buffers are left to the garbage collector
+   */
+  private static Consumer<ByteBuffer> freeFunction() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      return buffer -> invoke(invokeCleaner, unsafe, buffer);
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      // Java 8 has no Unsafe.invokeCleaner
+    }
+
+    try {
+      Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return buffer -> invoke(clean, invoke(cleaner, buffer));
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return buffer -> {};
+    }
+  }
+
+  private static Object invoke(Method method, Object target, Object... arguments) {
+    try {
+      return method.invoke(target, arguments);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /** Builds a treap from nodes appended in ascending key order by priorities, keeping its right spine on a stack */
+  private class Builder {
+
+    private int[] spine = new int[64];
+    private int depth;
+
+    void append(long key, long value, float priority) {
+      int node = allocate(key, value, priority);
+      int last = NIL;
+      while (depth > 0 && priority(spine[depth - 1]) < priority) {
+        last = spine[--depth];
+        update(last);
+      }
+
+      setLeft(node, last);
+      if (depth > 0) {
+        setRight(spine[depth - 1], node);
+      }
+      if (depth == spine.length) {
+        spine = Arrays.copyOf(spine, depth * 2);
+      }
+      spine[depth++] = node;
+    }
+
+    /** Updates sizes along the right spine and returns the root */
+    int build() {
+      int node = NIL;
+      while (depth > 0) {
+        node = spine[--depth];
+        update(node);
+      }
+      ++modCount;
+      return node;
+    }
+  }
+
+  /** In-order cursor over keys keeping pending ancestors on an {@code int} stack */
+  private class KeyIterator implements PrimitiveIterator.OfLong {
+
+    private int[] stack = new int[64];
+    private int depth;
+    private final int expectedModCount = modCount;
+
+    KeyIterator() {
+      pushPath(root);
+    }
+
+    private void pushPath(int node) {
+      for (; node != NIL; node = left(node)) {
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = node;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return depth > 0;
+    }
+
+    @Override
+    public long nextLong() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (depth == 0) {
+        throw new NoSuchElementException();
+      }
+
+      int node = stack[--depth];
+      pushPath(right(node));
+      return key(node);
+    }
+  }
+}
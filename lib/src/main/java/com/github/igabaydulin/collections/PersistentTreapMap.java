@@ -0,0 +1,500 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable treap: every modification returns a new version of the map which shares all untouched subtrees with the
+ * previous one, so {@link #put(Object, Object)}, {@link #remove(Object)}, {@link #split(Object, Reference, Reference,
+ * Inclusion)} and {@link #merge(PersistentTreapMap)} copy only O(log n) nodes
+ *
+ * <p>Nodes have no parent links, so subtrees can be shared by any number of versions. Every version is a consistent
+ * point-in-time snapshot which can be read by any number of threads while a writer keeps producing new versions
+ */
+public final class PersistentTreapMap<K, V> implements Iterable<Entry<K, V>> {
+
+  private static final PersistentTreapMap<?, ?> EMPTY = new PersistentTreapMap<>(null, null);
+
+  private final Comparator<? super K> comparator;
+  private final Node<K, V> root;
+
+  private PersistentTreapMap(Node<K, V> root, Comparator<? super K> comparator) {
+    this.root = root;
+    this.comparator = comparator;
+  }
+
+  /** Returns an empty map which uses the natural ordering of its keys */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentTreapMap<K, V> empty() {
+    return (PersistentTreapMap<K, V>) EMPTY;
+  }
+
+  /** Returns an empty map which uses the given comparator */
+  public static <K, V> PersistentTreapMap<K, V> empty(Comparator<? super K> comparator) {
+    return new PersistentTreapMap<>(null, comparator);
+  }
+
+  private PersistentTreapMap<K, V> withRoot(Node<K, V> root) {
+    if (root == this.root) {
+      return this;
+    }
+    return new PersistentTreapMap<>(root, comparator);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(K key1, K key2) {
+    if (comparator == null) {
+      return ((Comparable<? super K>) key1).compareTo(key2);
+    }
+    return comparator.compare(key1, key2);
+  }
+
+  public int size() {
+    return Node.size(root);
+  }
+
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  public Comparator<? super K> comparator() {
+    return comparator;
+  }
+
+  public V get(K key) {
+    Node<K, V> node = find(key);
+    return node == null ? null : node.value;
+  }
+
+  public boolean containsKey(K key) {
+    return find(key) != null;
+  }
+
+  private Node<K, V> find(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        return node;
+      }
+      node = comparison > 0 ? node.left : node.right;
+    }
+
+    return null;
+  }
+
+  /** Returns the entry with the given index in key order */
+  public Entry<K, V> getByIndex(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    Node<K, V> node = root;
+    while (true) {
+      int leftSize = Node.size(node.left);
+      if (index == leftSize) {
+        return node;
+      } else if (index < leftSize) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /** Returns the number of keys which are less than (or equal to, if {@code inclusive} is true) the given key */
+  public int rank(K key, boolean inclusive) {
+    int rank = 0;
+    Node<K, V> node = root;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison < 0 || (inclusive && comparison == 0)) {
+        rank += Node.size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+
+    return rank;
+  }
+
+  /** Returns a new version of the map with the key associated with the value */
+  public PersistentTreapMap<K, V> put(K key, V value) {
+    return put(key, value, ThreadLocalRandom.current().nextDouble());
+  }
+
+  /**
+   * Returns a new version of the map with the key associated with the value; the priority is used only if the key is
+   * not present yet
+   */
+  public PersistentTreapMap<K, V> put(K key, V value, double priority) {
+    Node<K, V> node = find(key);
+    if (node != null) {
+      if (node.value == value) {
+        return this;
+      }
+      return withRoot(replace(root, key, value));
+    }
+
+    return withRoot(insert(root, key, value, priority));
+  }
+
+  private Node<K, V> replace(Node<K, V> node, K key, V value) {
+    int comparison = compare(node.key, key);
+    if (comparison == 0) {
+      return new Node<>(node.key, value, node.priority, node.left, node.right);
+    } else if (comparison > 0) {
+      return node.withLeft(replace(node.left, key, value));
+    } else {
+      return node.withRight(replace(node.right, key, value));
+    }
+  }
+
+  private Node<K, V> insert(Node<K, V> node, K key, V value, double priority) {
+    if (node == null || priority > node.priority) {
+      Halves<K, V> halves = new Halves<>();
+      split(node, key, Inclusion.NONE, halves);
+      return new Node<>(key, value, priority, halves.left, halves.right);
+    }
+
+    if (compare(node.key, key) > 0) {
+      return node.withLeft(insert(node.left, key, value, priority));
+    } else {
+      return node.withRight(insert(node.right, key, value, priority));
+    }
+  }
+
+  /** Returns a new version of the map without the key */
+  public PersistentTreapMap<K, V> remove(K key) {
+    if (find(key) == null) {
+      return this;
+    }
+
+    return withRoot(delete(root, key));
+  }
+
+  private Node<K, V> delete(Node<K, V> node, K key) {
+    int comparison = compare(node.key, key);
+    if (comparison == 0) {
+      return merge(node.left, node.right);
+    } else if (comparison > 0) {
+      return node.withLeft(delete(node.left, key));
+    } else {
+      return node.withRight(delete(node.right, key));
+    }
+  }
+
+  /**
+   * Splits the map into two new versions; this version stays unchanged
+   *
+   * @return true if the map contains the key
+   */
+  public boolean split(
+      K key,
+      Reference<PersistentTreapMap<K, V>> left,
+      Reference<PersistentTreapMap<K, V>> right,
+      Inclusion inclusion) {
+    Halves<K, V> halves = new Halves<>();
+    split(root, key, inclusion, halves);
+
+    left.set(withRoot(halves.left));
+    right.set(withRoot(halves.right));
+    return halves.contains;
+  }
+
+  private void split(Node<K, V> node, K key, Inclusion inclusion, Halves<K, V> halves) {
+    if (node == null) {
+      halves.left = null;
+      halves.right = null;
+      return;
+    }
+
+    int comparison = compare(node.key, key);
+    halves.contains |= comparison == 0;
+    if (comparison < 0 || (comparison == 0 && inclusion == Inclusion.LEFT)) {
+      split(node.right, key, inclusion, halves);
+      halves.left = node.withRight(halves.left);
+    } else if (comparison > 0 || inclusion == Inclusion.RIGHT) {
+      split(node.left, key, inclusion, halves);
+      halves.right = node.withLeft(halves.right);
+    } else {
+      halves.left = node.left;
+      halves.right = node.right;
+    }
+  }
+
+  /**
+   * Returns a new version of the map containing entries of both maps; all keys of this map must be less than keys of
+   * the {@code right} map
+   */
+  public PersistentTreapMap<K, V> merge(PersistentTreapMap<K, V> right) {
+    return withRoot(merge(root, right.root));
+  }
+
+  private static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      return left.withRight(merge(left.right, right));
+    } else {
+      return right.withLeft(merge(left, right.left));
+    }
+  }
+
+  /** Returns the version of the map containing keys from {@code fromKey} to {@code toKey}, see {@link #split} */
+  public PersistentTreapMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    if (compare(fromKey, toKey) > 0) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+
+    return tailMap(fromKey, fromInclusive).headMap(toKey, toInclusive);
+  }
+
+  public PersistentTreapMap<K, V> headMap(K toKey, boolean inclusive) {
+    Halves<K, V> halves = new Halves<>();
+    split(root, toKey, inclusive ? Inclusion.LEFT : Inclusion.RIGHT, halves);
+    return withRoot(halves.left);
+  }
+
+  public PersistentTreapMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    Halves<K, V> halves = new Halves<>();
+    split(root, fromKey, inclusive ? Inclusion.RIGHT : Inclusion.LEFT, halves);
+    return withRoot(halves.right);
+  }
+
+  public Entry<K, V> firstEntry() {
+    Node<K, V> node = root;
+    while (node != null && node.left != null) {
+      node = node.left;
+    }
+    return node;
+  }
+
+  public Entry<K, V> lastEntry() {
+    Node<K, V> node = root;
+    while (node != null && node.right != null) {
+      node = node.right;
+    }
+    return node;
+  }
+
+  public Entry<K, V> lowerEntry(K key) {
+    Node<K, V> node = root;
+    Node<K, V> result = null;
+    while (node != null) {
+      if (compare(node.key, key) < 0) {
+        result = node;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+
+    return result;
+  }
+
+  public Entry<K, V> floorEntry(K key) {
+    Node<K, V> node = root;
+    Node<K, V> result = null;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        return node;
+      } else if (comparison < 0) {
+        result = node;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+
+    return result;
+  }
+
+  public Entry<K, V> ceilingEntry(K key) {
+    Node<K, V> node = root;
+    Node<K, V> result = null;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        return node;
+      } else if (comparison > 0) {
+        result = node;
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+
+    return result;
+  }
+
+  public Entry<K, V> higherEntry(K key) {
+    Node<K, V> node = root;
+    Node<K, V> result = null;
+    while (node != null) {
+      if (compare(node.key, key) > 0) {
+        result = node;
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+
+    return result;
+  }
+
+  /** Iterates over the entries in ascending key order */
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    return new EntryIterator<>(root, false);
+  }
+
+  /** Iterates over the entries in descending key order */
+  public Iterator<Entry<K, V>> descendingIterator() {
+    return new EntryIterator<>(root, true);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("PersistentTreapMap{");
+    Iterator<Entry<K, V>> iterator = iterator();
+    while (iterator.hasNext()) {
+      Entry<K, V> entry = iterator.next();
+      builder.append(entry.getKey()).append('=').append(entry.getValue());
+      if (iterator.hasNext()) {
+        builder.append(", ");
+      }
+    }
+    return builder.append('}').toString();
+  }
+
+  static final class Node<K, V> implements Entry<K, V> {
+
+    private final K key;
+    private final V value;
+    private final double priority;
+
+    private final Node<K, V> left;
+    private final Node<K, V> right;
+
+    private final int size;
+
+    Node(K key, V value, double priority, Node<K, V> left, Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.priority = priority;
+      this.left = left;
+      this.right = right;
+      this.size = size(left) + size(right) + 1;
+    }
+
+    static int size(Node<?, ?> node) {
+      return node == null ? 0 : node.size;
+    }
+
+    private Node<K, V> withLeft(Node<K, V> left) {
+      return new Node<>(key, value, priority, left, right);
+    }
+
+    private Node<K, V> withRight(Node<K, V> right) {
+      return new Node<>(key, value, priority, left, right);
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    /**
+     * @throws UnsupportedOperationException nodes are shared between versions and cannot be changed
+     */
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> entry = (Entry<?, ?>) o;
+      return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(key) ^ Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  /** Result of a split: roots of both halves and whether the key was found */
+  private static final class Halves<K, V> {
+
+    private Node<K, V> left;
+    private Node<K, V> right;
+    private boolean contains;
+  }
+
+  private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+    private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+    private final boolean descending;
+
+    EntryIterator(Node<K, V> root, boolean descending) {
+      this.descending = descending;
+      pushPath(root);
+    }
+
+    private void pushPath(Node<K, V> node) {
+      while (node != null) {
+        stack.push(node);
+        node = descending ? node.right : node.left;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node<K, V> node = stack.pop();
+      pushPath(descending ? node.left : node.right);
+      return node;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+/**
+ * Immutable treap set, see {@link PersistentTreapMap}: every modification returns a new version of the set sharing
+ * untouched subtrees with the previous one
+ */
+public final class PersistentTreapSet<K> implements Iterable<K> {
+
+  private static final PersistentTreapSet<?> EMPTY = new PersistentTreapSet<>(PersistentTreapMap.empty());
+
+  private final PersistentTreapMap<K, K> treapMap;
+
+  private PersistentTreapSet(PersistentTreapMap<K, K> treapMap) {
+    this.treapMap = treapMap;
+  }
+
+  /** Returns an empty set which uses the natural ordering of its elements */
+  @SuppressWarnings("unchecked")
+  public static <K> PersistentTreapSet<K> empty() {
+    return (PersistentTreapSet<K>) EMPTY;
+  }
+
+  /** Returns an empty set which uses the given comparator */
+  public static <K> PersistentTreapSet<K> empty(Comparator<? super K> comparator) {
+    return new PersistentTreapSet<>(PersistentTreapMap.empty(comparator));
+  }
+
+  private PersistentTreapSet<K> with(PersistentTreapMap<K, K> treapMap) {
+    if (treapMap == this.treapMap) {
+      return this;
+    }
+    return new PersistentTreapSet<>(treapMap);
+  }
+
+  private static <K> K key(Entry<K, K> entry) {
+    return entry == null ? null : entry.getKey();
+  }
+
+  public int size() {
+    return treapMap.size();
+  }
+
+  public boolean isEmpty() {
+    return treapMap.isEmpty();
+  }
+
+  public Comparator<? super K> comparator() {
+    return treapMap.comparator();
+  }
+
+  public boolean contains(K value) {
+    return treapMap.containsKey(value);
+  }
+
+  public K get(int index) {
+    return treapMap.getByIndex(index).getKey();
+  }
+
+  /** Returns a new version of the set with the value added */
+  public PersistentTreapSet<K> add(K value) {
+    return with(treapMap.put(value, value));
+  }
+
+  public PersistentTreapSet<K> add(K value, double priority) {
+    return with(treapMap.put(value, value, priority));
+  }
+
+  /** Returns a new version of the set without the value */
+  public PersistentTreapSet<K> remove(K value) {
+    return with(treapMap.remove(value));
+  }
+
+  /**
+   * Splits the set into two new versions; this version stays unchanged
+   *
+   * @return true if the set contains the value
+   */
+  public boolean split(
+      K value, Reference<PersistentTreapSet<K>> left, Reference<PersistentTreapSet<K>> right, Inclusion inclusion) {
+    Reference<PersistentTreapMap<K, K>> leftMap = new Reference<>();
+    Reference<PersistentTreapMap<K, K>> rightMap = new Reference<>();
+    boolean contains = treapMap.split(value, leftMap, rightMap, inclusion);
+
+    left.set(with(leftMap.get()));
+    right.set(with(rightMap.get()));
+    return contains;
+  }
+
+  /**
+   * Returns a new version of the set containing elements of both sets; all elements of this set must be less than
+   * elements of the {@code right} set
+   */
+  public PersistentTreapSet<K> merge(PersistentTreapSet<K> right) {
+    return with(treapMap.merge(right.treapMap));
+  }
+
+  public PersistentTreapSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+    return with(treapMap.subMap(fromElement, fromInclusive, toElement, toInclusive));
+  }
+
+  public PersistentTreapSet<K> headSet(K toElement, boolean inclusive) {
+    return with(treapMap.headMap(toElement, inclusive));
+  }
+
+  public PersistentTreapSet<K> tailSet(K fromElement, boolean inclusive) {
+    return with(treapMap.tailMap(fromElement, inclusive));
+  }
+
+  public K first() {
+    return key(treapMap.firstEntry());
+  }
+
+  public K last() {
+    return key(treapMap.lastEntry());
+  }
+
+  public K lower(K value) {
+    return key(treapMap.lowerEntry(value));
+  }
+
+  public K floor(K value) {
+    return key(treapMap.floorEntry(value));
+  }
+
+  public K ceiling(K value) {
+    return key(treapMap.ceilingEntry(value));
+  }
+
+  public K higher(K value) {
+    return key(treapMap.higherEntry(value));
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return new KeyIterator<>(treapMap.iterator());
+  }
+
+  public Iterator<K> descendingIterator() {
+    return new KeyIterator<>(treapMap.descendingIterator());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("PersistentTreapSet{");
+    Iterator<K> iterator = iterator();
+    while (iterator.hasNext()) {
+      builder.append(iterator.next());
+      if (iterator.hasNext()) {
+        builder.append(", ");
+      }
+    }
+    return builder.append('}').toString();
+  }
+
+  private static final class KeyIterator<K> implements Iterator<K> {
+
+    private final Iterator<Entry<K, K>> entryIterator;
+
+    KeyIterator(Iterator<Entry<K, K>> entryIterator) {
+      this.entryIterator = entryIterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entryIterator.hasNext();
+    }
+
+    @Override
+    public K next() {
+      return entryIterator.next().getKey();
+    }
+  }
+}
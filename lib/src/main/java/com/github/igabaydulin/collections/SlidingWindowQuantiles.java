@@ -0,0 +1,174 @@
+package com.github.igabaydulin.collections;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Quantiles of samples over a sliding window, either the last {@code n} samples or the samples of the last {@code
+ * duration} time units. Values of the window are kept in a {@link TreapMultiset}, so a repeated value costs no node,
+ * and any quantile is selected by the weighted index in O(log d), where d is the number of distinct values. Samples
+ * are kept in arrival order in a ring buffer of primitives, so the oldest ones are evicted from the front as the window
+ * slides: every sample is added and evicted once in O(log d)
+ *
+ * <p>Time units are up to the caller (e.g. milliseconds of {@link System#currentTimeMillis()}), timestamps must not
+ * decrease. The window is not thread-safe
+ */
+public class SlidingWindowQuantiles {
+
+  private static final int INITIAL_CAPACITY = 16;
+  /** Rounding error of {@code quantile * size} in ulps tolerated by {@link #quantile(double)} */
+  private static final int RANK_ULPS = 4;
+
+  /** Duration of the window, {@link Long#MAX_VALUE} if only the number of samples is bounded */
+  private final long duration;
+  private final int maxSamples;
+  private final TreapMultiset<Long> values = new TreapMultiset<>();
+
+  /** Ring buffer of samples in arrival order, {@code size} samples starting at {@code head} */
+  private long[] timestamps = new long[INITIAL_CAPACITY];
+  private long[] samples = new long[INITIAL_CAPACITY];
+  private int head;
+  private int size;
+  private long lastTimestamp = Long.MIN_VALUE;
+
+  private SlidingWindowQuantiles(long duration, int maxSamples) {
+    this.duration = duration;
+    this.maxSamples = maxSamples;
+  }
+
+  /**
+   * Creates a window of the last {@code count} samples
+   *
+   * @throws IllegalArgumentException if the count is not positive
+   */
+  public static SlidingWindowQuantiles ofLastSamples(int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Count is not positive: " + count);
+    }
+    return new SlidingWindowQuantiles(Long.MAX_VALUE, count);
+  }
+
+  /**
+   * Creates a window of samples whose timestamps are within {@code duration} of the latest timestamp, i.e. greater than
+   * {@code latest - duration}
+   *
+   * @throws IllegalArgumentException if the duration is not positive
+   */
+  public static SlidingWindowQuantiles ofLastPeriod(long duration) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Duration is not positive: " + duration);
+    }
+    return new SlidingWindowQuantiles(duration, Integer.MAX_VALUE);
+  }
+
+  /** Returns the number of samples in the window */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds the sample and evicts samples which left the window
+   *
+   * @throws IllegalArgumentException if the timestamp is less than the timestamp of a previous call
+   */
+  public void add(long timestamp, long value) {
+    advance(timestamp);
+    if (size == maxSamples) {
+      evictOldest();
+    }
+    if (size == samples.length) {
+      grow();
+    }
+
+    int tail = (head + size) % samples.length;
+    timestamps[tail] = timestamp;
+    samples[tail] = value;
+    ++size;
+    values.add(value);
+  }
+
+  /**
+   * Evicts samples which left the window by the time, so that quantiles of an idle window age too
+   *
+   * @throws IllegalArgumentException if the timestamp is less than the timestamp of a previous call
+   */
+  public void advance(long timestamp) {
+    if (timestamp < lastTimestamp) {
+      throw new IllegalArgumentException("Timestamp " + timestamp + " is less than " + lastTimestamp);
+    }
+
+    lastTimestamp = timestamp;
+    while (size > 0 && duration != Long.MAX_VALUE && timestamp - timestamps[head] >= duration) {
+      evictOldest();
+    }
+  }
+
+  /**
+   * Returns the nearest-rank quantile of the window, the least value such that at least {@code quantile * size()}
+   * samples are less than or equal to it; e.g. {@code quantile(0.99)} is p99. Takes O(log d)
+   *
+   * @throws IllegalArgumentException if the quantile is not within [0, 1]
+   * @throws NoSuchElementException if the window is empty
+   */
+  public long quantile(double quantile) {
+    if (!(quantile >= 0 && quantile <= 1)) {
+      throw new IllegalArgumentException("Quantile is not within [0, 1]: " + quantile);
+    }
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+
+    // the product is rounded, e.g. 0.07 * 100 is 7.000000000000001, so an error of a few ulps is dropped before ceil
+    double product = quantile * size;
+    long rank = (long) Math.ceil(product - RANK_ULPS * Math.ulp(product));
+    return values.get(Math.max(rank - 1, 0));
+  }
+
+  public long median() {
+    return quantile(0.5);
+  }
+
+  /** Returns the number of samples of the window less than or equal to the value, e.g. to find its percentile rank */
+  public long countAtMost(long value) {
+    return value == Long.MAX_VALUE ? size : values.rankOf(value + 1);
+  }
+
+  public void clear() {
+    values.clear();
+    head = 0;
+    size = 0;
+  }
+
+  private void evictOldest() {
+    values.remove(samples[head], 1);
+    head = (head + 1) % samples.length;
+    --size;
+  }
+
+  /** Doubles the ring buffer unrolling its samples to the start of the new arrays */
+  private void grow() {
+    int capacity = samples.length * 2;
+    if (capacity < 0) {
+      throw new IllegalStateException("Window is too large");
+    }
+
+    long[] grownTimestamps = new long[capacity];
+    long[] grownSamples = new long[capacity];
+    int first = samples.length - head;
+    System.arraycopy(timestamps, head, grownTimestamps, 0, first);
+    System.arraycopy(timestamps, 0, grownTimestamps, first, head);
+    System.arraycopy(samples, head, grownSamples, 0, first);
+    System.arraycopy(samples, 0, grownSamples, first, head);
+    timestamps = grownTimestamps;
+    samples = grownSamples;
+    head = 0;
+  }
+
+  @Override
+  public String toString() {
+    return "SlidingWindowQuantiles{" + "size=" + size + ", distinct=" + values.distinctCount() + '}';
+  }
+}
@@ -2,12 +2,39 @@ package com.github.igabaydulin.collections;
 
 import com.github.igabaydulin.collections.ValueTreap.Inclusion;
 import com.github.igabaydulin.collections.utils.Reference;
+import java.util.List;
 import java.util.NavigableSet;
 
 public interface Treap<T> extends NavigableSet<T> {
 
   T get(int index);
 
+  /** Returns the number of values less than the value, which is the index of the value if it is present */
+  int rankOf(T value);
+
+  /**
+   * Returns the number of values between {@code from} and {@code to}, each bound is included if its flag is set
+   *
+   * @throws IllegalArgumentException if {@code from} is greater than {@code to}
+   */
+  int countInRange(T from, boolean fromInclusive, T to, boolean toInclusive);
+
+  /** Returns the index of the greatest value less than or equal to the value, or -1 if there is no such value */
+  int indexOfFloor(T value);
+
+  /** Returns the index of the least value greater than or equal to the value, or -1 if there is no such value */
+  int indexOfCeiling(T value);
+
+  /**
+   * Returns an unmodifiable list view of values at indices from {@code fromIndex} inclusive to {@code toIndex}
+   * exclusive in ascending order; the view fails fast once the treap is structurally modified
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  List<T> subList(int fromIndex, int toIndex);
+
+  /** Adds the value with the priority; implementations may keep the priority narrowed, e.g. to {@code float} */
   boolean add(T value, double priority);
 
   boolean addBack(T[] values, double[] priorities);
@@ -28,5 +55,29 @@ public interface Treap<T> extends NavigableSet<T> {
    */
   Treap<T> merge(Treap<T> right);
 
+  /**
+   * Adds values of the other treap to this one; the other treap is not changed
+   *
+   * <p>{@link ClassCastException} may be thrown by implementation if it does not support set operations with another
+   * implementation
+   *
+   * @return true if any value was added
+   */
+  boolean union(Treap<T> other);
+
+  /**
+   * Retains only values present in the other treap; the other treap is not changed
+   *
+   * @return true if any value was removed
+   */
+  boolean intersect(Treap<T> other);
+
+  /**
+   * Removes values present in the other treap; the other treap is not changed
+   *
+   * @return true if any value was removed
+   */
+  boolean difference(Treap<T> other);
+
   int height();
 }
@@ -0,0 +1,47 @@
+package com.github.igabaydulin.collections;
+
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Associative aggregate of entries kept in every node of a {@link TreapMap} for its subtree, e.g. a sum, a maximum or
+ * a minimum of values. It lets {@link TreapMap#aggregate(TreapAggregator, Object, Object)} answer range queries in
+ * O(log n) combining aggregates of O(log n) subtrees instead of visiting entries
+ *
+ * <p>{@link #combine(Object, Object)} must be associative with {@link #identity()} as its identity element; it need
+ * not be commutative, the left argument always aggregates entries with lesser keys
+ *
+ * @param <A> type of aggregates
+ */
+public interface TreapAggregator<K, V, A> {
+
+  /** Returns the aggregate of no entries */
+  A identity();
+
+  /** Returns the aggregate of a single entry */
+  A lift(K key, V value);
+
+  /** Returns the aggregate of entries of the left aggregate followed by entries of the right one */
+  A combine(A left, A right);
+
+  /** Creates an aggregator from its functions, e.g. {@code TreapAggregator.of(0L, (key, value) -> value, Long::sum)} */
+  static <K, V, A> TreapAggregator<K, V, A> of(
+      A identity, BiFunction<? super K, ? super V, ? extends A> lift, BinaryOperator<A> combine) {
+    return new TreapAggregator<K, V, A>() {
+      @Override
+      public A identity() {
+        return identity;
+      }
+
+      @Override
+      public A lift(K key, V value) {
+        return lift.apply(key, value);
+      }
+
+      @Override
+      public A combine(A left, A right) {
+        return combine.apply(left, right);
+      }
+    };
+  }
+}
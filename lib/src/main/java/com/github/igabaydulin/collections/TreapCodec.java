@@ -0,0 +1,331 @@
+package com.github.igabaydulin.collections;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary codec of {@link TreapMap} and {@link TreapSet} with pluggable key and value serializers
+ *
+ * <p>A payload is a header (magic, flags and size) followed by entries in ascending key order: the key, the value
+ * unless it is a set and, optionally, the priority as a float. Priorities keep the exact shape of the treap, otherwise
+ * new random ones are drawn on reading. Reading builds the treap in O(n) from the sorted entries as they are decoded
+ * (see {@link TreapMap#fromSorted(Iterable)}), so neither writing nor reading buffers the whole payload
+ *
+ * <p>Streams are neither buffered nor closed by the codec; the buffer position is advanced past the payload
+ */
+public class TreapCodec<K, V> {
+
+  private static final int MAGIC = 0x54524543;
+  private static final int VALUES = 1;
+  private static final int PRIORITIES = 2;
+
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final boolean priorities;
+
+  /** Creates a codec of sets, which cannot read or write maps */
+  public TreapCodec(Serializer<K> keySerializer, boolean priorities) {
+    this(keySerializer, null, priorities);
+  }
+
+  public TreapCodec(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    this(keySerializer, valueSerializer, false);
+  }
+
+  /** @param priorities whether priorities are written, so the read treap has the same shape */
+  public TreapCodec(Serializer<K> keySerializer, Serializer<V> valueSerializer, boolean priorities) {
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.priorities = priorities;
+  }
+
+  public void writeMap(TreapMap<K, V> map, OutputStream output) throws IOException {
+    checkValues();
+    write(map, new DataOutputStream(output), VALUES);
+  }
+
+  /** @throws java.nio.BufferOverflowException if the payload does not fit the buffer */
+  public void writeMap(TreapMap<K, V> map, ByteBuffer buffer) throws IOException {
+    checkValues();
+    write(map, new DataOutputStream(new ByteBufferOutputStream(buffer)), VALUES);
+  }
+
+  public TreapMap<K, V> readMap(InputStream input) throws IOException {
+    checkValues();
+    TreapMap<K, V> map = new TreapMap<>();
+    read(map, new DataInputStream(input), VALUES);
+    return map;
+  }
+
+  public TreapMap<K, V> readMap(ByteBuffer buffer) throws IOException {
+    checkValues();
+    TreapMap<K, V> map = new TreapMap<>();
+    read(map, new DataInputStream(new ByteBufferInputStream(buffer)), VALUES);
+    return map;
+  }
+
+  public void writeSet(TreapSet<K> set, OutputStream output) throws IOException {
+    write(set.getTreapMap(), new DataOutputStream(output), 0);
+  }
+
+  /** @throws java.nio.BufferOverflowException if the payload does not fit the buffer */
+  public void writeSet(TreapSet<K> set, ByteBuffer buffer) throws IOException {
+    write(set.getTreapMap(), new DataOutputStream(new ByteBufferOutputStream(buffer)), 0);
+  }
+
+  public TreapSet<K> readSet(InputStream input) throws IOException {
+    TreapSet<K> set = new TreapSet<>();
+    read(set.getTreapMap(), new DataInputStream(input), 0);
+    return set;
+  }
+
+  public TreapSet<K> readSet(ByteBuffer buffer) throws IOException {
+    TreapSet<K> set = new TreapSet<>();
+    read(set.getTreapMap(), new DataInputStream(new ByteBufferInputStream(buffer)), 0);
+    return set;
+  }
+
+  private void checkValues() {
+    if (valueSerializer == null) {
+      throw new IllegalStateException("Codec has no value serializer");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void write(TreapMap<K, T> map, DataOutputStream output, int values) throws IOException {
+    if (map.comparator() != null) {
+      throw new IllegalArgumentException("Only maps with natural ordering can be written");
+    }
+
+    output.writeInt(MAGIC);
+    output.writeByte(values | (priorities ? PRIORITIES : 0));
+    output.writeInt(map.size());
+    for (Entry<K, T> entry : map.entrySet()) {
+      keySerializer.write(entry.getKey(), output);
+      if (values != 0) {
+        valueSerializer.write((V) entry.getValue(), output);
+      }
+      if (priorities) {
+        output.writeFloat((float) TreapMap.priorityOf(entry));
+      }
+    }
+    output.flush();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void read(TreapMap<K, T> map, DataInputStream input, int values) throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a treap payload");
+    }
+
+    int flags = input.readByte();
+    if ((flags & VALUES) != values) {
+      throw new IOException(values != 0 ? "Payload of a set cannot be read as a map" : "Payload of a map is not a set");
+    }
+
+    int size = input.readInt();
+    if (size < 0) {
+      throw new IOException("Negative size " + size);
+    }
+
+    boolean withPriorities = (flags & PRIORITIES) != 0;
+    EntryReader entries = new EntryReader(input, size, values != 0, withPriorities);
+    try {
+      if (withPriorities) {
+        map.buildSorted(entries, EntryReader::key, reader -> (T) reader.value, EntryReader::priority);
+      } else {
+        map.buildSorted(entries, EntryReader::key, reader -> (T) reader.value);
+      }
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    } catch (IllegalArgumentException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  /** Decodes the entries one at a time as the treap is built; the reader itself is the current entry */
+  private class EntryReader implements Iterator<EntryReader> {
+
+    private final DataInput input;
+    private final boolean values;
+    private final boolean priorities;
+    private int remaining;
+
+    private K key;
+    private V value;
+    private float priority;
+
+    EntryReader(DataInput input, int size, boolean values, boolean priorities) {
+      this.input = input;
+      this.remaining = size;
+      this.values = values;
+      this.priorities = priorities;
+    }
+
+    K key() {
+      return key;
+    }
+
+    double priority() {
+      return priority;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public EntryReader next() {
+      if (remaining == 0) {
+        throw new NoSuchElementException();
+      }
+
+      try {
+        key = keySerializer.read(input);
+        if (values) {
+          value = valueSerializer.read(input);
+        }
+        if (priorities) {
+          priority = input.readFloat();
+        }
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      --remaining;
+      return this;
+    }
+  }
+
+  /**
+   * Writes and reads values of a type, with serializers of common types as constants: integers are written as
+   * variable-length zigzag numbers, so small numbers take a byte, and strings as UTF-8 bytes prefixed with their length
+   */
+  public interface Serializer<T> {
+
+    Serializer<Integer> INTEGER =
+        new Serializer<Integer>() {
+          @Override
+          public void write(Integer value, DataOutput output) throws IOException {
+            writeVarLong(value, output);
+          }
+
+          @Override
+          public Integer read(DataInput input) throws IOException {
+            return (int) readVarLong(input);
+          }
+        };
+
+    Serializer<Long> LONG =
+        new Serializer<Long>() {
+          @Override
+          public void write(Long value, DataOutput output) throws IOException {
+            writeVarLong(value, output);
+          }
+
+          @Override
+          public Long read(DataInput input) throws IOException {
+            return readVarLong(input);
+          }
+        };
+
+    Serializer<String> STRING =
+        new Serializer<String>() {
+          @Override
+          public void write(String value, DataOutput output) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length, output);
+            output.write(bytes);
+          }
+
+          @Override
+          public String read(DataInput input) throws IOException {
+            byte[] bytes = new byte[(int) readVarLong(input)];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+          }
+        };
+
+    void write(T value, DataOutput output) throws IOException;
+
+    T read(DataInput input) throws IOException;
+  }
+
+  static void writeVarLong(long value, DataOutput output) throws IOException {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      output.writeByte((int) (zigzag & 0x7F) | 0x80);
+      zigzag >>>= 7;
+    }
+    output.writeByte((int) zigzag);
+  }
+
+  static long readVarLong(DataInput input) throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = input.readUnsignedByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Malformed variable-length number");
+  }
+
+  private static class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      buffer.put(bytes, offset, length);
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      } else if (!buffer.hasRemaining()) {
+        return -1;
+      }
+
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,583 @@
+package com.github.igabaydulin.collections;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+
+/**
+ * List backed by an implicit treap: nodes keep no keys, the position of a node is the number of nodes before it, which
+ * is derived from subtree sizes. Access, insertion and removal at any index take O(log n), as do {@link #cut(int, int)}
+ * of a range, {@link #paste(int, TreapList)} of another list and {@link #removeRange(int, int)}
+ *
+ * <p>The list is not {@link java.util.RandomAccess}: {@link #get(int)} takes O(log n), so sequential access should go
+ * through {@link #iterator()}, which visits the next element in O(1) amortized. Null elements are permitted
+ *
+ * <p>Range updates {@link #reverse(int, int)}, {@link #assignRange(int, int, Object)} and {@link #addToRange(int, int,
+ * Object)} take O(log n) as well: the range is split out and its root is updated at once, leaving a lazy tag for its
+ * subtrees. Tags are pushed down to children whenever a node is descended, so every read sees updated elements
+ */
+public class TreapList<T> extends AbstractList<T> {
+
+  private static final byte REVERSED = 1;
+  private static final byte ASSIGNED = 2;
+  private static final byte ADDED = 4;
+
+  private final Random random;
+  private final BinaryOperator<T> addition;
+  private Node<T> root;
+
+  public TreapList() {
+    this(new Random());
+  }
+
+  public TreapList(long seed) {
+    this(new Random(seed));
+  }
+
+  /** Creates a list with elements of the collection in its iteration order, the treap is built in O(n) */
+  public TreapList(Collection<? extends T> values) {
+    this(new Random());
+    root = build(values);
+  }
+
+  private TreapList(Random random) {
+    this(random, null);
+  }
+
+  private TreapList(Random random, BinaryOperator<T> addition) {
+    this.random = random;
+    this.addition = addition;
+  }
+
+  /**
+   * Creates a list supporting {@link #addToRange(int, int, Object)}, e.g. {@code TreapList.withAddition(Long::sum)};
+   * the addition must be associative as pending deltas are summed up before they reach elements
+   */
+  public static <T> TreapList<T> withAddition(BinaryOperator<T> addition) {
+    return new TreapList<>(new Random(), Objects.requireNonNull(addition));
+  }
+
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  @Override
+  public int size() {
+    return size(root);
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+    ++modCount;
+  }
+
+  @Override
+  public T get(int index) {
+    return nodeAt(index).value;
+  }
+
+  @Override
+  public T set(int index, T value) {
+    Node<T> node = nodeAt(index);
+    T previous = node.value;
+    node.value = value;
+    return previous;
+  }
+
+  @Override
+  public boolean add(T value) {
+    add(size(), value);
+    return true;
+  }
+
+  /**
+   * Inserts the element top-down: the path to the position is descended (growing subtree sizes) while nodes have higher
+   * priorities, then the remaining subtree is split in place by the position into children of the new node
+   */
+  @Override
+  public void add(int index, T value) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    Node<T> inserted = new Node<>(value, random.nextDouble());
+    Node<T> parent = null;
+    boolean isLeft = false;
+    Node<T> node = root;
+    while (node != null && node.priority > inserted.priority) {
+      push(node);
+      ++node.size;
+      parent = node;
+      int leftSize = size(node.left);
+      isLeft = index <= leftSize;
+      if (isLeft) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+
+    Parts<T> parts = new Parts<>();
+    splitAt(node, index, parts);
+    inserted.left = parts.left;
+    inserted.right = parts.right;
+    inserted.update();
+    link(parent, isLeft, inserted);
+    ++modCount;
+  }
+
+  /** Inserts the elements at the index in O(m + log n): they are built into a treap which is pasted into the list */
+  @Override
+  public boolean addAll(int index, Collection<? extends T> values) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    if (values.isEmpty()) {
+      return false;
+    }
+
+    Parts<T> parts = new Parts<>();
+    splitAt(root, index, parts);
+    root = join(join(parts.left, build(values)), parts.right);
+    ++modCount;
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends T> values) {
+    return addAll(size(), values);
+  }
+
+  /**
+   * Removes the element in place: the path to it is descended shrinking subtree sizes and the node is replaced by the
+   * join of its subtrees
+   */
+  @Override
+  public T remove(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    Node<T> parent = null;
+    boolean isLeft = false;
+    Node<T> node = root;
+    while (true) {
+      push(node);
+      int leftSize = size(node.left);
+      if (index == leftSize) {
+        break;
+      }
+
+      --node.size;
+      parent = node;
+      isLeft = index < leftSize;
+      if (isLeft) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+
+    link(parent, isLeft, join(node.left, node.right));
+    ++modCount;
+    return node.value;
+  }
+
+  /**
+   * Removes elements from {@code fromIndex} inclusive to {@code toIndex} exclusive in O(log n) however many they are;
+   * it also backs {@code subList(from, to).clear()}
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  @Override
+  public void removeRange(int fromIndex, int toIndex) {
+    cut(fromIndex, toIndex);
+  }
+
+  /**
+   * Moves elements from {@code fromIndex} inclusive to {@code toIndex} exclusive to a new list in O(log n): the treap
+   * is split in place by both positions, the middle part becomes the new list and the outer parts are joined
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  public TreapList<T> cut(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+    }
+
+    TreapList<T> cut = new TreapList<>(random, addition);
+    if (fromIndex == toIndex) {
+      return cut;
+    }
+
+    Parts<T> parts = new Parts<>();
+    splitAt(root, toIndex, parts);
+    Node<T> right = parts.right;
+    splitAt(parts.left, fromIndex, parts);
+    cut.root = parts.right;
+    root = join(parts.left, right);
+    ++modCount;
+    return cut;
+  }
+
+  /**
+   * Moves all elements of the other list into this one at the index in O(log n), the other list becomes empty
+   *
+   * @throws IllegalArgumentException if the other list is this list or it has another addition, whose pending deltas
+   *     this list cannot apply
+   */
+  public void paste(int index, TreapList<T> other) {
+    if (other == this) {
+      throw new IllegalArgumentException("List cannot be pasted into itself");
+    }
+    if (other.addition != null && other.addition != addition) {
+      throw new IllegalArgumentException("List with another addition cannot be pasted");
+    }
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    Parts<T> parts = new Parts<>();
+    splitAt(root, index, parts);
+    root = join(join(parts.left, other.root), parts.right);
+    other.root = null;
+    ++other.modCount;
+    ++modCount;
+  }
+
+  /** Moves all elements of the other list to the end of this one in O(log n), the other list becomes empty */
+  public void concat(TreapList<T> other) {
+    paste(size(), other);
+  }
+
+  /**
+   * Reverses the order of elements from {@code fromIndex} inclusive to {@code toIndex} exclusive in O(log n)
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  public void reverse(int fromIndex, int toIndex) {
+    updateRange(fromIndex, toIndex, REVERSED, null);
+  }
+
+  /**
+   * Replaces elements from {@code fromIndex} inclusive to {@code toIndex} exclusive with the value in O(log n)
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  public void assignRange(int fromIndex, int toIndex, T value) {
+    updateRange(fromIndex, toIndex, ASSIGNED, value);
+  }
+
+  /**
+   * Adds the delta to elements from {@code fromIndex} inclusive to {@code toIndex} exclusive in O(log n)
+   *
+   * @throws UnsupportedOperationException if the list is not created by {@link #withAddition(BinaryOperator)}
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  public void addToRange(int fromIndex, int toIndex, T delta) {
+    if (addition == null) {
+      throw new UnsupportedOperationException("List has no addition");
+    }
+    updateRange(fromIndex, toIndex, ADDED, delta);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new NodeIterator();
+  }
+
+  @Override
+  public String toString() {
+    return "TreapList{" + "array=" + super.toString() + '}';
+  }
+
+  /** Splits the range out of the treap, updates its root and joins the parts back */
+  private void updateRange(int fromIndex, int toIndex, byte update, T argument) {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+    }
+    if (fromIndex == toIndex) {
+      return;
+    }
+
+    Parts<T> parts = new Parts<>();
+    splitAt(root, toIndex, parts);
+    Node<T> right = parts.right;
+    splitAt(parts.left, fromIndex, parts);
+    apply(parts.right, update, argument);
+    root = join(join(parts.left, parts.right), right);
+    ++modCount;
+  }
+
+  /**
+   * Updates the node itself at once, i.e. its value or the order of its children, and tags it so that children get the
+   * same update when the node is descended
+   */
+  private void apply(Node<T> node, byte update, T argument) {
+    if (node == null) {
+      return;
+    }
+
+    if (update == REVERSED) {
+      Node<T> left = node.left;
+      node.left = node.right;
+      node.right = left;
+      node.tags ^= REVERSED;
+    } else if (update == ASSIGNED) {
+      node.value = argument;
+      node.tags = (byte) (node.tags & REVERSED | ASSIGNED);
+      node.argument = argument;
+    } else {
+      node.value = addition.apply(node.value, argument);
+      if ((node.tags & (ASSIGNED | ADDED)) == 0) {
+        node.tags |= ADDED;
+        node.argument = argument;
+      } else {
+        node.argument = addition.apply(node.argument, argument);
+      }
+    }
+  }
+
+  /** Passes pending tags of the node to its children, must be called before any of them is read or changed */
+  private void push(Node<T> node) {
+    if (node.tags == 0) {
+      return;
+    }
+
+    if ((node.tags & REVERSED) != 0) {
+      apply(node.left, REVERSED, null);
+      apply(node.right, REVERSED, null);
+    }
+    if ((node.tags & ASSIGNED) != 0) {
+      apply(node.left, ASSIGNED, node.argument);
+      apply(node.right, ASSIGNED, node.argument);
+    } else if ((node.tags & ADDED) != 0) {
+      apply(node.left, ADDED, node.argument);
+      apply(node.right, ADDED, node.argument);
+    }
+    node.tags = 0;
+    node.argument = null;
+  }
+
+  private Node<T> nodeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    Node<T> node = root;
+    while (true) {
+      push(node);
+      int leftSize = size(node.left);
+      if (leftSize == index) {
+        return node;
+      } else if (leftSize > index) {
+        node = node.left;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /** Makes the child a left (or right) child of the parent or a root if there is no parent */
+  private void link(Node<T> parent, boolean isLeft, Node<T> child) {
+    if (parent == null) {
+      root = child;
+    } else if (isLeft) {
+      parent.left = child;
+    } else {
+      parent.right = child;
+    }
+  }
+
+  /** Splits the subtree in place into its first {@code count} nodes and the rest, the left and right parts */
+  private void splitAt(Node<T> node, int count, Parts<T> parts) {
+    if (node == null) {
+      parts.left = null;
+      parts.right = null;
+      return;
+    }
+
+    push(node);
+    int leftSize = size(node.left);
+    if (leftSize < count) {
+      splitAt(node.right, count - leftSize - 1, parts);
+      node.right = parts.left;
+      node.update();
+      parts.left = node;
+    } else {
+      splitAt(node.left, count, parts);
+      node.left = parts.right;
+      node.update();
+      parts.right = node;
+    }
+  }
+
+  /** Joins two subtrees in place, all nodes of the left subtree go before nodes of the right one */
+  private Node<T> join(Node<T> left, Node<T> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      push(left);
+      left.right = join(left.right, right);
+      left.update();
+      return left;
+    }
+
+    push(right);
+    right.left = join(left, right.left);
+    right.update();
+    return right;
+  }
+
+  /**
+   * Builds a treap of the elements in O(n) as a Cartesian tree from left to right keeping its right spine on a stack,
+   * see {@link TreapMap#fromSorted(Iterable)}
+   */
+  private Node<T> build(Collection<? extends T> values) {
+    Deque<Node<T>> spine = new ArrayDeque<>();
+    for (T value : values) {
+      Node<T> node = new Node<>(value, random.nextDouble());
+      Node<T> left = null;
+      while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+        left = spine.pop();
+        left.update();
+      }
+
+      node.left = left;
+      if (!spine.isEmpty()) {
+        spine.peek().right = node;
+      }
+      spine.push(node);
+    }
+
+    Node<T> node = null;
+    while (!spine.isEmpty()) {
+      node = spine.pop();
+      node.update();
+    }
+    return node;
+  }
+
+  private static final class Node<T> {
+
+    private final float priority;
+    private T value;
+
+    private Node<T> left;
+    private Node<T> right;
+    private int size;
+
+    /** Updates pending for children, see {@link #apply(Node, byte, Object)} */
+    private byte tags;
+    private T argument;
+
+    Node(T value, double priority) {
+      this.value = value;
+      this.priority = (float) priority;
+      this.size = 1;
+    }
+
+    void update() {
+      size = 1 + size(left) + size(right);
+    }
+  }
+
+  /** Result of an in-place split of a subtree */
+  private static class Parts<T> {
+
+    private Node<T> left;
+    private Node<T> right;
+  }
+
+  /** In-order cursor keeping pending ancestors on a stack; removal re-seeks the position in O(log n) */
+  private class NodeIterator implements Iterator<T> {
+
+    private final Deque<Node<T>> stack = new ArrayDeque<>();
+    private int nextIndex;
+    private int lastIndex = -1;
+    private int expectedModCount = modCount;
+
+    NodeIterator() {
+      seek(0);
+    }
+
+    /** Pushes the path from the root to the node at the index */
+    private void seek(int index) {
+      stack.clear();
+      Node<T> node = root;
+      while (node != null) {
+        push(node);
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+          stack.push(node);
+          if (index == leftSize) {
+            return;
+          }
+          node = node.left;
+        } else {
+          index -= leftSize + 1;
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node<T> node = stack.pop();
+      for (Node<T> next = node.right; next != null; next = next.left) {
+        push(next);
+        stack.push(next);
+      }
+      lastIndex = nextIndex++;
+      return node.value;
+    }
+
+    @Override
+    public void remove() {
+      if (lastIndex < 0) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      TreapList.this.remove(lastIndex);
+      nextIndex = lastIndex;
+      seek(nextIndex);
+      lastIndex = -1;
+      expectedModCount = modCount;
+    }
+  }
+}
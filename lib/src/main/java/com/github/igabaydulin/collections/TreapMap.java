@@ -2,10 +2,18 @@ package com.github.igabaydulin.collections;
 
 import com.github.igabaydulin.collections.utils.Reference;
 import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
@@ -16,41 +24,108 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 public class TreapMap<K, V> implements ValueTreap<K, V> {
 
+  /** Subtrees smaller than this are processed sequentially by parallel operations */
+  static final int SEQUENTIAL_CUTOFF = 1 << 13;
+
   private final Random random;
   private final Comparator<K> comparator;
+  /** Whether nodes keep no values, values are keys themselves then; used by {@link TreapSet} */
+  private final boolean keysOnly;
+  /** Aggregate kept in every node for its subtree, null if nodes keep no aggregates */
+  private final TreapAggregator<? super K, ? super V, Object> aggregator;
   private Node<K, V> root;
+  /** Holder of subtrees reused by {@link #splitInPlace}, so that in-place splits allocate nothing */
+  private final Parts<K, V> splitParts = new Parts<>();
+
+  /**
+   * The number of structural modifications (insertions and removals) of this map, used by iterators to fail fast
+   */
+  private int modCount;
 
   public TreapMap(long seed) {
     this.random = new Random(seed);
     this.comparator = null;
+    this.keysOnly = false;
+    this.aggregator = null;
   }
 
   public TreapMap() {
     this.random = new Random();
     this.comparator = null;
+    this.keysOnly = false;
+    this.aggregator = null;
   }
 
-  private TreapMap(Node<K, V> node) {
-    this();
-    this.root = node;
+  /**
+   * Creates a map keeping the aggregate of every subtree in its root node, see {@link #aggregate(TreapAggregator,
+   * Object, Object)}. A node costs 8 bytes more and every update recomputes aggregates on its path in O(log n)
+   */
+  public TreapMap(TreapAggregator<? super K, ? super V, ?> aggregator) {
+    this(null, new Random(), null, false, Objects.requireNonNull(aggregator));
   }
 
-  TreapMap(Random random) {
-    this.random = random;
-    this.comparator = null;
+  /** Creates a map keeping aggregates, see {@link #TreapMap(TreapAggregator)} */
+  public TreapMap(long seed, TreapAggregator<? super K, ? super V, ?> aggregator) {
+    this(null, new Random(seed), null, false, Objects.requireNonNull(aggregator));
+  }
+
+  /**
+   * Creates a map with entries of the sorted map, which must use natural ordering as this map does; the treap is built
+   * in O(n), see {@link #fromSorted(Iterable)}
+   *
+   * @throws IllegalArgumentException if the sorted map is ordered by a comparator
+   */
+  public TreapMap(SortedMap<K, ? extends V> map) {
+    this();
+    if (map.comparator() != null) {
+      throw new IllegalArgumentException("Only maps with natural ordering can be copied");
+    }
+
+    buildSorted(map.entrySet().iterator(), Entry::getKey, Entry::getValue);
   }
 
-  private TreapMap(Node<K, V> node, Random random, Comparator<K> comparator) {
+  @SuppressWarnings("unchecked")
+  private TreapMap(
+      Node<K, V> node,
+      Random random,
+      Comparator<K> comparator,
+      boolean keysOnly,
+      TreapAggregator<? super K, ? super V, ?> aggregator) {
     this.random = random;
     this.comparator = comparator;
+    this.keysOnly = keysOnly;
+    this.aggregator = (TreapAggregator<? super K, ? super V, Object>) aggregator;
     this.root = node;
   }
 
+  /**
+   * Creates a map whose nodes keep no values, so every value is the key itself; every entry is put with the key as its
+   * value. It backs {@link TreapSet} with the same algorithms and 8 bytes less per entry
+   */
+  static <K> TreapMap<K, K> keysOnly(Random random) {
+    return new TreapMap<>(null, random, null, true, null);
+  }
+
+  private Node<K, V> newNode(K key, V value, double priority) {
+    if (aggregator != null) {
+      return new AggregateNode<>(key, value, priority, aggregator);
+    }
+    return keysOnly ? new KeyNode<>(key, priority) : new ValueNode<>(key, value, priority);
+  }
+
   @Override
   public V getByIndex(int index) {
     if (index < 0 || index >= size()) {
@@ -61,145 +136,247 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return null;
     }
 
-    return root.getByIndex(index).value;
+    return root.getByIndex(index).getValue();
   }
 
   @Override
-  public V put(K key, V value) {
-    return put(key, value, random.nextDouble());
+  public int rankOf(K key) {
+    return rank(key, false);
   }
 
   @Override
-  public V put(K key, V value, double priority) {
-    if (root == null) {
-      root = new Node<>(key, value, priority, comparator);
-      return null;
-    } else {
-      Node<K, V> node = root;
+  public int countInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    if (compare(from, to) > 0) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
 
-      while (node.getPriority() > priority) {
-        int comparison = node.compare(key);
-        if (comparison == 0) {
-          V previousValue = node.value;
-          node.value = value;
-          return previousValue;
-        } else if (comparison > 0) {
-          if (Objects.isNull(node.getLeft())) {
-            node.setLeft(new Node<>(key, value, priority, comparator));
-            Node.updateParentInfo(node);
-            return null;
-          }
+    return Math.max(0, rank(to, toInclusive) - rank(from, !fromInclusive));
+  }
 
-          node = node.left;
-        } else {
-          if (Objects.isNull(node.getRight())) {
-            node.setRight(new Node<>(key, value, priority, comparator));
-            Node.updateParentInfo(node);
-            return null;
-          }
+  @Override
+  public int indexOfFloor(K key) {
+    return rank(key, true) - 1;
+  }
 
-          node = node.right;
-        }
-      }
+  @Override
+  public int indexOfCeiling(K key) {
+    int rank = rank(key, false);
+    return rank == size() ? -1 : rank;
+  }
 
-      while (true) {
-        int comparison = node.compare(key);
-        if (comparison == 0) {
-          V previousValue = node.value;
-          node.value = value;
-          return previousValue;
-        } else {
-          if (comparison > 0) {
-            if (Objects.isNull(node.getLeft())) {
-              Node<K, V> left = new Node<>(key, value, priority, comparator);
-              node.setLeft(left);
-              node = left;
-              break;
-            } else {
-              node = node.left;
-            }
-          } else {
-            if (Objects.isNull(node.getRight())) {
-              Node<K, V> right = new Node<>(key, value, priority, comparator);
-              node.setRight(right);
-              node = right;
-              break;
-            } else {
-              node = node.right;
-            }
-          }
-        }
-      }
+  @Override
+  public List<Entry<K, V>> subList(int fromIndex, int toIndex) {
+    return new IndexRange<>(fromIndex, toIndex, Function.identity());
+  }
 
-      while (Objects.nonNull(node.getParent())) {
-        Node<K, V> parent = node.getParent();
+  /**
+   * Returns the aggregate of entries with keys from {@code fromKey} inclusive to {@code toKey} exclusive in O(log n)
+   *
+   * @throws IllegalArgumentException if the map does not keep aggregates of the aggregator or {@code fromKey} is
+   *     greater than {@code toKey}
+   */
+  public <A> A aggregate(TreapAggregator<? super K, ? super V, A> aggregator, K fromKey, K toKey) {
+    return aggregate(aggregator, fromKey, true, toKey, false);
+  }
 
-        if (node.getPriority() > parent.getPriority()) {
-          node.setParent(parent.getParent());
-          if (node.compare(parent.getKey()) < 0) {
-            parent.setLeft(node.getRight());
-            node.setRight(parent);
-          } else {
-            parent.setRight(node.getLeft());
-            node.setLeft(parent);
-          }
+  /**
+   * Returns the aggregate of entries with keys between {@code fromKey} and {@code toKey} in O(log n), each bound is
+   * included if its flag is set
+   *
+   * @throws IllegalArgumentException if the map does not keep aggregates of the aggregator or {@code fromKey} is
+   *     greater than {@code toKey}
+   */
+  public <A> A aggregate(
+      TreapAggregator<? super K, ? super V, A> aggregator,
+      K fromKey,
+      boolean fromInclusive,
+      K toKey,
+      boolean toInclusive) {
+    checkAggregator(aggregator);
+    if (compare(fromKey, toKey) > 0) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
 
-          if (Objects.nonNull(node.getParent())) {
-            if (node.getParent().compare(node.getKey()) > 0) {
-              node.getParent().setLeft(node);
-            } else {
-              node.getParent().setRight(node);
-            }
-          }
-        } else {
-          node.updateInfo();
-          node = parent;
-        }
+    int fromIndex = rank(fromKey, !fromInclusive);
+    return aggregateByIndex(aggregator, fromIndex, Math.max(fromIndex, rank(toKey, toInclusive)));
+  }
+
+  /**
+   * Returns the aggregate of entries at positions from {@code fromIndex} inclusive to {@code toIndex} exclusive in
+   * O(log n): subtrees within the range contribute their aggregates as a whole, so at most two paths are descended
+   *
+   * @throws IllegalArgumentException if the map does not keep aggregates of the aggregator
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  @SuppressWarnings("unchecked")
+  public <A> A aggregateByIndex(TreapAggregator<? super K, ? super V, A> aggregator, int fromIndex, int toIndex) {
+    checkAggregator(aggregator);
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return fromIndex == toIndex ? aggregator.identity() : (A) aggregate(root, fromIndex, toIndex);
+  }
+
+  /** Combines aggregates of nodes at positions from {@code from} inclusive to {@code to} exclusive of the subtree */
+  private Object aggregate(Node<K, V> node, int from, int to) {
+    if (from == 0 && to == node.size) {
+      return aggregateOf(node);
+    }
+
+    int leftSize = size(node.left);
+    Object aggregate = aggregator.identity();
+    if (from < leftSize) {
+      aggregate = aggregate(node.left, from, Math.min(to, leftSize));
+    }
+    if (from <= leftSize && leftSize < to) {
+      aggregate = aggregator.combine(aggregate, aggregator.lift(node.key, node.getValue()));
+    }
+    if (to > leftSize + 1) {
+      Object right = aggregate(node.right, Math.max(from - leftSize - 1, 0), to - leftSize - 1);
+      aggregate = aggregator.combine(aggregate, right);
+    }
+    return aggregate;
+  }
+
+  /** Returns the aggregate kept in a node of a map created with an aggregator */
+  static Object aggregateOf(Node<?, ?> node) {
+    return ((AggregateNode<?, ?>) node).aggregate;
+  }
+
+  private void checkAggregator(TreapAggregator<?, ?, ?> aggregator) {
+    if (aggregator == null || aggregator != this.aggregator) {
+      throw new IllegalArgumentException("Map does not keep aggregates of the aggregator");
+    }
+  }
+
+  /** Checks that nodes of the other map may be linked into this map, which requires the same aggregates */
+  private void checkSameAggregator(TreapMap<K, V> other) {
+    if (other.aggregator != aggregator) {
+      throw new IllegalArgumentException("Maps keep different aggregates");
+    }
+  }
+
+  /**
+   * Recomputes aggregates bottom-up on the path to the key after sizes or a value on the path are changed in place;
+   * does nothing if the map keeps no aggregates
+   */
+  private void refreshPath(K key) {
+    if (aggregator == null) {
+      return;
+    }
+
+    Deque<Node<K, V>> path = new ArrayDeque<>();
+    Node<K, V> node = root;
+    while (node != null) {
+      path.push(node);
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        break;
       }
+      node = comparison > 0 ? node.left : node.right;
+    }
+
+    while (!path.isEmpty()) {
+      path.pop().updateInfo();
+    }
+  }
+
+  /** Returns a list view of keys at the indices, see {@link #subList(int, int)} */
+  List<K> keySubList(int fromIndex, int toIndex) {
+    return new IndexRange<>(fromIndex, toIndex, Entry::getKey);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return put(key, value, random.nextDouble());
+  }
+
+  /**
+   * Puts the key top-down: if the key is absent the path is descended (growing subtree sizes) while nodes have higher
+   * priorities, then the remaining subtree is split in place by the key into children of the new node
+   *
+   * <p>Nodes keep priorities as {@code float} to stay compact, so the priority is narrowed: distinct priorities which
+   * round to the same {@code float} are equal, and the shape of the treap may then differ from the one they specify
+   */
+  @Override
+  public V put(K key, V value, double priority) {
+    Node<K, V> existing = find(key);
+    if (existing != null) {
+      V previousValue = existing.getValue();
+      existing.assignValue(value);
+      refreshPath(key);
+      return previousValue;
+    }
+
+    Node<K, V> inserted = newNode(key, value, priority);
+    Node<K, V> parent = null;
+    boolean isLeft = false;
+    Node<K, V> node = root;
+    while (node != null && node.priority > inserted.priority) {
+      ++node.size;
+      parent = node;
+      isLeft = compare(node.key, key) > 0;
+      node = isLeft ? node.left : node.right;
+    }
+
+    splitInto(node, key, inserted);
+    inserted.updateInfo();
+    link(parent, isLeft, inserted);
+    refreshPath(key);
+    ++modCount;
+    return null;
+  }
 
+  /**
+   * Splits the subtree by the absent key in place, the halves become the left and the right child of the target node;
+   * sizes are updated on the way back, so nothing is allocated
+   */
+  private void splitInto(Node<K, V> node, K key, Node<K, V> target) {
+    if (node == null) {
+      target.left = null;
+      target.right = null;
+    } else if (compare(node.key, key) < 0) {
+      splitInto(node.right, key, target);
+      node.right = target.left;
       node.updateInfo();
-      root = node;
-      return null;
+      target.left = node;
+    } else {
+      splitInto(node.left, key, target);
+      node.left = target.right;
+      node.updateInfo();
+      target.right = node;
     }
   }
 
+  /**
+   * Appends the keys, which must be in strictly ascending order and greater than keys of the map: they are built into a
+   * separate treap in O(m), see {@link #buildSorted(Iterator, Function, Function)}, which is joined to the map; the map
+   * is left unchanged if the order is broken. Priorities are narrowed to {@code float}, see {@link #put(Object, Object,
+   * double)}
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order
+   */
   @Override
   public boolean putBack(K[] keys, V[] values, double[] priorities) {
     if (keys.length == 0) {
       return false;
     }
-
-    int index = 0;
-    Node<K, V> back;
-    if (root == null) {
-      put(keys[0], values[0], priorities[0]);
-      back = root;
-      ++index;
-    } else {
-      back = root;
-      while (back.right != null) {
-        back = back.right;
-      }
+    if (root != null && compare(lastKey(), keys[0]) >= 0) {
+      throw new IllegalArgumentException("Keys are not in strictly ascending order");
     }
 
-    while (index < keys.length) {
-      if (back.priority > priorities[index]) {
-        back.setRight(new Node<>(keys[index], values[index], priorities[index], comparator));
-        back = back.right;
-      } else {
-        while (back.parent != null && back.priority < priorities[index]) {
-          back = back.parent;
-        }
-
-        if (back.parent == null) {
-          root = new Node<>(keys[index], values[index], priorities[index], back, null, comparator);
-        } else {
-          back.parent.setRight(new Node<>(keys[index], values[index], priorities[index], back, null, comparator));
-        }
+    Deque<Node<K, V>> spine = new ArrayDeque<>();
+    for (int i = 0; i < keys.length; ++i) {
+      if (!spine.isEmpty() && compare(spine.peek().key, keys[i]) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly ascending order");
       }
-      ++index;
+      append(spine, newNode(keys[i], values[i], priorities[i]));
     }
 
+    root = joinSubtrees(root, collapse(spine));
+    ++modCount;
     return true;
   }
 
@@ -213,43 +390,31 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     return putBack(keys, values, priorities);
   }
 
+  /**
+   * Prepends the keys, which must be in strictly descending order and less than keys of the map, see {@link
+   * #putBack(Object[], Object[], double[])}
+   *
+   * @throws IllegalArgumentException if keys are not in strictly descending order
+   */
   @Override
   public boolean putFront(K[] keys, V[] values, double[] priorities) {
     if (keys.length == 0) {
       return false;
     }
-
-    int index = 0;
-    Node<K, V> back;
-    if (root == null) {
-      put(keys[0], values[0], priorities[0]);
-      back = root;
-      ++index;
-    } else {
-      back = root;
-      while (back.left != null) {
-        back = back.left;
-      }
+    if (root != null && compare(keys[0], firstKey()) >= 0) {
+      throw new IllegalArgumentException("Keys are not in strictly descending order");
     }
 
-    while (index < keys.length) {
-      if (back.priority > priorities[index]) {
-        back.setLeft(new Node<>(keys[index], values[index], priorities[index], comparator));
-        back = back.left;
-      } else {
-        while (back.parent != null && back.priority < priorities[index]) {
-          back = back.parent;
-        }
-
-        if (back.parent == null) {
-          root = new Node<>(keys[index], values[index], priorities[index], null, back, comparator);
-        } else {
-          back.parent.setLeft(new Node<>(keys[index], values[index], priorities[index], null, back, comparator));
-        }
+    Deque<Node<K, V>> spine = new ArrayDeque<>();
+    for (int i = keys.length - 1; i >= 0; --i) {
+      if (!spine.isEmpty() && compare(spine.peek().key, keys[i]) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly descending order");
       }
-      ++index;
+      append(spine, newNode(keys[i], values[i], priorities[i]));
     }
 
+    root = joinSubtrees(collapse(spine), root);
+    ++modCount;
     return true;
   }
 
@@ -265,7 +430,21 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
   @Override
   public boolean contains(K value) {
-    return get(value) != null;
+    return find(value) != null;
+  }
+
+  /** Returns the node with the given key, using a single comparison per level */
+  private Node<K, V> find(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        return node;
+      }
+      node = comparison > 0 ? node.left : node.right;
+    }
+
+    return null;
   }
 
   @SuppressWarnings("unchecked")
@@ -275,20 +454,121 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return null;
     }
 
-    return root.get((K) key);
+    Node<K, V> node = find((K) key);
+    return node == null ? null : node.getValue();
   }
 
+  /**
+   * Removes the key in place: once the key is found, the path to it is descended again shrinking subtree sizes and the
+   * node is replaced by the join of its subtrees, so no node is allocated
+   */
   @SuppressWarnings("unchecked")
   @Override
   public V remove(Object key) {
-    if (isEmpty()) {
+    Node<K, V> node = find((K) key);
+    if (node == null) {
       return null;
     }
 
-    Reference<V> removedValue = new Reference<>();
-    root = root.delete((K) key, removedValue);
+    Node<K, V> parent = null;
+    boolean isLeft = false;
+    Node<K, V> current = root;
+    while (current != node) {
+      --current.size;
+      parent = current;
+      isLeft = compare(current.key, node.key) > 0;
+      current = isLeft ? current.left : current.right;
+    }
+
+    link(parent, isLeft, joinSubtrees(node.left, node.right));
+    refreshPath(node.key);
+    node.left = null;
+    node.right = null;
+    ++modCount;
+    return node.getValue();
+  }
+
+  /**
+   * Removes the entry at the given position in ascending key order
+   *
+   * @return the removed entry
+   */
+  public Entry<K, V> removeAt(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    Node<K, V> node = root.getByIndex(index);
+    remove(node.key);
+    return node;
+  }
+
+  /**
+   * Removes entries at positions from {@code fromIndex} inclusive to {@code toIndex} exclusive in O(log n) however many
+   * they are: the treap is split in place by both positions (guided by subtree sizes) and the outer parts are joined
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  public void removeRange(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (fromIndex == toIndex) {
+      return;
+    }
+
+    Parts<K, V> parts = new Parts<>();
+    splitSubtreeAt(root, toIndex, parts);
+    Node<K, V> right = parts.right;
+    splitSubtreeAt(parts.left, fromIndex, parts);
+    root = joinSubtrees(parts.left, right);
+    ++modCount;
+  }
+
+  /**
+   * Removes keys between {@code fromKey} and {@code toKey} in O(log n), each bound is removed if its flag is set, see
+   * {@link #removeRange(int, int)}
+   *
+   * @return the number of removed keys
+   * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+   */
+  public int removeRange(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    int count = countInRange(fromKey, fromInclusive, toKey, toInclusive);
+    int fromIndex = rank(fromKey, !fromInclusive);
+    removeRange(fromIndex, fromIndex + count);
+    return count;
+  }
+
+  /** Splits the subtree in place into its first {@code count} nodes and the rest, the left and right parts */
+  private static <K, V> void splitSubtreeAt(Node<K, V> node, int count, Parts<K, V> parts) {
+    if (node == null) {
+      parts.left = null;
+      parts.right = null;
+      return;
+    }
+
+    int leftSize = size(node.left);
+    if (leftSize < count) {
+      splitSubtreeAt(node.right, count - leftSize - 1, parts);
+      node.setRight(parts.left);
+      parts.left = node;
+    } else {
+      splitSubtreeAt(node.left, count, parts);
+      node.setLeft(parts.right);
+      parts.right = node;
+    }
+  }
 
-    return removedValue.get();
+  /** Makes the child a left (or right) child of the parent or a root if there is no parent */
+  private void link(Node<K, V> parent, boolean isLeft, Node<K, V> child) {
+    if (parent == null) {
+      root = child;
+    } else if (isLeft) {
+      parent.left = child;
+    } else {
+      parent.right = child;
+    }
   }
 
   @Override
@@ -300,92 +580,622 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return false;
     }
 
-    Reference<Node<K, V>> leftNode = new Reference<>();
-    Reference<Node<K, V>> rightNode = new Reference<>();
-
-    boolean contains = root.split(value, leftNode, rightNode, inclusion);
+    Parts<K, V> parts = new Parts<>();
+    boolean contains = splitCopy(root, value, inclusion, parts);
 
-    left.set(new TreapMap<>(leftNode.get(), random, comparator));
-    right.set(new TreapMap<>(rightNode.get(), random, comparator));
+    left.set(new TreapMap<>(parts.left, random, comparator, keysOnly, aggregator));
+    right.set(new TreapMap<>(parts.right, random, comparator, keysOnly, aggregator));
 
     return contains;
   }
 
-  @Override
-  public TreapMap<K, V> merge(ValueTreap<K, V> right) {
-    return new TreapMap<>(Node.merge(this.root, ((TreapMap<K, V>) right).root));
-  }
+  /** Splits the subtree by the key copying the nodes on the path, so the subtree itself is left unchanged */
+  private boolean splitCopy(Node<K, V> node, K key, Inclusion inclusion, Parts<K, V> parts) {
+    if (node == null) {
+      parts.left = null;
+      parts.right = null;
+      return false;
+    }
 
-  @Override
-  public int size() {
-    if (Objects.isNull(root)) {
-      return 0;
+    int comparison = compare(node.key, key);
+    if (comparison < 0) {
+      boolean contains = splitCopy(node.right, key, inclusion, parts);
+      parts.left = node.copy(node.left, parts.left);
+      return contains;
+    } else if (comparison > 0) {
+      boolean contains = splitCopy(node.left, key, inclusion, parts);
+      parts.right = node.copy(parts.right, node.right);
+      return contains;
     }
 
-    return root.getSize();
+    parts.left = node.left;
+    parts.right = node.right;
+    if (inclusion == Inclusion.LEFT) {
+      parts.left = node.copy(node.left, null);
+    } else if (inclusion == Inclusion.RIGHT) {
+      parts.right = node.copy(null, node.right);
+    }
+    return true;
   }
 
   @Override
-  public int height() {
-    if (Objects.isNull(root)) {
-      return 0;
+  public TreapMap<K, V> merge(ValueTreap<K, V> right) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) right;
+    checkSameAggregator(treapMap);
+    return new TreapMap<>(Node.merge(root, treapMap.root), random, comparator, keysOnly, aggregator);
+  }
+
+  /**
+   * Splits this map in place: existing nodes are relinked instead of being copied and the subtrees are collected into a
+   * holder reused by this map, so nothing is allocated. This map keeps the keys less than the key and the {@code right}
+   * map receives the keys greater than the key; the key itself goes according to the inclusion (and is dropped from
+   * both maps for {@link Inclusion#NONE})
+   *
+   * <p>Previous content of the {@code right} map is discarded, so the same map can be reused for repeated splits. It is
+   * expected to use the same ordering as this map
+   *
+   * @return true if this map contained the key
+   * @throws IllegalArgumentException if the {@code right} map is this map
+   */
+  public boolean splitInPlace(K key, TreapMap<K, V> right, Inclusion inclusion) {
+    if (right == this) {
+      throw new IllegalArgumentException("Map cannot be split into itself");
     }
+    checkSameAggregator(right);
+    Parts<K, V> parts = splitParts;
+    splitSubtree(root, key, parts);
 
-    return root.getHeight();
-  }
+    Node<K, V> middle = parts.middle;
+    if (middle != null && inclusion == Inclusion.LEFT) {
+      parts.left = joinSubtrees(parts.left, middle);
+    } else if (middle != null && inclusion == Inclusion.RIGHT) {
+      parts.right = joinSubtrees(middle, parts.right);
+    }
 
-  Node<K, V> getRoot() {
-    return root;
+    root = parts.left;
+    right.root = parts.right;
+    parts.left = null;
+    parts.middle = null;
+    parts.right = null;
+    ++modCount;
+    ++right.modCount;
+    return middle != null;
   }
 
-  Random getRandom() {
-    return random;
+  /**
+   * Merges the {@code right} map into this one in place by relinking the existing nodes; the {@code right} map becomes
+   * empty. All keys of this map must be less than keys of the {@code right} map
+   */
+  public void mergeInPlace(TreapMap<K, V> right) {
+    if (right == this) {
+      throw new IllegalArgumentException("Map cannot be merged with itself");
+    }
+    checkSameAggregator(right);
+
+    root = joinSubtrees(root, right.root);
+    right.root = null;
+    ++modCount;
+    ++right.modCount;
   }
 
-  @Override
-  public boolean isEmpty() {
-    return root == null;
+  /**
+   * Merges the {@code left} map into this one in place as {@link #mergeInPlace(TreapMap)} does, but keeps this map
+   * instance, so its views and iterators stay attached. All keys of the {@code left} map must be less than keys of this
+   * map
+   */
+  void prependInPlace(TreapMap<K, V> left) {
+    if (left == this) {
+      throw new IllegalArgumentException("Map cannot be merged with itself");
+    }
+    checkSameAggregator(left);
+
+    root = joinSubtrees(left.root, root);
+    left.root = null;
+    ++modCount;
+    ++left.modCount;
   }
 
   @Override
-  @SuppressWarnings("unchecked")
-  public boolean containsKey(Object key) {
-    return contains((K) key);
+  public boolean union(ValueTreap<K, V> other) {
+    return union(other, (value, otherValue) -> otherValue);
   }
 
+  /**
+   * Adds entries of the other map: the root with the higher priority stays the root, the other treap is split in place
+   * by its key and the halves are united with its subtrees recursively. Nodes of the other map are copied first, so it
+   * is not changed, and the copy is linear in its size. Hence the union takes O(m log(n/m + 1)) expected time, where m
+   * and n are sizes of the smaller and the larger map, only if the other map is the smaller one, and O(n + m) if it is
+   * the larger one, as each of its entries becomes a new node of this map
+   *
+   * <p>The other map is expected to use the same ordering as this map
+   */
   @Override
-  public boolean containsValue(Object value) {
-    if (root == null) {
+  public boolean union(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this || treapMap.isEmpty()) {
       return false;
     }
+    checkSameAggregator(treapMap);
 
-    Queue<Node<K, V>> queue = new LinkedList<>();
-    queue.add(root);
-    while (!queue.isEmpty()) {
-      Node<K, V> node = queue.poll();
-      if (Objects.equals(node.getValue(), value)) {
-        return true;
-      }
-      if (node.left != null) {
-        queue.add(node.left);
-      }
-
-      if (node.right != null) {
-        queue.add(node.right);
-      }
-    }
-
-    return false;
+    int size = size();
+    setRoot(union(root, copy(treapMap.root), false, combine, new Parts<>()));
+    return size != size();
   }
 
   @Override
-  public void putAll(Map<? extends K, ? extends V> m) {
-    m.forEach(this::put);
+  public boolean intersect(ValueTreap<K, V> other) {
+    return intersect(other, (value, otherValue) -> value);
   }
 
+  /**
+   * Retains keys of the other map: this treap is split in place by the other's root key and the halves are intersected
+   * with its subtrees recursively, so the other map is only read. Takes O(m log(n/m + 1)) expected time
+   *
+   * <p>The other map is expected to use the same ordering as this map
+   */
   @Override
-  public void clear() {
-    root = null;
+  public boolean intersect(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this || isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    setRoot(intersect(root, treapMap.root, combine, new Parts<>()));
+    return size != size();
+  }
+
+  /**
+   * Removes keys of the other map: this treap is split in place by the other's root key, the other's subtrees are
+   * removed from the halves recursively and the halves are joined back, so the other map is only read. Takes O(m
+   * log(n/m + 1)) expected time
+   *
+   * <p>The other map is expected to use the same ordering as this map
+   */
+  @Override
+  public boolean difference(ValueTreap<K, V> other) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this) {
+      boolean changed = !isEmpty();
+      clear();
+      return changed;
+    }
+    if (isEmpty() || treapMap.isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    setRoot(difference(root, treapMap.root, new Parts<>()));
+    return size != size();
+  }
+
+  /**
+   * Parallel version of {@link #union(ValueTreap, BiFunction)}: the two recursive calls of every step work on disjoint
+   * subtrees, so they are forked to the pool until both operands are smaller than {@link #SEQUENTIAL_CUTOFF}
+   */
+  public boolean union(
+      ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine, ForkJoinPool pool) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this || treapMap.isEmpty()) {
+      return false;
+    }
+    checkSameAggregator(treapMap);
+
+    int size = size();
+    Node<K, V> copy = pool.invoke(new CopyTask<>(treapMap.root));
+    setRoot(pool.invoke(new SetOperationTask(SetOperation.UNION, root, copy, false, combine)));
+    return size != size();
+  }
+
+  /**
+   * Parallel version of {@link #intersect(ValueTreap, BiFunction)}, see {@link #union(ValueTreap, BiFunction,
+   * ForkJoinPool)}
+   */
+  public boolean intersect(
+      ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine, ForkJoinPool pool) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this || isEmpty()) {
+      return false;
+    }
+
+    int size = size();
+    setRoot(pool.invoke(new SetOperationTask(SetOperation.INTERSECT, root, treapMap.root, false, combine)));
+    return size != size();
+  }
+
+  /** Parallel version of {@link #difference(ValueTreap)}, see {@link #union(ValueTreap, BiFunction, ForkJoinPool)} */
+  public boolean difference(ValueTreap<K, V> other, ForkJoinPool pool) {
+    TreapMap<K, V> treapMap = (TreapMap<K, V>) other;
+    if (treapMap == this || isEmpty() || treapMap.isEmpty()) {
+      return difference(other);
+    }
+
+    int size = size();
+    setRoot(pool.invoke(new SetOperationTask(SetOperation.DIFFERENCE, root, treapMap.root, false, null)));
+    return size != size();
+  }
+
+  private static int size(Node<?, ?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private void setRoot(Node<K, V> node) {
+    root = node;
+    ++modCount;
+  }
+
+  private static <K, V> Node<K, V> copy(Node<K, V> node) {
+    if (node == null) {
+      return null;
+    }
+
+    return node.copy(copy(node.left), copy(node.right));
+  }
+
+  private Node<K, V> union(
+      Node<K, V> node,
+      Node<K, V> other,
+      boolean swapped,
+      BiFunction<? super V, ? super V, ? extends V> combine,
+      Parts<K, V> parts) {
+    if (node == null) {
+      return other;
+    } else if (other == null) {
+      return node;
+    } else if (node.priority < other.priority) {
+      return union(other, node, !swapped, combine, parts);
+    }
+
+    splitSubtree(other, node.key, parts);
+    Node<K, V> left = parts.left;
+    Node<K, V> right = parts.right;
+    if (parts.middle != null) {
+      V value = parts.middle.getValue();
+      node.assignValue(swapped ? combine.apply(value, node.getValue()) : combine.apply(node.getValue(), value));
+    }
+
+    node.setLeft(union(node.left, left, swapped, combine, parts));
+    node.setRight(union(node.right, right, swapped, combine, parts));
+    return node;
+  }
+
+  private Node<K, V> intersect(
+      Node<K, V> node, Node<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine, Parts<K, V> parts) {
+    if (node == null || other == null) {
+      return null;
+    }
+
+    splitSubtree(node, other.key, parts);
+    Node<K, V> middle = parts.middle;
+    Node<K, V> right = parts.right;
+    Node<K, V> left = intersect(parts.left, other.left, combine, parts);
+    right = intersect(right, other.right, combine, parts);
+    if (middle == null) {
+      return joinSubtrees(left, right);
+    }
+
+    middle.assignValue(combine.apply(middle.getValue(), other.getValue()));
+    return joinSubtrees(joinSubtrees(left, middle), right);
+  }
+
+  private Node<K, V> difference(Node<K, V> node, Node<K, V> other, Parts<K, V> parts) {
+    if (node == null || other == null) {
+      return node;
+    }
+
+    splitSubtree(node, other.key, parts);
+    Node<K, V> right = parts.right;
+    Node<K, V> left = difference(parts.left, other.left, parts);
+    return joinSubtrees(left, difference(right, other.right, parts));
+  }
+
+  /**
+   * Splits the subtree in place into keys less than the key, the node with the key (detached from its children) and
+   * keys greater than the key
+   */
+  private void splitSubtree(Node<K, V> node, K key, Parts<K, V> parts) {
+    if (node == null) {
+      parts.left = null;
+      parts.middle = null;
+      parts.right = null;
+      return;
+    }
+
+    int comparison = compare(node.key, key);
+    if (comparison < 0) {
+      splitSubtree(node.right, key, parts);
+      node.setRight(parts.left);
+      parts.left = node;
+    } else if (comparison > 0) {
+      splitSubtree(node.left, key, parts);
+      node.setLeft(parts.right);
+      parts.right = node;
+    } else {
+      parts.left = node.left;
+      parts.middle = node;
+      parts.right = node.right;
+      node.left = null;
+      node.right = null;
+      node.updateInfo();
+    }
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree must be less than keys of the right one */
+  private static <K, V> Node<K, V> joinSubtrees(Node<K, V> left, Node<K, V> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      left.setRight(joinSubtrees(left.right, right));
+      return left;
+    }
+
+    right.setLeft(joinSubtrees(left, right.left));
+    return right;
+  }
+
+  /**
+   * Creates a map from entries in strictly ascending key order in O(n), see {@link #buildSorted(Iterator, Function,
+   * Function)}
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order
+   */
+  public static <K, V> TreapMap<K, V> fromSorted(Iterable<? extends Entry<? extends K, ? extends V>> entries) {
+    TreapMap<K, V> map = new TreapMap<>();
+    map.buildSorted(entries.iterator(), Entry::getKey, Entry::getValue);
+    return map;
+  }
+
+  /**
+   * Replaces content of the map with items in strictly ascending key order. The treap is built as a Cartesian tree from
+   * left to right keeping its right spine on a stack: every new node pops the spine nodes with lower priorities, which
+   * become its left subtree, and is appended to the spine. Every node is pushed and popped once, so it takes O(n) time
+   * and a single comparison per key, which is used to validate the order
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order; the map is left unchanged
+   */
+  <T> void buildSorted(
+      Iterator<? extends T> items, Function<? super T, ? extends K> keyOf, Function<? super T, ? extends V> valueOf) {
+    buildSorted(items, keyOf, valueOf, item -> random.nextDouble());
+  }
+
+  /**
+   * Replaces content of the map with items in strictly ascending key order and their priorities, so items taken from a
+   * treap in order with priorities are built into a treap of the same shape, see {@link #buildSorted(Iterator,
+   * Function, Function)}; used by {@link TreapCodec}
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order; the map is left unchanged
+   */
+  <T> void buildSorted(
+      Iterator<? extends T> items,
+      Function<? super T, ? extends K> keyOf,
+      Function<? super T, ? extends V> valueOf,
+      ToDoubleFunction<? super T> priorityOf) {
+    root = buildSubtree(items, keyOf, valueOf, priorityOf);
+    ++modCount;
+  }
+
+  private <T> Node<K, V> buildSubtree(
+      Iterator<? extends T> items,
+      Function<? super T, ? extends K> keyOf,
+      Function<? super T, ? extends V> valueOf,
+      ToDoubleFunction<? super T> priorityOf) {
+    Deque<Node<K, V>> spine = new ArrayDeque<>();
+    while (items.hasNext()) {
+      T item = items.next();
+      Node<K, V> node = newNode(keyOf.apply(item), valueOf.apply(item), priorityOf.applyAsDouble(item));
+      if (!spine.isEmpty() && compare(spine.peek().key, node.key) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly ascending order");
+      }
+      append(spine, node);
+    }
+
+    return collapse(spine);
+  }
+
+  /**
+   * Appends the node, which is greater than nodes of the spine, to the right spine of the treap under construction: the
+   * spine nodes with lower priorities are popped and become the left subtree of the node
+   */
+  private static <K, V> void append(Deque<Node<K, V>> spine, Node<K, V> node) {
+    Node<K, V> left = null;
+    while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+      left = spine.pop();
+      left.updateInfo();
+    }
+
+    node.left = left;
+    if (!spine.isEmpty()) {
+      spine.peek().right = node;
+    }
+    spine.push(node);
+  }
+
+  /** Completes the treap under construction by updating sizes along its right spine and returns its root */
+  private static <K, V> Node<K, V> collapse(Deque<Node<K, V>> spine) {
+    Node<K, V> node = null;
+    while (!spine.isEmpty()) {
+      node = spine.pop();
+      node.updateInfo();
+    }
+
+    return node;
+  }
+
+  /**
+   * Creates a map from entries in strictly ascending key order using the pool: the list is divided into ranges of at
+   * most {@link #SEQUENTIAL_CUTOFF} entries which are built in parallel (see {@link #fromSorted(Iterable)}) and joined
+   * back in O(log n) each
+   *
+   * @throws IllegalArgumentException if keys are not in strictly ascending order
+   */
+  public static <K, V> TreapMap<K, V> fromSorted(
+      List<? extends Entry<? extends K, ? extends V>> entries, ForkJoinPool pool) {
+    TreapMap<K, V> map = new TreapMap<>();
+    map.root = pool.invoke(map.new BuildTask<>(entries, 0, entries.size(), Entry::getKey, Entry::getValue));
+    return map;
+  }
+
+  /** Builds {@link TreapSet} content in parallel, see {@link #fromSorted(List, ForkJoinPool)} */
+  static <K> TreapMap<K, K> fromSortedKeys(List<? extends K> keys, ForkJoinPool pool) {
+    TreapMap<K, K> map = keysOnly(new Random());
+    map.root = pool.invoke(map.new BuildTask<>(keys, 0, keys.size(), Function.identity(), Function.identity()));
+    return map;
+  }
+
+  @Override
+  public int size() {
+    if (Objects.isNull(root)) {
+      return 0;
+    }
+
+    return root.getSize();
+  }
+
+  /**
+   * Returns the height of the treap. Nodes do not keep their heights, so the treap is traversed level by level in O(n)
+   * time; the method is meant for diagnostics and tests
+   */
+  @Override
+  public int height() {
+    int height = 0;
+    Deque<Node<K, V>> level = new ArrayDeque<>();
+    if (root != null) {
+      level.add(root);
+    }
+
+    while (!level.isEmpty()) {
+      ++height;
+      for (int count = level.size(); count > 0; --count) {
+        Node<K, V> node = level.poll();
+        if (node.left != null) {
+          level.add(node.left);
+        }
+        if (node.right != null) {
+          level.add(node.right);
+        }
+      }
+    }
+
+    return height;
+  }
+
+  Node<K, V> getRoot() {
+    return root;
+  }
+
+  /** Returns the priority of an entry of this map, entries of the entry set are the nodes themselves */
+  static double priorityOf(Entry<?, ?> entry) {
+    return ((Node<?, ?>) entry).priority;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(K key1, K key2) {
+    if (comparator == null) {
+      return ((Comparable<K>) key1).compareTo(key2);
+    }
+    return comparator.compare(key1, key2);
+  }
+
+  /** Returns the number of keys which are less than (or equal to, if {@code inclusive} is true) the given key */
+  private int rank(K key, boolean inclusive) {
+    int rank = 0;
+    Node<K, V> node = root;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison < 0 || (inclusive && comparison == 0)) {
+        rank += (node.left == null ? 0 : node.left.size) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+
+    return rank;
+  }
+
+  Random getRandom() {
+    return random;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean containsKey(Object key) {
+    return contains((K) key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    if (root == null) {
+      return false;
+    }
+
+    Queue<Node<K, V>> queue = new LinkedList<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      Node<K, V> node = queue.poll();
+      if (Objects.equals(node.getValue(), value)) {
+        return true;
+      }
+      if (node.left != null) {
+        queue.add(node.left);
+      }
+
+      if (node.right != null) {
+        queue.add(node.right);
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    if (m instanceof SortedMap && putAllSorted((SortedMap<? extends K, ? extends V>) m)) {
+      return;
+    }
+
+    m.forEach(this::put);
+  }
+
+  /**
+   * Puts entries of a sorted map with the same ordering in O(n + m) if all of its keys are less or greater than keys of
+   * this map: the new entries are built into a separate treap which is merged in place
+   *
+   * @return false if the map is not applicable, nothing is changed then
+   */
+  private boolean putAllSorted(SortedMap<? extends K, ? extends V> m) {
+    if (!Objects.equals(m.comparator(), comparator) || m.isEmpty()) {
+      return false;
+    }
+
+    boolean append = isEmpty() || ceilingKey(m.firstKey()) == null;
+    if (!append && floorKey(m.lastKey()) != null) {
+      return false;
+    }
+
+    TreapMap<K, V> treapMap = new TreapMap<>(null, random, comparator, keysOnly, aggregator);
+    treapMap.buildSorted(m.entrySet().iterator(), Entry::getKey, Entry::getValue);
+    if (append) {
+      mergeInPlace(treapMap);
+    } else {
+      prependInPlace(treapMap);
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+    ++modCount;
   }
 
   @Override
@@ -408,7 +1218,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     Node<K, V> node = root;
     Node<K, V> result = null;
     while (node != null) {
-      if (node.compare(key) < 0) {
+      if (compare(node.key, key) < 0) {
         result = node;
         node = node.right;
       } else {
@@ -434,9 +1244,10 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     Node<K, V> node = root;
     Node<K, V> result = null;
     while (node != null) {
-      if (node.compare(key) == 0) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
         return node;
-      } else if (node.compare(key) < 0) {
+      } else if (comparison < 0) {
         result = node;
         node = node.right;
       } else {
@@ -462,9 +1273,10 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     Node<K, V> node = root;
     Node<K, V> result = null;
     while (node != null) {
-      if (node.compare(key) == 0) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
         return node;
-      } else if (node.compare(key) > 0) {
+      } else if (comparison > 0) {
         result = node;
         node = node.left;
       } else {
@@ -490,7 +1302,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     Node<K, V> node = root;
     Node<K, V> result = null;
     while (node != null) {
-      if (node.compare(key) > 0) {
+      if (compare(node.key, key) > 0) {
         result = node;
         node = node.left;
       } else {
@@ -539,33 +1351,47 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     return node;
   }
 
-  @SuppressWarnings("Duplicates")
+  /** Removes the leftmost node descending along the left spine and shrinking subtree sizes on the way */
   @Override
   public Node<K, V> pollFirstEntry() {
-    Node<K, V> node = firstEntry();
-    if (node != null) {
-      if (node == root) {
-        root = root.right;
-      } else {
-        node.parent.setLeft(node.right);
-        Node.updateParentInfo(node.parent);
-      }
+    if (root == null) {
+      return null;
+    }
+
+    Node<K, V> parent = null;
+    Node<K, V> node = root;
+    while (node.left != null) {
+      --node.size;
+      parent = node;
+      node = node.left;
     }
+
+    link(parent, true, node.right);
+    refreshPath(node.key);
+    node.right = null;
+    ++modCount;
     return node;
   }
 
-  @SuppressWarnings("Duplicates")
+  /** Removes the rightmost node, see {@link #pollFirstEntry()} */
   @Override
   public Node<K, V> pollLastEntry() {
-    Node<K, V> node = lastEntry();
-    if (node != null) {
-      if (node == root) {
-        root = root.left;
-      } else {
-        node.parent.setRight(node.getLeft());
-        Node.updateParentInfo(node.parent);
-      }
+    if (root == null) {
+      return null;
+    }
+
+    Node<K, V> parent = null;
+    Node<K, V> node = root;
+    while (node.right != null) {
+      --node.size;
+      parent = node;
+      node = node.right;
     }
+
+    link(parent, false, node.left);
+    refreshPath(node.key);
+    node.left = null;
+    ++modCount;
     return node;
   }
 
@@ -584,46 +1410,53 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     return new DescendingKeySet();
   }
 
+  /**
+   * Returns a live view of the portion of this map whose keys range from {@code fromKey} to {@code toKey}
+   *
+   * <p>The view is a range-checked wrapper over this map: it is created in O(1), writes through to this map and
+   * computes its size in O(log n) from subtree sizes
+   *
+   * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+   */
   @Override
-  public TreapMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
-    return tailMap(fromKey, fromInclusive).headMap(toKey, toInclusive);
+  public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
   }
 
+  /**
+   * Returns a live view of the portion of this map whose keys are less than (or equal to, if {@code inclusive} is
+   * true) {@code toKey}
+   *
+   * @see #subMap(Object, boolean, Object, boolean)
+   */
   @Override
-  public TreapMap<K, V> headMap(K toKey, boolean inclusive) {
-    Reference<ValueTreap<K, V>> left = new Reference<>();
-    if (inclusive) {
-      split(toKey, left, new Reference<>(), Inclusion.LEFT);
-    } else {
-      split(toKey, left, new Reference<>(), Inclusion.NONE);
-    }
-    return (TreapMap<K, V>) left.get();
+  public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    return new SubMap(true, null, false, false, toKey, inclusive, false);
   }
 
+  /**
+   * Returns a live view of the portion of this map whose keys are greater than (or equal to, if {@code inclusive} is
+   * true) {@code fromKey}
+   *
+   * @see #subMap(Object, boolean, Object, boolean)
+   */
   @Override
-  public TreapMap<K, V> tailMap(K fromKey, boolean inclusive) {
-    Reference<ValueTreap<K, V>> right = new Reference<>();
-    if (inclusive) {
-      split(fromKey, new Reference<>(), right, Inclusion.RIGHT);
-    } else {
-      split(fromKey, new Reference<>(), right, Inclusion.NONE);
-    }
-
-    return (TreapMap<K, V>) right.get();
+  public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    return new SubMap(false, fromKey, inclusive, true, null, false, false);
   }
 
   @Override
-  public TreapMap<K, V> subMap(K fromKey, K toKey) {
+  public NavigableMap<K, V> subMap(K fromKey, K toKey) {
     return subMap(fromKey, true, toKey, false);
   }
 
   @Override
-  public TreapMap<K, V> headMap(K toKey) {
+  public NavigableMap<K, V> headMap(K toKey) {
     return headMap(toKey, false);
   }
 
   @Override
-  public TreapMap<K, V> tailMap(K fromKey) {
+  public NavigableMap<K, V> tailMap(K fromKey) {
     return tailMap(fromKey, true);
   }
 
@@ -662,60 +1495,34 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     return node.key;
   }
 
-  static class Node<K, V> implements Entry<K, V> {
-
-    private Comparator<K> comparator;
+  /**
+   * Treap node. The layout is kept compact: the comparator is stored once on the map and keys are compared through
+   * {@link TreapMap#compare(Object, Object)}, there are neither parent links nor heights, since every algorithm tracks
+   * its path top-down, and the priority is stored as a float. The conversion from double keeps the order of priorities
+   * (equal floats only make ties, which are allowed in the heap), so a node of a map costs as much as a {@link
+   * java.util.TreeMap} entry and a key-only node of a set is 8 bytes smaller
+   */
+  abstract static class Node<K, V> implements Entry<K, V> {
 
-    private K key;
-    private Comparable<K> comparable;
-    private V value;
-    private double priority;
+    private final K key;
+    private final float priority;
 
     private Node<K, V> left;
     private Node<K, V> right;
 
-    private Node<K, V> parent;
-
     private int size;
-    private int height;
 
-    @SuppressWarnings("unchecked")
-    Node(K key, V value, double priority, Comparator<K> comparator) {
-      this.comparator = comparator;
+    Node(K key, double priority) {
       this.key = key;
-      this.comparable = (comparator == null) ? (Comparable<K>) key : null;
-      this.value = value;
-      this.priority = priority;
+      this.priority = (float) priority;
       this.size = 1;
-      this.height = 1;
-    }
-
-    Node(K key, V value, double priority, Node<K, V> left, Node<K, V> right, Comparator<K> comparator) {
-      this(key, value, priority, comparator);
-      setLeft(left);
-      setRight(right);
-    }
-
-    private int compare(K key) {
-      if (comparator == null) {
-        return comparable.compareTo(key);
-      }
-      return comparator.compare(this.key, key);
     }
 
-    private V get(K key) {
-      if (key.equals(this.getKey())) {
-        return this.value;
-      }
-
-      if (this.compare(key) < 0 && Objects.nonNull(getRight())) {
-        return getRight().get(key);
-      } else if (Objects.nonNull(getLeft())) {
-        return getLeft().get(key);
-      }
+    /** Creates a node with the same key, value and priority but with the given children */
+    abstract Node<K, V> copy(Node<K, V> left, Node<K, V> right);
 
-      return null;
-    }
+    /** Replaces the value of the node, which is ignored by key-only nodes */
+    abstract void assignValue(V value);
 
     Node<K, V> getByIndex(int index) {
       if (index < 0 || index >= size) {
@@ -736,26 +1543,6 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       }
     }
 
-    static <K, V> void updateParentInfo(Node<K, V> node) {
-      while (Objects.nonNull(node.getParent())) {
-        node.getParent().updateInfo();
-        node = node.getParent();
-      }
-    }
-
-    Node<K, V> delete(K key, Reference<V> removedValue) {
-      if (Objects.equals(key, this.getKey())) {
-        removedValue.set(this.value);
-        return merge(this.getLeft(), this.getRight());
-      } else if (this.compare(key) < 0 && Objects.nonNull(this.getRight())) {
-        setRight(getRight().delete(key, removedValue));
-      } else if (Objects.nonNull(this.getLeft())) {
-        setLeft(getLeft().delete(key, removedValue));
-      }
-
-      return this;
-    }
-
     static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
       if (Objects.isNull(left)) {
         return right;
@@ -764,74 +1551,19 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       }
 
       if (left.getPriority() > right.getPriority()) {
-        return new Node<>(
-            left.getKey(),
-            left.value,
-            left.getPriority(),
-            left.getLeft(),
-            merge(left.getRight(), right),
-            left.comparator);
+        return left.copy(left.getLeft(), merge(left.getRight(), right));
       } else {
-        return new Node<>(
-            right.getKey(),
-            right.value,
-            right.getPriority(),
-            merge(left, right.getLeft()),
-            right.getRight(),
-            left.comparator);
+        return right.copy(merge(left, right.getLeft()), right.getRight());
       }
     }
 
-    boolean split(K key, Reference<Node<K, V>> leftRef, Reference<Node<K, V>> rightRef, Inclusion inclusion) {
-      int comparison = this.compare(key);
-      if (comparison < 0 || (Inclusion.LEFT.equals(inclusion) && comparison == 0)) {
-        if (Objects.isNull(this.getRight())) {
-          leftRef.set(this);
-          return false;
-        } else {
-          Reference<Node<K, V>> leftRight = new Reference<>();
-          Reference<Node<K, V>> right = new Reference<>();
-
-          boolean result = this.getRight().split(key, leftRight, right, inclusion);
-          leftRef.set(
-              new Node<>(this.getKey(), this.value, this.getPriority(), this.getLeft(), leftRight.get(), comparator));
-          rightRef.set(right.get());
-          return result;
-        }
-      } else if (comparison > 0 || Inclusion.RIGHT.equals(inclusion)) {
-        if (Objects.isNull(this.getLeft())) {
-          rightRef.set(this);
-          return false;
-        } else {
-          Reference<Node<K, V>> left = new Reference<>();
-          Reference<Node<K, V>> rightLeft = new Reference<>();
-
-          boolean result = this.getLeft().split(key, left, rightLeft, inclusion);
-          leftRef.set(left.get());
-          rightRef.set(
-              new Node<>(this.getKey(), this.value, this.getPriority(), rightLeft.get(), this.getRight(), comparator));
-          return result;
-        }
-      } else {
-        leftRef.set(this.getLeft());
-        rightRef.set(this.getRight());
-        return true;
+    void updateInfo() {
+      this.size = 1;
+      if (left != null) {
+        this.size += left.size;
       }
-    }
-
-    private void updateInfo() {
-      if (Objects.nonNull(left) && Objects.nonNull(right)) {
-        this.size = left.getSize() + right.getSize() + 1;
-        this.height = Math.max(left.getHeight(), right.getHeight()) + 1;
-      } else if (Objects.nonNull(left)) {
-        this.size = left.getSize() + 1;
-        this.height = left.getHeight() + 1;
-      } else if (Objects.nonNull(right)) {
-        this.size = right.getSize() + 1;
-        this.height = right.getHeight() + 1;
-      } else {
-        this.size = 1;
-        this.height = 1;
+      if (right != null) {
+        this.size += right.size;
       }
     }
 
@@ -840,11 +1572,6 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return key;
     }
 
-    @Override
-    public V getValue() {
-      return value;
-    }
-
     @Override
     public V setValue(V value) {
       return null;
@@ -864,37 +1591,18 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
     void setLeft(Node<K, V> left) {
       this.left = left;
-      if (Objects.nonNull(left)) {
-        getLeft().setParent(this);
-      }
       updateInfo();
     }
 
     void setRight(Node<K, V> right) {
       this.right = right;
-      if (Objects.nonNull(right)) {
-        getRight().setParent(this);
-      }
-
       updateInfo();
     }
 
-    Node<K, V> getParent() {
-      return parent;
-    }
-
-    void setParent(Node<K, V> parent) {
-      this.parent = parent;
-    }
-
     int getSize() {
       return size;
     }
 
-    int getHeight() {
-      return height;
-    }
-
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -904,7 +1612,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
         return false;
       }
       Node<?, ?> node = (Node<?, ?>) o;
-      return Objects.equals(key, node.key) && Objects.equals(value, node.value);
+      return Objects.equals(key, node.key) && Objects.equals(getValue(), node.getValue());
     }
 
     @Override
@@ -913,6 +1621,106 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     }
   }
 
+  /** Node of a map, which keeps a value next to the key */
+  static final class ValueNode<K, V> extends Node<K, V> {
+
+    private V value;
+
+    ValueNode(K key, V value, double priority) {
+      super(key, priority);
+      this.value = value;
+    }
+
+    @Override
+    Node<K, V> copy(Node<K, V> left, Node<K, V> right) {
+      Node<K, V> node = new ValueNode<>(getKey(), value, getPriority());
+      node.setLeft(left);
+      node.setRight(right);
+      return node;
+    }
+
+    @Override
+    void assignValue(V value) {
+      this.value = value;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+  }
+
+  /** Node of a map with an aggregator, which keeps the aggregate of its subtree next to the value */
+  static final class AggregateNode<K, V> extends Node<K, V> {
+
+    private final TreapAggregator<? super K, ? super V, Object> aggregator;
+    private V value;
+    private Object aggregate;
+
+    AggregateNode(K key, V value, double priority, TreapAggregator<? super K, ? super V, Object> aggregator) {
+      super(key, priority);
+      this.value = value;
+      this.aggregator = aggregator;
+      this.aggregate = aggregator.lift(key, value);
+    }
+
+    @Override
+    Node<K, V> copy(Node<K, V> left, Node<K, V> right) {
+      Node<K, V> node = new AggregateNode<>(getKey(), value, getPriority(), aggregator);
+      node.setLeft(left);
+      node.setRight(right);
+      return node;
+    }
+
+    @Override
+    void assignValue(V value) {
+      this.value = value;
+      updateInfo();
+    }
+
+    @Override
+    void updateInfo() {
+      super.updateInfo();
+      aggregate = aggregator.lift(getKey(), value);
+      if (getLeft() != null) {
+        aggregate = aggregator.combine(aggregateOf(getLeft()), aggregate);
+      }
+      if (getRight() != null) {
+        aggregate = aggregator.combine(aggregate, aggregateOf(getRight()));
+      }
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+  }
+
+  /** Node of a set, whose value is the key itself, see {@link #keysOnly(Random)} */
+  static final class KeyNode<K, V> extends Node<K, V> {
+
+    KeyNode(K key, double priority) {
+      super(key, priority);
+    }
+
+    @Override
+    Node<K, V> copy(Node<K, V> left, Node<K, V> right) {
+      Node<K, V> node = new KeyNode<>(getKey(), getPriority());
+      node.setLeft(left);
+      node.setRight(right);
+      return node;
+    }
+
+    @Override
+    void assignValue(V value) {}
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getValue() {
+      return (V) getKey();
+    }
+  }
+
   private class Values extends AbstractCollection<V> {
 
     @Override
@@ -920,6 +1728,11 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new ValueIterator();
     }
 
+    @Override
+    public Spliterator<V> spliterator() {
+      return valueSpliterator(false);
+    }
+
     @Override
     public int size() {
       return TreapMap.this.size();
@@ -933,47 +1746,209 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new DescendingValueIterator();
     }
 
+    @Override
+    public Spliterator<V> spliterator() {
+      return valueSpliterator(true);
+    }
+
     @Override
     public int size() {
       return TreapMap.this.size();
     }
   }
 
+  /**
+   * In-order cursor over treap's nodes
+   *
+   * <p>Instead of looking every element up by its index the cursor keeps pending ancestors on an explicit stack, so a
+   * full traversal visits each node a constant number of times and {@link #next()} is O(1) amortized. Removal through
+   * the cursor is O(log n): the path is sought again from the root once the node is removed
+   */
   private class EntryIterator implements Iterator<Entry<K, V>> {
-    Node<K, V> lastElement;
-    int visited = 0;
+    private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+    private final boolean descending;
+    private Node<K, V> lastElement;
+    private int remaining = Integer.MAX_VALUE;
+    private int expectedModCount = modCount;
+
+    EntryIterator() {
+      this(false);
+    }
+
+    EntryIterator(boolean descending) {
+      this.descending = descending;
+      pushPath(root);
+    }
+
+    /** Creates a cursor which skips the first {@code skip} nodes in iteration order */
+    EntryIterator(boolean descending, int skip) {
+      this.descending = descending;
+      seekIndex(skip);
+    }
+
+    /** Creates a cursor which skips the first {@code skip} nodes in iteration order and visits at most {@code limit} */
+    EntryIterator(boolean descending, int skip, int limit) {
+      this(descending, skip);
+      this.remaining = limit;
+    }
 
     @Override
     public boolean hasNext() {
-      return size() > 0 && (visited < size());
+      return remaining > 0 && !stack.isEmpty();
     }
 
     @Override
     public Node<K, V> next() {
-      lastElement = root.getByIndex(visited++);
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      --remaining;
+      lastElement = stack.pop();
+      pushPath(descending ? lastElement.left : lastElement.right);
       return lastElement;
     }
+
+    @Override
+    public void remove() {
+      if (lastElement == null) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      TreapMap.this.remove(lastElement.key);
+      stack.clear();
+      seekAfter(lastElement.key);
+      expectedModCount = modCount;
+      lastElement = null;
+    }
+
+    /** Pushes the path from the node to the first node of its subtree in iteration order */
+    private void pushPath(Node<K, V> node) {
+      while (node != null) {
+        stack.push(node);
+        node = descending ? node.right : node.left;
+      }
+    }
+
+    /** Pushes the path from the root to the {@code index}-th node in iteration order, guided by subtree sizes */
+    private void seekIndex(int index) {
+      Node<K, V> node = root;
+      while (node != null) {
+        Node<K, V> near = descending ? node.right : node.left;
+        int nearSize = near == null ? 0 : near.size;
+        if (index <= nearSize) {
+          stack.push(node);
+          if (index == nearSize) {
+            return;
+          }
+          node = near;
+        } else {
+          index -= nearSize + 1;
+          node = descending ? node.left : node.right;
+        }
+      }
+    }
+
+    /** Restores the stack as if the last visited node had the given key */
+    private void seekAfter(K key) {
+      Node<K, V> node = root;
+      while (node != null) {
+        int comparison = compare(node.key, key);
+        if (descending ? comparison < 0 : comparison > 0) {
+          stack.push(node);
+          node = descending ? node.right : node.left;
+        } else {
+          node = descending ? node.left : node.right;
+        }
+      }
+    }
+  }
+
+  private class DescendingEntryIterator extends EntryIterator {
+
+    DescendingEntryIterator() {
+      super(true);
+    }
   }
 
-  private class DescendingEntryIterator implements Iterator<Entry<K, V>> {
-    Node<K, V> lastElement;
-    int visited = 0;
+  /**
+   * List view of the entries at a range of indices: an element is selected by subtree sizes in O(log n) and iteration
+   * seeks its first node once, so iterating k elements takes O(log n + k)
+   */
+  private class IndexRange<T> extends AbstractList<T> {
+
+    private final int from;
+    private final int to;
+    private final Function<? super Entry<K, V>, ? extends T> mapper;
+    private final int expectedModCount = TreapMap.this.modCount;
+
+    IndexRange(int from, int to, Function<? super Entry<K, V>, ? extends T> mapper) {
+      if (from < 0 || to > TreapMap.this.size() || from > to) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      this.from = from;
+      this.to = to;
+      this.mapper = mapper;
+    }
+
+    private void checkModCount() {
+      if (TreapMap.this.modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
 
     @Override
-    public boolean hasNext() {
-      return size() > 0 && (visited < size());
+    public T get(int index) {
+      checkModCount();
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      return mapper.apply(root.getByIndex(from + index));
     }
 
     @Override
-    public Node<K, V> next() {
-      lastElement = root.getByIndex(size() - ++visited);
-      return lastElement;
+    public int size() {
+      checkModCount();
+      return to - from;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      checkModCount();
+      EntryIterator entries = new EntryIterator(false, from, to - from);
+      return new Iterator<T>() {
+        @Override
+        public boolean hasNext() {
+          return entries.hasNext();
+        }
+
+        @Override
+        public T next() {
+          return mapper.apply(entries.next());
+        }
+      };
     }
   }
 
   private class ValueIterator implements Iterator<V> {
 
-    private EntryIterator entryIterator = new EntryIterator();
+    private final EntryIterator entryIterator;
+
+    ValueIterator() {
+      this.entryIterator = new EntryIterator();
+    }
+
+    ValueIterator(EntryIterator entryIterator) {
+      this.entryIterator = entryIterator;
+    }
 
     @Override
     public boolean hasNext() {
@@ -982,22 +1957,33 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
     @Override
     public V next() {
-      Node<K, V> next = entryIterator.next();
-      if (next == null) {
-        return null;
-      }
-      return next.value;
+      return entryIterator.next().getValue();
     }
 
     @Override
     public void remove() {
-      TreapMap.this.remove(entryIterator.lastElement.key);
+      entryIterator.remove();
+    }
+  }
+
+  private class DescendingValueIterator extends ValueIterator {
+
+    DescendingValueIterator() {
+      super(new DescendingEntryIterator());
     }
   }
 
-  private class DescendingValueIterator implements Iterator<V> {
+  class KeyIterator implements Iterator<K> {
+
+    private final EntryIterator entryIterator;
+
+    KeyIterator() {
+      this.entryIterator = new EntryIterator();
+    }
 
-    private DescendingEntryIterator entryIterator = new DescendingEntryIterator();
+    KeyIterator(EntryIterator entryIterator) {
+      this.entryIterator = entryIterator;
+    }
 
     @Override
     public boolean hasNext() {
@@ -1005,56 +1991,171 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
     }
 
     @Override
-    public V next() {
-      Node<K, V> next = entryIterator.next();
-      if (next == null) {
-        return null;
-      }
-      return next.value;
+    public K next() {
+      return entryIterator.next().key;
     }
 
     @Override
     public void remove() {
-      TreapMap.this.remove(entryIterator.lastElement.key);
+      entryIterator.remove();
     }
   }
 
-  class KeyIterator implements Iterator<K> {
+  class DescendingKeyIterator extends KeyIterator {
+
+    DescendingKeyIterator() {
+      super(new DescendingEntryIterator());
+    }
+  }
 
-    private EntryIterator entryIterator = new EntryIterator();
+  /**
+   * Spliterator over treap's nodes in iteration order
+   *
+   * <p>The spliterator covers a range of positions {@code [index, fence)}, so splitting just halves the range and both
+   * halves are exactly sized. Traversal starts with a single O(log n) descent guided by subtree sizes and then
+   * continues with an {@link EntryIterator} cursor
+   */
+  private class EntrySpliterator<T> implements Spliterator<T> {
+
+    private final Function<Node<K, V>, T> mapper;
+    private final boolean descending;
+    private final int characteristics;
+    private final Comparator<? super T> comparator;
+    private final int expectedModCount;
+    private final int fence;
+    private int index;
+    private EntryIterator cursor;
+
+    EntrySpliterator(
+        Function<Node<K, V>, T> mapper,
+        boolean descending,
+        int characteristics,
+        Comparator<? super T> comparator,
+        int index,
+        int fence) {
+      this.mapper = mapper;
+      this.descending = descending;
+      this.characteristics = characteristics | Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+      this.comparator = comparator;
+      this.expectedModCount = modCount;
+      this.index = index;
+      this.fence = fence;
+    }
 
     @Override
-    public boolean hasNext() {
-      return entryIterator.hasNext();
+    public boolean tryAdvance(Consumer<? super T> action) {
+      Objects.requireNonNull(action);
+      if (index >= fence) {
+        return false;
+      }
+
+      action.accept(mapper.apply(nextNode()));
+      return true;
     }
 
     @Override
-    public K next() {
-      Node<K, V> next = entryIterator.next();
-      if (next == null) {
-        return null;
+    public void forEachRemaining(Consumer<? super T> action) {
+      Objects.requireNonNull(action);
+      while (index < fence) {
+        action.accept(mapper.apply(nextNode()));
       }
-      return next.key;
     }
-  }
 
-  private class DescendingKeyIterator implements Iterator<K> {
+    private Node<K, V> nextNode() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (cursor == null) {
+        cursor = new EntryIterator(descending, index);
+      }
 
-    private DescendingEntryIterator nodeIterator = new DescendingEntryIterator();
+      ++index;
+      return cursor.next();
+    }
 
     @Override
-    public boolean hasNext() {
-      return nodeIterator.hasNext();
+    public Spliterator<T> trySplit() {
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+
+      EntrySpliterator<T> prefix =
+          new EntrySpliterator<>(mapper, descending, characteristics, comparator, index, middle);
+      index = middle;
+      cursor = null;
+      return prefix;
     }
 
     @Override
-    public K next() {
-      Node<K, V> next = nodeIterator.next();
-      if (next == null) {
-        return null;
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      if (hasCharacteristics(Spliterator.SORTED)) {
+        return comparator;
       }
-      return next.key;
+
+      throw new IllegalStateException();
+    }
+  }
+
+  Spliterator<K> keySpliterator() {
+    return keySpliterator(false, 0, size());
+  }
+
+  Spliterator<K> descendingKeySpliterator() {
+    return keySpliterator(true, 0, size());
+  }
+
+  private Spliterator<K> keySpliterator(boolean descending, int index, int fence) {
+    return new EntrySpliterator<>(
+        Node::getKey,
+        descending,
+        Spliterator.DISTINCT | Spliterator.SORTED,
+        descending ? reversedComparator() : comparator,
+        index,
+        fence);
+  }
+
+  private Spliterator<V> valueSpliterator(boolean descending) {
+    return valueSpliterator(descending, 0, size());
+  }
+
+  private Spliterator<V> valueSpliterator(boolean descending, int index, int fence) {
+    return new EntrySpliterator<>(Node::getValue, descending, 0, null, index, fence);
+  }
+
+  private Spliterator<Entry<K, V>> entrySpliterator(boolean descending) {
+    return entrySpliterator(descending, 0, size());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Spliterator<Entry<K, V>> entrySpliterator(boolean descending, int index, int fence) {
+    Comparator<? super K> keyComparator = descending ? reversedComparator() : comparator;
+    Comparator<Entry<K, V>> entryComparator =
+        keyComparator == null
+            ? (left, right) -> ((Comparable<? super K>) left.getKey()).compareTo(right.getKey())
+            : Entry.comparingByKey(keyComparator);
+
+    return new EntrySpliterator<>(
+        node -> node, descending, Spliterator.DISTINCT | Spliterator.SORTED, entryComparator, index, fence);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Comparator<? super K> reversedComparator() {
+    if (comparator == null) {
+      return (Comparator<? super K>) Collections.reverseOrder();
     }
+
+    return comparator.reversed();
   }
 
   private class KeySet implements NavigableSet<K> {
@@ -1102,6 +2203,11 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new KeyIterator();
     }
 
+    @Override
+    public Spliterator<K> spliterator() {
+      return keySpliterator();
+    }
+
     @Override
     public NavigableSet<K> descendingSet() {
       return descendingKeySet();
@@ -1258,7 +2364,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
     @Override
     public void clear() {
-      root = null;
+      TreapMap.this.clear();
     }
   }
 
@@ -1308,6 +2414,11 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new DescendingKeyIterator();
     }
 
+    @Override
+    public Spliterator<K> spliterator() {
+      return descendingKeySpliterator();
+    }
+
     @Override
     public NavigableSet<K> descendingSet() {
       return new KeySet();
@@ -1468,7 +2579,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
     @Override
     public void clear() {
-      root = null;
+      TreapMap.this.clear();
     }
   }
 
@@ -1551,32 +2662,32 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
 
     @Override
     public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
-      return TreapMap.this.subMap(toKey, toInclusive, fromKey, fromInclusive);
+      return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
     }
 
     @Override
     public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
-      return TreapMap.this.tailMap(toKey, inclusive);
+      return new SubMap(false, toKey, inclusive, true, null, false, true);
     }
 
     @Override
     public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
-      return TreapMap.this.headMap(fromKey, inclusive);
+      return new SubMap(true, null, false, false, fromKey, inclusive, true);
     }
 
     @Override
     public SortedMap<K, V> subMap(K fromKey, K toKey) {
-      return TreapMap.this.subMap(toKey, fromKey);
+      return subMap(fromKey, true, toKey, false);
     }
 
     @Override
     public SortedMap<K, V> headMap(K toKey) {
-      return TreapMap.this.tailMap(toKey, false);
+      return headMap(toKey, false);
     }
 
     @Override
     public SortedMap<K, V> tailMap(K fromKey) {
-      return TreapMap.this.headMap(fromKey, true);
+      return tailMap(fromKey, true);
     }
 
     @Override
@@ -1680,7 +2791,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
           return false;
         }
 
-        return v.equals(node.value);
+        return v.equals(node.getValue());
       } else {
         return false;
       }
@@ -1691,6 +2802,11 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new EntryIterator();
     }
 
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+      return entrySpliterator(false);
+    }
+
     @Override
     public Object[] toArray() {
       return toArray(new Object[0]);
@@ -1793,7 +2909,7 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
           return false;
         }
 
-        return v.equals(node.value);
+        return v.equals(node.getValue());
       } else {
         return false;
       }
@@ -1804,6 +2920,11 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       return new DescendingEntryIterator();
     }
 
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+      return entrySpliterator(true);
+    }
+
     @Override
     public Object[] toArray() {
       return toArray(new Object[0]);
@@ -1882,4 +3003,629 @@ public class TreapMap<K, V> implements ValueTreap<K, V> {
       TreapMap.this.clear();
     }
   }
+
+  /**
+   * Live view of the portion of the map within a key range
+   *
+   * <p>The view does not copy anything: it is a range-checked wrapper over the map's root, so it is created in O(1) and
+   * reflects (and writes through) every change of the map. Navigation delegates to the map and clamps the result to the
+   * range; size is computed in O(log n) as the difference of two ranks
+   */
+  private class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    private final boolean fromStart;
+    private final K low;
+    private final boolean lowInclusive;
+
+    private final boolean toEnd;
+    private final K high;
+    private final boolean highInclusive;
+
+    private final boolean descending;
+
+    SubMap(
+        boolean fromStart,
+        K low,
+        boolean lowInclusive,
+        boolean toEnd,
+        K high,
+        boolean highInclusive,
+        boolean descending) {
+      if (!fromStart && !toEnd) {
+        if (compare(low, high) > 0) {
+          throw new IllegalArgumentException("fromKey > toKey");
+        }
+      } else if (!fromStart) {
+        compare(low, low);
+      } else if (!toEnd) {
+        compare(high, high);
+      }
+
+      this.fromStart = fromStart;
+      this.low = low;
+      this.lowInclusive = lowInclusive;
+      this.toEnd = toEnd;
+      this.high = high;
+      this.highInclusive = highInclusive;
+      this.descending = descending;
+    }
+
+    private boolean tooLow(K key) {
+      if (fromStart) {
+        return false;
+      }
+
+      int comparison = compare(key, low);
+      return comparison < 0 || (comparison == 0 && !lowInclusive);
+    }
+
+    private boolean tooHigh(K key) {
+      if (toEnd) {
+        return false;
+      }
+
+      int comparison = compare(key, high);
+      return comparison > 0 || (comparison == 0 && !highInclusive);
+    }
+
+    private boolean inRange(K key) {
+      return !tooLow(key) && !tooHigh(key);
+    }
+
+    private boolean inClosedRange(K key) {
+      return (fromStart || compare(key, low) >= 0) && (toEnd || compare(high, key) >= 0);
+    }
+
+    private void checkInRange(K key, boolean inclusive) {
+      if (inclusive ? !inRange(key) : !inClosedRange(key)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+    }
+
+    private Node<K, V> clampHigh(Node<K, V> node) {
+      return node == null || tooHigh(node.key) ? null : node;
+    }
+
+    private Node<K, V> clampLow(Node<K, V> node) {
+      return node == null || tooLow(node.key) ? null : node;
+    }
+
+    private Node<K, V> absLowest() {
+      if (fromStart) {
+        return clampHigh(TreapMap.this.firstEntry());
+      }
+
+      return clampHigh(lowInclusive ? TreapMap.this.ceilingEntry(low) : TreapMap.this.higherEntry(low));
+    }
+
+    private Node<K, V> absHighest() {
+      if (toEnd) {
+        return clampLow(TreapMap.this.lastEntry());
+      }
+
+      return clampLow(highInclusive ? TreapMap.this.floorEntry(high) : TreapMap.this.lowerEntry(high));
+    }
+
+    private Node<K, V> absCeiling(K key) {
+      if (tooLow(key)) {
+        return absLowest();
+      }
+
+      return clampHigh(TreapMap.this.ceilingEntry(key));
+    }
+
+    private Node<K, V> absHigher(K key) {
+      if (tooLow(key)) {
+        return absLowest();
+      }
+
+      return clampHigh(TreapMap.this.higherEntry(key));
+    }
+
+    private Node<K, V> absFloor(K key) {
+      if (tooHigh(key)) {
+        return absHighest();
+      }
+
+      return clampLow(TreapMap.this.floorEntry(key));
+    }
+
+    private Node<K, V> absLower(K key) {
+      if (tooHigh(key)) {
+        return absHighest();
+      }
+
+      return clampLow(TreapMap.this.lowerEntry(key));
+    }
+
+    private int lowRank() {
+      return fromStart ? 0 : rank(low, !lowInclusive);
+    }
+
+    private int highRank() {
+      return toEnd ? TreapMap.this.size() : rank(high, highInclusive);
+    }
+
+    private K key(Entry<K, V> entry) {
+      return entry == null ? null : entry.getKey();
+    }
+
+    private K existingKey(Entry<K, V> entry) {
+      if (entry == null) {
+        throw new NoSuchElementException();
+      }
+      return entry.getKey();
+    }
+
+    /** Returns a cursor which starts at the view's first node and stops after its last one */
+    private EntryIterator entryIterator() {
+      int lowRank = lowRank();
+      int highRank = highRank();
+      int skip = descending ? TreapMap.this.size() - highRank : lowRank;
+      return new EntryIterator(descending, skip, Math.max(0, highRank - lowRank));
+    }
+
+    private <T> Spliterator<T> spliterator(SpliteratorFactory<T> factory) {
+      int lowRank = lowRank();
+      int highRank = Math.max(lowRank, highRank());
+      int index = descending ? TreapMap.this.size() - highRank : lowRank;
+      return factory.create(descending, index, index + highRank - lowRank);
+    }
+
+    @Override
+    public int size() {
+      return Math.max(0, highRank() - lowRank());
+    }
+
+    /** Removes the range with two splits and a join in O(log n), see {@link TreapMap#removeRange(int, int)} */
+    @Override
+    public void clear() {
+      int lowRank = lowRank();
+      removeRange(lowRank, Math.max(lowRank, highRank()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return absLowest() == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsKey(Object key) {
+      return inRange((K) key) && TreapMap.this.containsKey(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+      if (!inRange((K) key)) {
+        return null;
+      }
+
+      return TreapMap.this.get(key);
+    }
+
+    /** @throws IllegalArgumentException if the key is out of the view's range */
+    @Override
+    public V put(K key, V value) {
+      if (!inRange(key)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+
+      return TreapMap.this.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+      if (!inRange((K) key)) {
+        return null;
+      }
+
+      return TreapMap.this.remove(key);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+      return descending ? absHigher(key) : absLower(key);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+      return key(lowerEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+      return descending ? absCeiling(key) : absFloor(key);
+    }
+
+    @Override
+    public K floorKey(K key) {
+      return key(floorEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+      return descending ? absFloor(key) : absCeiling(key);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+      return key(ceilingEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+      return descending ? absLower(key) : absHigher(key);
+    }
+
+    @Override
+    public K higherKey(K key) {
+      return key(higherEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+      return descending ? absHighest() : absLowest();
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+      return descending ? absLowest() : absHighest();
+    }
+
+    @Override
+    public K firstKey() {
+      return existingKey(firstEntry());
+    }
+
+    @Override
+    public K lastKey() {
+      return existingKey(lastEntry());
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+      Entry<K, V> entry = firstEntry();
+      if (entry != null) {
+        TreapMap.this.remove(entry.getKey());
+      }
+      return entry;
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+      Entry<K, V> entry = lastEntry();
+      if (entry != null) {
+        TreapMap.this.remove(entry.getKey());
+      }
+      return entry;
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+      return new SubMap(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+      return new NavigableKeySet<>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+      return new NavigableKeySet<>(descendingMap());
+    }
+
+    @Override
+    public Set<K> keySet() {
+      return navigableKeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+      return new SubValues();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      return new SubEntrySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+      checkInRange(fromKey, fromInclusive);
+      checkInRange(toKey, toInclusive);
+      if (descending) {
+        return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+      }
+
+      return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+      checkInRange(toKey, inclusive);
+      if (descending) {
+        return new SubMap(false, toKey, inclusive, toEnd, high, highInclusive, true);
+      }
+
+      return new SubMap(fromStart, low, lowInclusive, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+      checkInRange(fromKey, inclusive);
+      if (descending) {
+        return new SubMap(fromStart, low, lowInclusive, false, fromKey, inclusive, true);
+      }
+
+      return new SubMap(false, fromKey, inclusive, toEnd, high, highInclusive, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+      return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+      return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+      return tailMap(fromKey, true);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return descending ? reversedComparator() : comparator;
+    }
+
+    private class SubValues extends AbstractCollection<V> {
+
+      @Override
+      public Iterator<V> iterator() {
+        return new ValueIterator(entryIterator());
+      }
+
+      @Override
+      public Spliterator<V> spliterator() {
+        return SubMap.this.spliterator(TreapMap.this::valueSpliterator);
+      }
+
+      @Override
+      public int size() {
+        return SubMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        SubMap.this.clear();
+      }
+    }
+
+    private class SubEntrySet extends AbstractSet<Entry<K, V>> {
+
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return entryIterator();
+      }
+
+      @Override
+      public Spliterator<Entry<K, V>> spliterator() {
+        return SubMap.this.spliterator(TreapMap.this::entrySpliterator);
+      }
+
+      @Override
+      public int size() {
+        return SubMap.this.size();
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return SubMap.this.isEmpty();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        if (!(o instanceof Entry)) {
+          return false;
+        }
+
+        Entry<?, ?> entry = (Entry<?, ?>) o;
+        V value = SubMap.this.get(entry.getKey());
+        return value != null && value.equals(entry.getValue());
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        if (!contains(o)) {
+          return false;
+        }
+
+        SubMap.this.remove(((Entry<?, ?>) o).getKey());
+        return true;
+      }
+
+      @Override
+      public void clear() {
+        SubMap.this.clear();
+      }
+    }
+  }
+
+  private enum SetOperation {
+    UNION,
+    INTERSECT,
+    DIFFERENCE
+  }
+
+  /** Performs one step of a set operation and forks the recursive call for the left subtrees */
+  @SuppressWarnings("serial")
+  private class SetOperationTask extends RecursiveTask<Node<K, V>> {
+
+    private final SetOperation operation;
+    private final Node<K, V> node;
+    private final Node<K, V> other;
+    private final boolean swapped;
+    private final BiFunction<? super V, ? super V, ? extends V> combine;
+
+    SetOperationTask(
+        SetOperation operation,
+        Node<K, V> node,
+        Node<K, V> other,
+        boolean swapped,
+        BiFunction<? super V, ? super V, ? extends V> combine) {
+      this.operation = operation;
+      this.node = node;
+      this.other = other;
+      this.swapped = swapped;
+      this.combine = combine;
+    }
+
+    @Override
+    protected Node<K, V> compute() {
+      if (node == null || other == null || size(node) + size(other) <= SEQUENTIAL_CUTOFF) {
+        switch (operation) {
+          case UNION:
+            return union(node, other, swapped, combine, new Parts<>());
+          case INTERSECT:
+            return intersect(node, other, combine, new Parts<>());
+          default:
+            return difference(node, other, new Parts<>());
+        }
+      }
+
+      if (operation == SetOperation.UNION) {
+        return computeUnion();
+      }
+
+      Parts<K, V> parts = new Parts<>();
+      splitSubtree(node, other.key, parts);
+      Node<K, V> middle = parts.middle;
+      SetOperationTask leftTask = new SetOperationTask(operation, parts.left, other.left, false, combine);
+      leftTask.fork();
+      Node<K, V> right = new SetOperationTask(operation, parts.right, other.right, false, combine).compute();
+      Node<K, V> left = leftTask.join();
+
+      if (operation == SetOperation.DIFFERENCE || middle == null) {
+        return joinSubtrees(left, right);
+      }
+
+      middle.assignValue(combine.apply(middle.getValue(), other.getValue()));
+      return joinSubtrees(joinSubtrees(left, middle), right);
+    }
+
+    private Node<K, V> computeUnion() {
+      Node<K, V> root = node;
+      Node<K, V> rest = other;
+      boolean swapped = this.swapped;
+      if (root.priority < rest.priority) {
+        root = other;
+        rest = node;
+        swapped = !swapped;
+      }
+
+      Parts<K, V> parts = new Parts<>();
+      splitSubtree(rest, root.key, parts);
+      if (parts.middle != null) {
+        V value = parts.middle.getValue();
+        root.assignValue(swapped ? combine.apply(value, root.getValue()) : combine.apply(root.getValue(), value));
+      }
+
+      SetOperationTask leftTask = new SetOperationTask(operation, root.left, parts.left, swapped, combine);
+      leftTask.fork();
+      Node<K, V> right = new SetOperationTask(operation, root.right, parts.right, swapped, combine).compute();
+      root.setLeft(leftTask.join());
+      root.setRight(right);
+      return root;
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private static class CopyTask<K, V> extends RecursiveTask<Node<K, V>> {
+
+    private final Node<K, V> node;
+
+    CopyTask(Node<K, V> node) {
+      this.node = node;
+    }
+
+    @Override
+    protected Node<K, V> compute() {
+      if (size(node) <= SEQUENTIAL_CUTOFF) {
+        return copy(node);
+      }
+
+      CopyTask<K, V> leftTask = new CopyTask<>(node.left);
+      leftTask.fork();
+      Node<K, V> right = new CopyTask<>(node.right).compute();
+      return node.copy(leftTask.join(), right);
+    }
+  }
+
+  /** Builds a range of sorted items, halving it until it is smaller than the cutoff */
+  @SuppressWarnings("serial")
+  private class BuildTask<T> extends RecursiveTask<Node<K, V>> {
+
+    private final List<? extends T> items;
+    private final int from;
+    private final int to;
+    private final Function<? super T, ? extends K> keyOf;
+    private final Function<? super T, ? extends V> valueOf;
+
+    BuildTask(
+        List<? extends T> items,
+        int from,
+        int to,
+        Function<? super T, ? extends K> keyOf,
+        Function<? super T, ? extends V> valueOf) {
+      this.items = items;
+      this.from = from;
+      this.to = to;
+      this.keyOf = keyOf;
+      this.valueOf = valueOf;
+    }
+
+    @Override
+    protected Node<K, V> compute() {
+      if (to - from <= SEQUENTIAL_CUTOFF) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return buildSubtree(items.subList(from, to).iterator(), keyOf, valueOf, item -> random.nextDouble());
+      }
+
+      int middle = (from + to) >>> 1;
+      BuildTask<T> leftTask = new BuildTask<>(items, from, middle, keyOf, valueOf);
+      leftTask.fork();
+      Node<K, V> right = new BuildTask<T>(items, middle, to, keyOf, valueOf).compute();
+      Node<K, V> left = leftTask.join();
+
+      Node<K, V> last = left;
+      while (last.right != null) {
+        last = last.right;
+      }
+      if (compare(last.key, keyOf.apply(items.get(middle))) >= 0) {
+        throw new IllegalArgumentException("Keys are not in strictly ascending order");
+      }
+
+      return joinSubtrees(left, right);
+    }
+  }
+
+  /** Result of an in-place split of a subtree, reused through a whole set operation */
+  private static class Parts<K, V> {
+
+    private Node<K, V> left;
+    private Node<K, V> middle;
+    private Node<K, V> right;
+  }
+
+  /** Creates a spliterator over the given range of positions */
+  private interface SpliteratorFactory<T> {
+
+    Spliterator<T> create(boolean descending, int index, int fence);
+  }
 }
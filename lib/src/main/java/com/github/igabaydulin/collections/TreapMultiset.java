@@ -0,0 +1,420 @@
+package com.github.igabaydulin.collections;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Sorted multiset backed by a treap with one node per distinct key: a node keeps the number of occurrences of its key
+ * and the total number of occurrences in its subtree, so adding or removing any number of occurrences, {@link
+ * #get(long)} of the occurrence at an index and {@link #rankOf(Object)} take O(log n), where n is the number of
+ * distinct keys, and heavy repeats cost no memory
+ *
+ * <p>As a collection it contains every occurrence: {@link #iterator()} returns a key as many times as it occurs and
+ * {@link #size()} is the total number of occurrences (saturated at {@link Integer#MAX_VALUE}, see {@link
+ * #totalCount()}). Keys are compared by their natural ordering, null keys are not permitted
+ */
+public class TreapMultiset<K> extends AbstractCollection<K> {
+
+  private final Random random;
+  private Node<K> root;
+
+  /** The number of modifications of this multiset, including changes of counts, used by iterators to fail fast */
+  private int modCount;
+
+  public TreapMultiset() {
+    this(new Random());
+  }
+
+  public TreapMultiset(long seed) {
+    this(new Random(seed));
+  }
+
+  private TreapMultiset(Random random) {
+    this.random = random;
+  }
+
+  private static long total(Node<?> node) {
+    return node == null ? 0 : node.total;
+  }
+
+  private static int distinct(Node<?> node) {
+    return node == null ? 0 : node.distinct;
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.min(total(root), Integer.MAX_VALUE);
+  }
+
+  /** Returns the total number of occurrences of all keys */
+  public long totalCount() {
+    return total(root);
+  }
+
+  /** Returns the number of distinct keys */
+  public int distinctCount() {
+    return distinct(root);
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+    ++modCount;
+  }
+
+  /** Returns the number of occurrences of the key, 0 if it is absent */
+  @SuppressWarnings("unchecked")
+  public int count(Object key) {
+    Node<K> node = find((K) key);
+    return node == null ? 0 : node.count;
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return count(key) > 0;
+  }
+
+  @Override
+  public boolean add(K key) {
+    add(key, 1);
+    return true;
+  }
+
+  /**
+   * Adds occurrences of the key. An absent key is put top-down: the path is descended (growing subtree counts) while
+   * nodes have higher priorities, then the remaining subtree is split in place by the key into children of the new node
+   *
+   * @return the number of occurrences before the call
+   * @throws IllegalArgumentException if {@code occurrences} is negative or the count would exceed {@link
+   *     Integer#MAX_VALUE}
+   */
+  public int add(K key, int occurrences) {
+    if (occurrences < 0) {
+      throw new IllegalArgumentException("Negative occurrences: " + occurrences);
+    }
+
+    Node<K> existing = find(key);
+    if (existing != null) {
+      int count = existing.count;
+      if (occurrences > Integer.MAX_VALUE - count) {
+        throw new IllegalArgumentException("Too many occurrences: " + count + " + " + occurrences);
+      }
+      if (occurrences > 0) {
+        addOccurrences(key, occurrences);
+      }
+      return count;
+    }
+    if (occurrences == 0) {
+      return 0;
+    }
+
+    Node<K> inserted = new Node<>(key, occurrences, random.nextDouble());
+    Node<K> parent = null;
+    boolean isLeft = false;
+    Node<K> node = root;
+    while (node != null && node.priority > inserted.priority) {
+      ++node.distinct;
+      node.total += occurrences;
+      parent = node;
+      isLeft = compare(node.key, key) > 0;
+      node = isLeft ? node.left : node.right;
+    }
+
+    splitInto(node, key, inserted);
+    inserted.update();
+    link(parent, isLeft, inserted);
+    ++modCount;
+    return 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean remove(Object key) {
+    return remove((K) key, 1) > 0;
+  }
+
+  /**
+   * Removes up to the given number of occurrences of the key; once none is left the node is removed in place, i.e. the
+   * path to it is descended shrinking subtree counts and the node is replaced by the join of its subtrees
+   *
+   * @return the number of occurrences before the call
+   * @throws IllegalArgumentException if {@code occurrences} is negative
+   */
+  public int remove(K key, int occurrences) {
+    if (occurrences < 0) {
+      throw new IllegalArgumentException("Negative occurrences: " + occurrences);
+    }
+
+    Node<K> node = find(key);
+    if (node == null) {
+      return 0;
+    }
+
+    int count = node.count;
+    if (occurrences < count) {
+      if (occurrences > 0) {
+        addOccurrences(key, -occurrences);
+      }
+      return count;
+    }
+
+    Node<K> parent = null;
+    boolean isLeft = false;
+    Node<K> current = root;
+    while (current != node) {
+      --current.distinct;
+      current.total -= count;
+      parent = current;
+      isLeft = compare(current.key, key) > 0;
+      current = isLeft ? current.left : current.right;
+    }
+
+    link(parent, isLeft, join(node.left, node.right));
+    ++modCount;
+    return count;
+  }
+
+  /**
+   * Returns the key of the occurrence at the index in ascending order, e.g. {@code get(totalCount() / 2)} is the median
+   *
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  public K get(long index) {
+    if (index < 0 || index >= total(root)) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + total(root));
+    }
+
+    Node<K> node = root;
+    while (true) {
+      long leftTotal = total(node.left);
+      if (index < leftTotal) {
+        node = node.left;
+      } else if (index < leftTotal + node.count) {
+        return node.key;
+      } else {
+        index -= leftTotal + node.count;
+        node = node.right;
+      }
+    }
+  }
+
+  /** Returns the number of occurrences of keys less than the key, which is the index of its first occurrence */
+  public long rankOf(K key) {
+    long rank = 0;
+    Node<K> node = root;
+    while (node != null) {
+      if (compare(node.key, key) < 0) {
+        rank += total(node.left) + node.count;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+
+    return rank;
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return new OccurrenceIterator();
+  }
+
+  @Override
+  public String toString() {
+    return "TreapMultiset{" + "array=" + super.toString() + '}';
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(K key1, K key2) {
+    return ((Comparable<K>) key1).compareTo(key2);
+  }
+
+  private Node<K> find(K key) {
+    Node<K> node = root;
+    while (node != null) {
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        return node;
+      }
+      node = comparison > 0 ? node.left : node.right;
+    }
+
+    return null;
+  }
+
+  /** Changes the count of the present key and totals on the path to it */
+  private void addOccurrences(K key, int delta) {
+    Node<K> node = root;
+    while (true) {
+      node.total += delta;
+      int comparison = compare(node.key, key);
+      if (comparison == 0) {
+        node.count += delta;
+        break;
+      }
+      node = comparison > 0 ? node.left : node.right;
+    }
+    ++modCount;
+  }
+
+  /** Makes the child a left (or right) child of the parent or a root if there is no parent */
+  private void link(Node<K> parent, boolean isLeft, Node<K> child) {
+    if (parent == null) {
+      root = child;
+    } else if (isLeft) {
+      parent.left = child;
+    } else {
+      parent.right = child;
+    }
+  }
+
+  /** Splits the subtree by the absent key in place, the halves become the left and the right child of the target */
+  private void splitInto(Node<K> node, K key, Node<K> target) {
+    if (node == null) {
+      target.left = null;
+      target.right = null;
+    } else if (compare(node.key, key) < 0) {
+      splitInto(node.right, key, target);
+      node.right = target.left;
+      node.update();
+      target.left = node;
+    } else {
+      splitInto(node.left, key, target);
+      node.left = target.right;
+      node.update();
+      target.right = node;
+    }
+  }
+
+  /** Joins two subtrees in place, all keys of the left subtree are less than keys of the right one */
+  private static <K> Node<K> join(Node<K> left, Node<K> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+
+    if (left.priority > right.priority) {
+      left.right = join(left.right, right);
+      left.update();
+      return left;
+    }
+
+    right.left = join(left, right.left);
+    right.update();
+    return right;
+  }
+
+  private static final class Node<K> {
+
+    private final K key;
+    private final float priority;
+    private int count;
+
+    private Node<K> left;
+    private Node<K> right;
+    /** The number of distinct keys of the subtree */
+    private int distinct;
+    /** The number of occurrences of keys of the subtree */
+    private long total;
+
+    Node(K key, int count, double priority) {
+      this.key = key;
+      this.count = count;
+      this.priority = (float) priority;
+      this.distinct = 1;
+      this.total = count;
+    }
+
+    void update() {
+      distinct = 1 + distinct(left) + distinct(right);
+      total = count + total(left) + total(right);
+    }
+  }
+
+  /**
+   * In-order cursor keeping pending ancestors on a stack and the number of occurrences of the top node left to return;
+   * removal re-seeks the position in O(log n)
+   */
+  private class OccurrenceIterator implements Iterator<K> {
+
+    private final Deque<Node<K>> stack = new ArrayDeque<>();
+    private int remaining;
+    private long nextIndex;
+    private K lastKey;
+    private boolean removable;
+    private int expectedModCount = modCount;
+
+    OccurrenceIterator() {
+      seek(0);
+    }
+
+    /** Pushes the path from the root to the node holding the occurrence at the index */
+    private void seek(long index) {
+      stack.clear();
+      Node<K> node = root;
+      while (node != null) {
+        long leftTotal = total(node.left);
+        if (index < leftTotal + node.count) {
+          stack.push(node);
+          if (index >= leftTotal) {
+            remaining = (int) (leftTotal + node.count - index);
+            return;
+          }
+          node = node.left;
+        } else {
+          index -= leftTotal + node.count;
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public K next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      Node<K> node = stack.peek();
+      if (--remaining == 0) {
+        stack.pop();
+        for (Node<K> next = node.right; next != null; next = next.left) {
+          stack.push(next);
+        }
+        remaining = stack.isEmpty() ? 0 : stack.peek().count;
+      }
+      ++nextIndex;
+      lastKey = node.key;
+      removable = true;
+      return lastKey;
+    }
+
+    @Override
+    public void remove() {
+      if (!removable) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      TreapMultiset.this.remove(lastKey, 1);
+      seek(--nextIndex);
+      removable = false;
+      expectedModCount = modCount;
+    }
+  }
+}
@@ -7,38 +7,135 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.Random;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class TreapSet<K> implements Treap<K> {
 
-  private TreapMap<K, K> treapMap;
+  private final TreapMap<K, K> treapMap;
 
   public TreapSet() {
-    this.treapMap = new TreapMap<>();
+    this.treapMap = TreapMap.keysOnly(new Random());
   }
 
   @SuppressWarnings("unused")
   public TreapSet(long seed) {
-    this.treapMap = new TreapMap<>(seed);
+    this.treapMap = TreapMap.keysOnly(new Random(seed));
+  }
+
+  /**
+   * Creates a set with elements of the sorted set, which must use natural ordering as this set does; the treap is built
+   * in O(n), see {@link #fromSorted(Iterable)}
+   *
+   * @throws IllegalArgumentException if the sorted set is ordered by a comparator
+   */
+  public TreapSet(SortedSet<K> set) {
+    if (set.comparator() != null) {
+      throw new IllegalArgumentException("Only sets with natural ordering can be copied");
+    }
+
+    this.treapMap = TreapMap.keysOnly(new Random());
+    treapMap.buildSorted(set.iterator(), Function.identity(), Function.identity());
   }
 
-  private TreapSet(TreapMap<K, K> treapMap) {
+  TreapSet(TreapMap<K, K> treapMap) {
     this.treapMap = treapMap;
   }
 
+  TreapMap<K, K> getTreapMap() {
+    return treapMap;
+  }
+
+  /**
+   * Creates a set from values in strictly ascending order in O(n), see {@link TreapMap#fromSorted(Iterable)}
+   *
+   * @throws IllegalArgumentException if values are not in strictly ascending order
+   */
+  public static <K> TreapSet<K> fromSorted(Iterable<? extends K> values) {
+    TreapSet<K> set = new TreapSet<>();
+    set.treapMap.buildSorted(values.iterator(), Function.identity(), Function.identity());
+    return set;
+  }
+
+  /** @see #fromSorted(Iterable) */
+  public static <K> TreapSet<K> fromSorted(K[] values) {
+    return fromSorted(Arrays.asList(values));
+  }
+
+  /**
+   * Creates a set from values in strictly ascending order using the pool, see {@link TreapMap#fromSorted(List,
+   * ForkJoinPool)}
+   *
+   * @throws IllegalArgumentException if values are not in strictly ascending order
+   */
+  public static <K> TreapSet<K> fromSorted(List<? extends K> values, ForkJoinPool pool) {
+    return new TreapSet<>(TreapMap.fromSortedKeys(values, pool));
+  }
+
   @Override
   public K get(int index) {
     return treapMap.getByIndex(index);
   }
 
+  /** Removes the value at the given position in ascending order, see {@link TreapMap#removeAt(int)} */
+  public K removeAt(int index) {
+    return treapMap.removeAt(index).getKey();
+  }
+
+  /**
+   * Removes values at positions from {@code fromIndex} inclusive to {@code toIndex} exclusive in O(log n), see {@link
+   * TreapMap#removeRange(int, int)}
+   */
+  public void removeRange(int fromIndex, int toIndex) {
+    treapMap.removeRange(fromIndex, toIndex);
+  }
+
+  /**
+   * Removes values between {@code from} and {@code to} in O(log n), each bound is removed if its flag is set
+   *
+   * @return the number of removed values
+   */
+  public int removeRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    return treapMap.removeRange(from, fromInclusive, to, toInclusive);
+  }
+
+  @Override
+  public int rankOf(K value) {
+    return treapMap.rankOf(value);
+  }
+
+  @Override
+  public int countInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    return treapMap.countInRange(from, fromInclusive, to, toInclusive);
+  }
+
+  @Override
+  public int indexOfFloor(K value) {
+    return treapMap.indexOfFloor(value);
+  }
+
+  @Override
+  public int indexOfCeiling(K value) {
+    return treapMap.indexOfCeiling(value);
+  }
+
+  @Override
+  public List<K> subList(int fromIndex, int toIndex) {
+    return treapMap.keySubList(fromIndex, toIndex);
+  }
+
   @Override
   public boolean contains(Object value) {
     try {
-      //noinspection SuspiciousMethodCalls
-      return treapMap.get(value) != null;
+      return treapMap.containsKey(value);
     } catch (ClassCastException ex) {
       return false;
     }
@@ -49,6 +146,7 @@ public class TreapSet<K> implements Treap<K> {
     return c.stream().map(this::contains).reduce((op1, op2) -> op1 && op2).orElse(true);
   }
 
+  /** Adds the value with the priority narrowed to {@code float}, see {@link TreapMap#put(Object, Object, double)} */
   @Override
   public boolean add(K value, double priority) {
     return treapMap.put(value, value, priority) == null;
@@ -59,6 +157,7 @@ public class TreapSet<K> implements Treap<K> {
     return treapMap.put(value, value) == null;
   }
 
+  /** Appends the values, see {@link TreapMap#putBack(Object[], Object[], double[])} */
   @Override
   public boolean addBack(K[] values, double[] priorities) {
     return treapMap.putBack(values, values, priorities);
@@ -69,6 +168,7 @@ public class TreapSet<K> implements Treap<K> {
     return treapMap.putBack(values, values);
   }
 
+  /** Prepends the values, see {@link TreapMap#putFront(Object[], Object[], double[])} */
   @Override
   public boolean addFront(K[] values, double[] priorities) {
     return treapMap.putFront(values, values, priorities);
@@ -79,14 +179,47 @@ public class TreapSet<K> implements Treap<K> {
     return treapMap.putFront(values, values);
   }
 
+  /**
+   * Adds all values of the collection; a treap set with the same ordering is united with this set, see {@link
+   * #union(Treap)}, and a sorted set with the same ordering whose values are all less or greater than values of this
+   * set is built into a separate treap in O(m) and merged in place
+   */
   @Override
+  @SuppressWarnings("unchecked")
   public boolean addAll(Collection<? extends K> c) {
+    if (isCompatibleTreapSet(c)) {
+      return union((TreapSet<K>) c);
+    }
+    if (c instanceof SortedSet && addAllSorted((SortedSet<K>) c)) {
+      return true;
+    }
+
     int currentSize = size();
     c.forEach(this::add);
 
     return currentSize != size();
   }
 
+  private boolean addAllSorted(SortedSet<K> set) {
+    if (!Objects.equals(set.comparator(), comparator()) || set.isEmpty()) {
+      return false;
+    }
+
+    boolean append = isEmpty() || ceiling(set.first()) == null;
+    if (!append && floor(set.last()) != null) {
+      return false;
+    }
+
+    TreapMap<K, K> sortedMap = TreapMap.keysOnly(treapMap.getRandom());
+    sortedMap.buildSorted(set.iterator(), Function.identity(), Function.identity());
+    if (append) {
+      treapMap.mergeInPlace(sortedMap);
+    } else {
+      treapMap.prependInPlace(sortedMap);
+    }
+    return true;
+  }
+
   @Override
   public boolean remove(Object value) {
     try {
@@ -96,26 +229,68 @@ public class TreapSet<K> implements Treap<K> {
     }
   }
 
+  /** Removes all values of the collection; a treap set with the same ordering is subtracted, see {@link #difference} */
   @Override
+  @SuppressWarnings("unchecked")
   public boolean removeAll(Collection<?> c) {
+    if (isCompatibleTreapSet(c)) {
+      return difference((TreapSet<K>) c);
+    }
+
     int currentSize = size();
     c.forEach(this::remove);
 
     return currentSize != size();
   }
 
-  // TODO: Always returns true, should be fixed to return true if any element were removed only
+  /** Retains values of the collection; a treap set with the same ordering is intersected, see {@link #intersect} */
   @Override
   @SuppressWarnings("unchecked")
   public boolean retainAll(Collection<?> c) {
-    clear();
-    c.forEach(it -> add((K) it));
-    return true;
+    if (isCompatibleTreapSet(c)) {
+      return intersect((TreapSet<K>) c);
+    }
+
+    return removeIf(value -> !c.contains(value));
+  }
+
+  private boolean isCompatibleTreapSet(Collection<?> c) {
+    return c instanceof TreapSet && Objects.equals(((TreapSet<?>) c).comparator(), comparator());
+  }
+
+  @Override
+  public boolean union(Treap<K> other) {
+    return treapMap.union(((TreapSet<K>) other).treapMap, (value, otherValue) -> value);
+  }
+
+  @Override
+  public boolean intersect(Treap<K> other) {
+    return treapMap.intersect(((TreapSet<K>) other).treapMap);
+  }
+
+  @Override
+  public boolean difference(Treap<K> other) {
+    return treapMap.difference(((TreapSet<K>) other).treapMap);
+  }
+
+  /** Parallel version of {@link #union(Treap)}, see {@link TreapMap#union(ValueTreap, BiFunction, ForkJoinPool)} */
+  public boolean union(TreapSet<K> other, ForkJoinPool pool) {
+    return treapMap.union(other.treapMap, (value, otherValue) -> value, pool);
+  }
+
+  /** Parallel version of {@link #intersect(Treap)} */
+  public boolean intersect(TreapSet<K> other, ForkJoinPool pool) {
+    return treapMap.intersect(other.treapMap, (value, otherValue) -> value, pool);
+  }
+
+  /** Parallel version of {@link #difference(Treap)} */
+  public boolean difference(TreapSet<K> other, ForkJoinPool pool) {
+    return treapMap.difference(other.treapMap, pool);
   }
 
   @Override
   public void clear() {
-    treapMap = new TreapMap<>(treapMap.getRandom());
+    treapMap.clear();
   }
 
   @Override
@@ -135,6 +310,21 @@ public class TreapSet<K> implements Treap<K> {
     return new TreapSet<>(treapMap.merge(((TreapSet<K>) right).treapMap));
   }
 
+  /**
+   * Splits this set in place, see {@link TreapMap#splitInPlace(Object, TreapMap, Inclusion)}
+   *
+   * @return true if this set contained the value
+   * @throws IllegalArgumentException if the {@code right} set is this set
+   */
+  public boolean splitInPlace(K value, TreapSet<K> right, Inclusion inclusion) {
+    return treapMap.splitInPlace(value, right.treapMap, inclusion);
+  }
+
+  /** Merges the {@code right} set into this one in place, see {@link TreapMap#mergeInPlace(TreapMap)} */
+  public void mergeInPlace(TreapSet<K> right) {
+    treapMap.mergeInPlace(right.treapMap);
+  }
+
   @Override
   public int size() {
     return treapMap.size();
@@ -151,23 +341,13 @@ public class TreapSet<K> implements Treap<K> {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public Iterator<K> iterator() {
-    return new Iterator<K>() {
-
-      private Object[] array = toArray();
-      private int index = 0;
-
-      @Override
-      public boolean hasNext() {
-        return index < array.length;
-      }
+    return treapMap.new KeyIterator();
+  }
 
-      @Override
-      public K next() {
-        return (K) array[index++];
-      }
-    };
+  @Override
+  public Spliterator<K> spliterator() {
+    return treapMap.keySpliterator();
   }
 
   @Override
@@ -240,7 +420,7 @@ public class TreapSet<K> implements Treap<K> {
 
   @Override
   public Iterator<K> descendingIterator() {
-    return treapMap.new KeyIterator();
+    return treapMap.new DescendingKeyIterator();
   }
 
   @Override
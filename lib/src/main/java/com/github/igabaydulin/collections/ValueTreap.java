@@ -1,14 +1,42 @@
 package com.github.igabaydulin.collections;
 
 import com.github.igabaydulin.collections.utils.Reference;
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.function.BiFunction;
 
 public interface ValueTreap<K, V> extends NavigableMap<K, V> {
 
   V getByIndex(int index);
 
+  /** Returns the number of keys less than the key, which is the index of the key if it is present */
+  int rankOf(K key);
+
+  /**
+   * Returns the number of keys between {@code from} and {@code to}, each bound is included if its flag is set
+   *
+   * @throws IllegalArgumentException if {@code from} is greater than {@code to}
+   */
+  int countInRange(K from, boolean fromInclusive, K to, boolean toInclusive);
+
+  /** Returns the index of the greatest key less than or equal to the key, or -1 if there is no such key */
+  int indexOfFloor(K key);
+
+  /** Returns the index of the least key greater than or equal to the key, or -1 if there is no such key */
+  int indexOfCeiling(K key);
+
+  /**
+   * Returns an unmodifiable list view of entries at indices from {@code fromIndex} inclusive to {@code toIndex}
+   * exclusive in ascending key order; the view fails fast once the treap is structurally modified
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or {@code fromIndex} is greater than {@code
+   *     toIndex}
+   */
+  List<Entry<K, V>> subList(int fromIndex, int toIndex);
+
   boolean contains(K key);
 
+  /** Puts the key with the priority; implementations may keep the priority narrowed, e.g. to {@code float} */
   V put(K key, V value, double priority);
 
   boolean putBack(K[] keys, V[] values, double[] priorities);
@@ -23,6 +51,47 @@ public interface ValueTreap<K, V> extends NavigableMap<K, V> {
 
   ValueTreap<K, V> merge(ValueTreap<K, V> right);
 
+  /**
+   * Adds entries of the other treap to this one, values of common keys are replaced by values of the other treap; the
+   * other treap is not changed
+   *
+   * <p>{@link ClassCastException} may be thrown by implementation if it does not support set operations with another
+   * implementation
+   *
+   * @return true if any key was added
+   */
+  boolean union(ValueTreap<K, V> other);
+
+  /**
+   * Adds entries of the other treap to this one; the other treap is not changed
+   *
+   * @param combine computes the value of a common key from its value in this treap and its value in the other one
+   * @return true if any key was added
+   */
+  boolean union(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine);
+
+  /**
+   * Retains only keys present in the other treap keeping values of this treap; the other treap is not changed
+   *
+   * @return true if any key was removed
+   */
+  boolean intersect(ValueTreap<K, V> other);
+
+  /**
+   * Retains only keys present in the other treap; the other treap is not changed
+   *
+   * @param combine computes the value of a common key from its value in this treap and its value in the other one
+   * @return true if any key was removed
+   */
+  boolean intersect(ValueTreap<K, V> other, BiFunction<? super V, ? super V, ? extends V> combine);
+
+  /**
+   * Removes keys present in the other treap; the other treap is not changed
+   *
+   * @return true if any key was removed
+   */
+  boolean difference(ValueTreap<K, V> other);
+
   int height();
 
   enum Inclusion {
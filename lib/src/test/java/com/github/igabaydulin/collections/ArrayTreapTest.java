@@ -0,0 +1,122 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing array-backed treaps")
+class ArrayTreapTest {
+
+  private static final int OPERATIONS = 20000;
+  private static final int BOUND = 3000;
+
+  private static ArrayTreapSet<Integer> random(Random random, int size, int bound, TreeSet<Integer> expected) {
+    ArrayTreapSet<Integer> set = new ArrayTreapSet<>(random.nextLong());
+    while (expected.size() < size) {
+      int value = random.nextInt(bound);
+      Assertions.assertEquals(expected.add(value), set.add(value));
+    }
+    return set;
+  }
+
+  @Test
+  @DisplayName("Check ArrayTreapMap against TreeMap while indices are reused")
+  void map_test() {
+    Random random = new Random(23);
+    ArrayTreapMap<Integer, Integer> treap = new ArrayTreapMap<>(23);
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < OPERATIONS; ++i) {
+      int key = random.nextInt(BOUND);
+      if (random.nextInt(3) == 0) {
+        Assertions.assertEquals(expected.remove(key), treap.remove(key));
+      } else {
+        Assertions.assertEquals(expected.put(key, i), treap.put(key, i));
+      }
+      Assertions.assertEquals(expected.get(key), treap.get(key));
+    }
+
+    Assertions.assertEquals(expected, treap);
+    Assertions.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(treap.entrySet()));
+    Assertions.assertEquals(
+        new ArrayList<>(expected.descendingMap().values()), new ArrayList<>(treap.descendingMap().values()));
+    Assertions.assertEquals(expected.subMap(100, 2000), treap.subMap(100, true, 2000, false));
+
+    treap.trimToSize();
+    Assertions.assertEquals(expected, treap);
+
+    Iterator<Entry<Integer, Integer>> iterator = treap.entrySet().iterator();
+    Iterator<Entry<Integer, Integer>> expectedIterator = expected.entrySet().iterator();
+    while (expectedIterator.hasNext()) {
+      Assertions.assertEquals(expectedIterator.next(), iterator.next());
+      if (random.nextBoolean()) {
+        iterator.remove();
+        expectedIterator.remove();
+      }
+    }
+    Assertions.assertFalse(iterator.hasNext());
+    Assertions.assertEquals(expected, treap);
+
+    treap.clear();
+    Assertions.assertTrue(treap.isEmpty());
+    Assertions.assertNull(treap.put(1, 1));
+    Assertions.assertEquals(1, treap.size());
+  }
+
+  @Test
+  @DisplayName("Check split and merge of ArrayTreapMap copy entries")
+  void split_merge_test() {
+    ArrayTreapMap<Integer, Integer> treap = new ArrayTreapMap<>(29);
+    for (int i = 0; i < 1000; ++i) {
+      treap.put(i, -i);
+    }
+
+    Reference<ValueTreap<Integer, Integer>> left = new Reference<>();
+    Reference<ValueTreap<Integer, Integer>> right = new Reference<>();
+    Assertions.assertTrue(treap.split(400, left, right, Inclusion.NONE));
+    Assertions.assertEquals(400, left.get().size());
+    Assertions.assertEquals(599, right.get().size());
+    Assertions.assertEquals(401, (int) right.get().firstKey());
+    Assertions.assertEquals(1000, treap.size());
+
+    right.get().put(400, -400);
+    ValueTreap<Integer, Integer> merged = left.get().merge(right.get());
+    Assertions.assertEquals(treap, merged);
+    Assertions.assertEquals(treap.height(), merged.height());
+  }
+
+  @Test
+  @DisplayName("Check ArrayTreapSet set operations against TreeSet")
+  void set_operations_test() {
+    Random random = new Random(31);
+    TreeSet<Integer> left = new TreeSet<>();
+    TreeSet<Integer> right = new TreeSet<>();
+    ArrayTreapSet<Integer> leftTreap = random(random, 5000, 20000, left);
+    ArrayTreapSet<Integer> rightTreap = random(random, 3000, 20000, right);
+
+    ArrayTreapSet<Integer> union = new ArrayTreapSet<>(left);
+    TreeSet<Integer> expectedUnion = new TreeSet<>(left);
+    Assertions.assertEquals(expectedUnion.addAll(right), union.union(rightTreap));
+    Assertions.assertEquals(expectedUnion, union);
+
+    ArrayTreapSet<Integer> intersection = new ArrayTreapSet<>(left);
+    TreeSet<Integer> expectedIntersection = new TreeSet<>(left);
+    Assertions.assertEquals(expectedIntersection.retainAll(right), intersection.intersect(rightTreap));
+    Assertions.assertEquals(expectedIntersection, intersection);
+
+    Assertions.assertEquals(left.removeAll(right), leftTreap.difference(rightTreap));
+    Assertions.assertEquals(left, leftTreap);
+    for (int value : right) {
+      Assertions.assertEquals(left.add(value), leftTreap.add(value));
+    }
+    Assertions.assertEquals(new ArrayList<>(left), new ArrayList<>(leftTreap));
+    Assertions.assertEquals(right.size(), rightTreap.size());
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing interval treap map")
+class IntervalTreapMapTest {
+
+  private static final int BOUND = 10000;
+
+  /** Returns intervals as "start:end=value" in ascending order, keys of the map are "start:end" */
+  private static List<String> collect(
+      TreeMap<Long, TreeMap<Long, Integer>> intervals, long from, long to, boolean stab) {
+    List<String> result = new ArrayList<>();
+    intervals.forEach(
+        (start, ends) ->
+            ends.forEach(
+                (end, value) -> {
+                  boolean starts = stab ? start <= to : start < to;
+                  if (starts && end > from) {
+                    result.add(start + ":" + end + "=" + value);
+                  }
+                }));
+    return result;
+  }
+
+  private static List<String> overlapping(IntervalTreapMap<Long, Integer> treap, long from, long to) {
+    List<String> result = new ArrayList<>();
+    treap.forEachOverlapping(from, to, (start, end, value) -> result.add(start + ":" + end + "=" + value));
+    return result;
+  }
+
+  @Test
+  @DisplayName("Check overlap and stabbing queries against a brute force scan")
+  void query_test() {
+    Random random = new Random(101);
+    IntervalTreapMap<Long, Integer> treap = new IntervalTreapMap<>(101);
+    TreeMap<Long, TreeMap<Long, Integer>> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND; ++i) {
+      long start = random.nextInt(BOUND * 10);
+      long end = start + 1 + random.nextInt(random.nextBoolean() ? 50 : 2000);
+      if (random.nextInt(4) == 0) {
+        TreeMap<Long, Integer> ends = expected.get(start);
+        Integer removed = ends == null ? null : ends.remove(end);
+        Assertions.assertEquals(removed, treap.remove(start, end));
+      } else {
+        TreeMap<Long, Integer> ends = expected.computeIfAbsent(start, key -> new TreeMap<>());
+        Assertions.assertEquals(ends.put(end, i), treap.put(start, end, i));
+      }
+
+      long from = random.nextInt(BOUND * 10);
+      long to = from + 1 + random.nextInt(300);
+      Assertions.assertEquals(collect(expected, from, to, false), overlapping(treap, from, to));
+
+      List<String> containing = new ArrayList<>();
+      treap.forEachContaining(from, (s, e, value) -> containing.add(s + ":" + e + "=" + value));
+      Assertions.assertEquals(collect(expected, from, from, true), containing);
+    }
+
+    Assertions.assertEquals(collect(expected, 0, BOUND * 20, false).size(), treap.size());
+    Assertions.assertEquals(collect(expected, 500, 700, false).size(), treap.countOverlapping(500L, 700L));
+    Assertions.assertEquals(0, treap.countOverlapping(500L, 500L));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.put(5L, 5L, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.countOverlapping(5L, 4L));
+  }
+
+  @Test
+  @DisplayName("Check sliding a window by removal, split and merge")
+  void window_test() {
+    IntervalTreapMap<Long, Integer> treap = new IntervalTreapMap<>(103);
+    for (int i = 0; i < BOUND; ++i) {
+      treap.put((long) i, (long) i + 10, i);
+    }
+
+    treap.removeStartingBefore(1000L);
+    Assertions.assertEquals(BOUND - 1000, treap.size());
+    Assertions.assertEquals(0, treap.countOverlapping(0L, 1000L));
+    Assertions.assertEquals(1, treap.countOverlapping(1000L, 1001L));
+
+    IntervalTreapMap<Long, Integer> right = new IntervalTreapMap<>();
+    treap.splitInPlace(5000L, right);
+    Assertions.assertEquals(4000, treap.size());
+    Assertions.assertEquals(BOUND - 5000, right.size());
+    Assertions.assertEquals(9, treap.countOverlapping(5000L, 6000L));
+    Assertions.assertEquals(1000, right.countOverlapping(5000L, 6000L));
+
+    treap.mergeInPlace(right);
+    Assertions.assertTrue(right.isEmpty());
+    Assertions.assertEquals(1009, treap.countOverlapping(5000L, 6000L));
+    List<String> last = overlapping(treap, 10004L, 10005L);
+    Assertions.assertEquals(5, last.size());
+    Assertions.assertEquals("9999:10009=9999", last.get(4));
+
+    treap.splitInPlace(BOUND * 2L, right);
+    Assertions.assertTrue(right.isEmpty());
+    Assertions.assertEquals(BOUND - 1000, treap.size());
+  }
+}
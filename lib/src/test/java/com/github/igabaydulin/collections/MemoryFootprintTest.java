@@ -0,0 +1,83 @@
+package com.github.igabaydulin.collections;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+@DisplayName("Testing memory footprint against TreeMap and TreeSet")
+class MemoryFootprintTest {
+
+  private static final int SIZE = 10000;
+
+  private static final Integer[] KEYS = new Integer[SIZE];
+
+  static {
+    for (int i = 0; i < SIZE; ++i) {
+      KEYS[i] = i;
+    }
+  }
+
+  /** Returns retained bytes per entry without the keys, which are shared by all collections */
+  private static double perEntry(Object collection) {
+    long keys = GraphLayout.parseInstance((Object) KEYS).totalSize();
+    return (double) (GraphLayout.parseInstance(collection, KEYS).totalSize() - keys) / SIZE;
+  }
+
+  private static <M extends Map<Integer, Integer>> M fill(M map) {
+    for (Integer key : KEYS) {
+      map.put(key, key);
+    }
+    return map;
+  }
+
+  private static <S extends Set<Integer>> S fill(S set) {
+    for (Integer key : KEYS) {
+      set.add(key);
+    }
+    return set;
+  }
+
+  @Test
+  @DisplayName("Check map node is not larger than TreeMap entry and set node is smaller")
+  void node_layout_test() throws ClassNotFoundException {
+    long entrySize = ClassLayout.parseClass(Class.forName("java.util.TreeMap$Entry")).instanceSize();
+    ClassLayout valueNode = ClassLayout.parseClass(TreapMap.ValueNode.class);
+    ClassLayout keyNode = ClassLayout.parseClass(TreapMap.KeyNode.class);
+
+    Assertions.assertTrue(valueNode.instanceSize() <= entrySize, valueNode::toPrintable);
+    Assertions.assertTrue(keyNode.instanceSize() < entrySize, keyNode::toPrintable);
+  }
+
+  @Test
+  @DisplayName("Check per-entry footprint of TreapMap and TreapSet against TreeMap and TreeSet")
+  void footprint_test() {
+    double treapMap = perEntry(fill(new TreapMap<>()));
+    double treeMap = perEntry(fill(new TreeMap<>()));
+    double treapSet = perEntry(fill(new TreapSet<>()));
+    double treeSet = perEntry(fill(new TreeSet<>()));
+
+    Assertions.assertTrue(
+        treapMap <= treeMap + 1, () -> String.format("TreapMap: %.1f, TreeMap: %.1f", treapMap, treeMap));
+    Assertions.assertTrue(treapSet < treeSet, () -> String.format("TreapSet: %.1f, TreeSet: %.1f", treapSet, treeSet));
+  }
+
+  @Test
+  @DisplayName("Check per-entry footprint of trimmed ArrayTreapMap and ArrayTreapSet")
+  void array_footprint_test() {
+    ArrayTreapMap<Integer, Integer> map = fill(new ArrayTreapMap<>());
+    map.trimToSize();
+    ArrayTreapSet<Integer> set = fill(new ArrayTreapSet<>());
+    set.trimToSize();
+
+    double arrayTreapMap = perEntry(map);
+    double arrayTreapSet = perEntry(set);
+    Assertions.assertTrue(arrayTreapMap <= 24.1, () -> String.format("ArrayTreapMap: %.1f", arrayTreapMap));
+    Assertions.assertTrue(arrayTreapSet <= 20.1, () -> String.format("ArrayTreapSet: %.1f", arrayTreapSet));
+  }
+}
@@ -0,0 +1,138 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing persistent treap")
+class PersistentTreapTest {
+
+  private static PersistentTreapSet<Integer> range(int from, int to) {
+    PersistentTreapSet<Integer> treap = PersistentTreapSet.empty();
+    for (int i = from; i < to; ++i) {
+      treap = treap.add(i);
+    }
+    return treap;
+  }
+
+  private static void check(PersistentTreapSet<Integer> treap, int from, int to) {
+    Assertions.assertEquals(to - from, treap.size());
+    int index = 0;
+    for (int value : treap) {
+      Assertions.assertEquals(from + index, value);
+      Assertions.assertEquals(value, treap.get(index++));
+    }
+  }
+
+  @Test
+  @DisplayName("Check old versions are not affected by put and remove")
+  void versions_test() {
+    PersistentTreapMap<Integer, String> empty = PersistentTreapMap.empty();
+    PersistentTreapMap<Integer, String> first = empty.put(1, "a").put(2, "b");
+    PersistentTreapMap<Integer, String> second = first.put(2, "c").put(3, "d");
+    PersistentTreapMap<Integer, String> third = second.remove(1);
+
+    Assertions.assertTrue(empty.isEmpty());
+    Assertions.assertEquals("PersistentTreapMap{1=a, 2=b}", first.toString());
+    Assertions.assertEquals("PersistentTreapMap{1=a, 2=c, 3=d}", second.toString());
+    Assertions.assertEquals("PersistentTreapMap{2=c, 3=d}", third.toString());
+    Assertions.assertSame(third, third.remove(1));
+    Assertions.assertEquals(2, third.size());
+  }
+
+  @Test
+  @DisplayName("Check split and merge return new versions")
+  void split_merge_test() {
+    PersistentTreapSet<Integer> treap = range(0, 100);
+    Reference<PersistentTreapSet<Integer>> left = new Reference<>();
+    Reference<PersistentTreapSet<Integer>> right = new Reference<>();
+
+    Assertions.assertTrue(treap.split(40, left, right, Inclusion.NONE));
+    check(left.get(), 0, 40);
+    check(right.get(), 41, 100);
+    check(treap, 0, 100);
+
+    Assertions.assertFalse(left.get().split(1000, left, right, Inclusion.RIGHT));
+    check(left.get(), 0, 40);
+    Assertions.assertTrue(right.get().isEmpty());
+
+    PersistentTreapSet<Integer> merged = range(0, 50).merge(range(50, 100));
+    check(merged, 0, 100);
+    check(merged.subSet(10, true, 20, false), 10, 20);
+    check(merged.headSet(10, true), 0, 11);
+    check(merged.tailSet(90, false), 91, 100);
+    check(merged, 0, 100);
+  }
+
+  @Test
+  @DisplayName("Check navigation and iteration")
+  void navigation_test() {
+    PersistentTreapMap<Integer, Integer> treap = PersistentTreapMap.empty(Comparator.reverseOrder());
+    for (int i = 0; i < 10; ++i) {
+      treap = treap.put(i * 2, i);
+    }
+
+    Assertions.assertEquals(18, treap.firstEntry().getKey());
+    Assertions.assertEquals(0, treap.lastEntry().getKey());
+    Assertions.assertEquals(6, treap.floorEntry(5).getKey());
+    Assertions.assertEquals(4, treap.ceilingEntry(5).getKey());
+    Assertions.assertEquals(8, treap.lowerEntry(6).getKey());
+    Assertions.assertEquals(4, treap.higherEntry(6).getKey());
+    Assertions.assertNull(treap.higherEntry(0));
+    Assertions.assertEquals(4, treap.rank(12, true));
+    Entry<Integer, Integer> first = treap.firstEntry();
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> first.setValue(0));
+
+    List<Integer> keys = new ArrayList<>();
+    treap.descendingIterator().forEachRemaining(entry -> keys.add(entry.getKey()));
+    Assertions.assertEquals(0, (int) keys.get(0));
+    Assertions.assertEquals(18, (int) keys.get(9));
+  }
+
+  @Test
+  @DisplayName("Check snapshots stay consistent with random updates")
+  void snapshot_test() {
+    Random random = new Random(42);
+    List<PersistentTreapMap<Integer, Integer>> snapshots = new ArrayList<>();
+    List<TreeMap<Integer, Integer>> expected = new ArrayList<>();
+
+    PersistentTreapMap<Integer, Integer> treap = PersistentTreapMap.empty();
+    TreeMap<Integer, Integer> treeMap = new TreeMap<>();
+    for (int i = 0; i < 5000; ++i) {
+      int key = random.nextInt(500);
+      if (random.nextBoolean()) {
+        treap = treap.put(key, i);
+        treeMap.put(key, i);
+      } else {
+        treap = treap.remove(key);
+        treeMap.remove(key);
+      }
+
+      if (i % 500 == 0) {
+        snapshots.add(treap);
+        expected.add(new TreeMap<>(treeMap));
+      }
+    }
+
+    for (int i = 0; i < snapshots.size(); ++i) {
+      PersistentTreapMap<Integer, Integer> snapshot = snapshots.get(i);
+      Assertions.assertEquals(expected.get(i).size(), snapshot.size());
+
+      Iterator<Entry<Integer, Integer>> iterator = snapshot.iterator();
+      for (Entry<Integer, Integer> entry : expected.get(i).entrySet()) {
+        Assertions.assertEquals(entry, iterator.next());
+        Assertions.assertEquals(entry.getValue(), snapshot.get(entry.getKey()));
+      }
+      Assertions.assertFalse(iterator.hasNext());
+    }
+  }
+}
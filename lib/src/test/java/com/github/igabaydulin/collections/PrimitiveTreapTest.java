@@ -0,0 +1,352 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing primitive treaps")
+class PrimitiveTreapTest {
+
+  private static final int OPERATIONS = 20000;
+  private static final int BOUND = 5000;
+
+  @Test
+  @DisplayName("Check IntTreapSet against TreeSet")
+  void int_set_test() {
+    Random random = new Random(13);
+    IntTreapSet treap = new IntTreapSet(13);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < OPERATIONS; ++i) {
+      int value = random.nextInt(BOUND) - BOUND / 2;
+      if (random.nextInt(3) == 0) {
+        Assertions.assertEquals(expected.remove(value), treap.remove(value));
+      } else {
+        Assertions.assertEquals(expected.add(value), treap.add(value));
+      }
+      Assertions.assertEquals(expected.contains(value), treap.contains(value));
+    }
+
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), treap.toArray());
+    Assertions.assertEquals((int) expected.first(), treap.first());
+    Assertions.assertEquals((int) expected.last(), treap.last());
+
+    List<Integer> values = new ArrayList<>(expected);
+    for (int index = 0; index < values.size(); index += 17) {
+      Assertions.assertEquals((int) values.get(index), treap.get(index));
+    }
+
+    PrimitiveIterator.OfInt iterator = treap.iterator();
+    for (int value : expected) {
+      Assertions.assertEquals(value, iterator.nextInt());
+    }
+    Assertions.assertFalse(iterator.hasNext());
+
+    IntTreapSet right = new IntTreapSet(13);
+    int key = values.get(values.size() / 2);
+    Assertions.assertTrue(treap.splitInPlace(key, right, Inclusion.RIGHT));
+    Assertions.assertEquals(expected.headSet(key).size(), treap.size());
+    Assertions.assertEquals(key, right.first());
+    treap.mergeInPlace(right);
+    Assertions.assertTrue(right.isEmpty());
+    Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), treap.toArray());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.splitInPlace(key, treap, Inclusion.NONE));
+  }
+
+  @Test
+  @DisplayName("Check LongTreapSet against TreeSet")
+  void long_set_test() {
+    Random random = new Random(17);
+    LongTreapSet treap = new LongTreapSet(17);
+    TreeSet<Long> expected = new TreeSet<>();
+    for (int i = 0; i < OPERATIONS; ++i) {
+      long value = random.nextInt(BOUND) * (1L << 33);
+      if (random.nextInt(3) == 0) {
+        Assertions.assertEquals(expected.remove(value), treap.remove(value));
+      } else {
+        Assertions.assertEquals(expected.add(value), treap.add(value));
+      }
+    }
+
+    Assertions.assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), treap.toArray());
+    List<Long> values = new ArrayList<>(expected);
+    for (int index = 0; index < values.size(); index += 17) {
+      Assertions.assertEquals((long) values.get(index), treap.get(index));
+    }
+
+    LongTreapSet right = new LongTreapSet(17);
+    long key = values.get(values.size() / 3);
+    Assertions.assertTrue(treap.splitInPlace(key, right, Inclusion.NONE));
+    Assertions.assertEquals(expected.size() - 1, treap.size() + right.size());
+    treap.mergeInPlace(right);
+    Assertions.assertFalse(treap.contains(key));
+    Assertions.assertFalse(treap.splitInPlace(key, right, Inclusion.LEFT));
+    Assertions.assertEquals(expected.lower(key), treap.last());
+    Assertions.assertEquals(expected.higher(key), right.first());
+  }
+
+  @Test
+  @DisplayName("Check LongObjTreapMap and LongLongTreapMap against TreeMap")
+  void long_map_test() {
+    Random random = new Random(19);
+    LongObjTreapMap<String> objMap = new LongObjTreapMap<>(19);
+    LongLongTreapMap longMap = new LongLongTreapMap(19);
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    for (int i = 0; i < OPERATIONS; ++i) {
+      long key = random.nextInt(BOUND);
+      long value = random.nextLong();
+      if (random.nextInt(3) == 0) {
+        Long previous = expected.remove(key);
+        Assertions.assertEquals(previous == null ? null : String.valueOf(previous), objMap.remove(key));
+        Assertions.assertEquals(previous != null, longMap.remove(key));
+      } else {
+        Long previous = expected.put(key, value);
+        String previousString = previous == null ? null : String.valueOf(previous);
+        Assertions.assertEquals(previousString, objMap.put(key, String.valueOf(value)));
+        Assertions.assertEquals(previous == null, longMap.put(key, value));
+      }
+      Assertions.assertEquals(expected.containsKey(key), objMap.containsKey(key));
+      Assertions.assertEquals(expected.getOrDefault(key, -1L), longMap.getOrDefault(key, -1L));
+    }
+
+    long[] keys = expected.keySet().stream().mapToLong(Long::longValue).toArray();
+    Assertions.assertArrayEquals(keys, objMap.toKeyArray());
+    Assertions.assertArrayEquals(keys, longMap.toKeyArray());
+    long[] longValues = expected.values().stream().mapToLong(Long::longValue).toArray();
+    Assertions.assertArrayEquals(longValues, longMap.toValueArray());
+    Assertions.assertEquals((long) expected.firstKey(), objMap.firstKey());
+    Assertions.assertEquals((long) expected.lastKey(), longMap.lastKey());
+
+    List<Long> values = new ArrayList<>(expected.values());
+    for (int index = 0; index < keys.length; index += 17) {
+      Assertions.assertEquals(keys[index], objMap.keyAt(index));
+      Assertions.assertEquals(String.valueOf(values.get(index)), objMap.getByIndex(index));
+      Assertions.assertEquals((long) values.get(index), longMap.getByIndex(index));
+    }
+
+    PrimitiveIterator.OfLong iterator = objMap.keyIterator();
+    for (long key : keys) {
+      Assertions.assertEquals(key, iterator.nextLong());
+    }
+    Assertions.assertFalse(iterator.hasNext());
+
+    String string = objMap.toString();
+    LongObjTreapMap<String> right = new LongObjTreapMap<>(19);
+    long key = keys[keys.length / 2];
+    Assertions.assertTrue(objMap.splitInPlace(key, right, Inclusion.LEFT));
+    Assertions.assertEquals(key, objMap.lastKey());
+    objMap.mergeInPlace(right);
+    Assertions.assertEquals(string, objMap.toString());
+
+    LongLongTreapMap longRight = new LongLongTreapMap(19);
+    Assertions.assertTrue(longMap.splitInPlace(key, longRight, Inclusion.RIGHT));
+    Assertions.assertEquals(key, longRight.firstKey());
+    Assertions.assertEquals(keys.length, longMap.size() + longRight.size());
+    longMap.mergeInPlace(longRight);
+    Assertions.assertArrayEquals(keys, longMap.toKeyArray());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> longMap.mergeInPlace(longMap));
+  }
+
+  @Test
+  @DisplayName("Check halves of an in-place split stay consistent while both are modified")
+  void split_modify_test() {
+    IntTreapSet treap = new IntTreapSet(23);
+    LongObjTreapMap<Integer> map = new LongObjTreapMap<>(23);
+    for (int i = 0; i < 1000; ++i) {
+      treap.add(i);
+      map.put(i, i);
+    }
+
+    IntTreapSet right = new IntTreapSet(23);
+    LongObjTreapMap<Integer> rightMap = new LongObjTreapMap<>(23);
+    Assertions.assertFalse(treap.splitInPlace(-1, right, Inclusion.RIGHT));
+    treap.mergeInPlace(right);
+    Assertions.assertTrue(treap.splitInPlace(500, right, Inclusion.RIGHT));
+    Assertions.assertTrue(map.splitInPlace(500, rightMap, Inclusion.RIGHT));
+    for (int i = 0; i < 500; i += 2) {
+      treap.remove(i);
+      right.add(i + 1000);
+      map.put(i, -i);
+      rightMap.remove(i + 500);
+    }
+
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 1; i < 500; i += 2) {
+      expected.add(i);
+    }
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), treap.toArray());
+    Assertions.assertFalse(treap.contains(10));
+    Assertions.assertTrue(treap.contains(11));
+    Assertions.assertEquals(750, right.size());
+    Assertions.assertEquals(500, right.first());
+    Assertions.assertEquals(1498, right.last());
+
+    treap.mergeInPlace(right);
+    Assertions.assertEquals(1000, treap.size());
+    Assertions.assertEquals(treap.size(), treap.toArray().length);
+    Assertions.assertEquals(500, map.size());
+    Assertions.assertEquals(-10, (int) map.get(10));
+    Assertions.assertEquals(250, rightMap.size());
+    Assertions.assertFalse(rightMap.containsKey(500));
+    Assertions.assertEquals(501, rightMap.firstKey());
+  }
+
+  @Test
+  @DisplayName("Check OffHeapLongLongTreapMap against TreeMap across several slabs")
+  void off_heap_map_test() {
+    Random random = new Random(37);
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    OffHeapLongLongTreapMap treap = new OffHeapLongLongTreapMap(37);
+    try {
+      for (int i = 0; i < OPERATIONS * 3; ++i) {
+        long key = random.nextInt(BOUND * 4) * 31L;
+        if (random.nextInt(4) == 0) {
+          Assertions.assertEquals(expected.remove(key) != null, treap.remove(key));
+        } else {
+          Assertions.assertEquals(expected.put(key, (long) i) == null, treap.put(key, i));
+        }
+        Assertions.assertEquals(expected.getOrDefault(key, -1L), treap.getOrDefault(key, -1L));
+      }
+
+      long[] keys = expected.keySet().stream().mapToLong(Long::longValue).toArray();
+      long[] values = expected.values().stream().mapToLong(Long::longValue).toArray();
+      Assertions.assertEquals(expected.size(), treap.size());
+      Assertions.assertArrayEquals(keys, treap.toKeyArray());
+      Assertions.assertArrayEquals(values, treap.toValueArray());
+      Assertions.assertEquals((long) expected.firstKey(), treap.firstKey());
+      Assertions.assertEquals((long) expected.lastKey(), treap.lastKey());
+      for (int index = 0; index < keys.length; index += 17) {
+        Assertions.assertEquals(keys[index], treap.keyAt(index));
+        Assertions.assertEquals(values[index], treap.getByIndex(index));
+      }
+
+      PrimitiveIterator.OfLong iterator = treap.keyIterator();
+      for (long key : keys) {
+        Assertions.assertEquals(key, iterator.nextLong());
+      }
+      Assertions.assertFalse(iterator.hasNext());
+
+      Reference<OffHeapLongLongTreapMap> left = new Reference<>();
+      Reference<OffHeapLongLongTreapMap> right = new Reference<>();
+      long key = keys[keys.length / 3];
+      Assertions.assertTrue(treap.split(key, left, right, Inclusion.RIGHT));
+      try (OffHeapLongLongTreapMap leftMap = left.get();
+          OffHeapLongLongTreapMap rightMap = right.get();
+          OffHeapLongLongTreapMap merged = leftMap.merge(rightMap)) {
+        Assertions.assertEquals(expected.headMap(key).size(), leftMap.size());
+        Assertions.assertEquals(key, rightMap.firstKey());
+        Assertions.assertEquals(treap.toString(), merged.toString());
+        Assertions.assertTrue(merged.remove(key));
+        Assertions.assertTrue(treap.containsKey(key));
+      }
+
+      treap.clear();
+      Assertions.assertTrue(treap.isEmpty());
+      Assertions.assertTrue(treap.put(1, 2));
+      Assertions.assertEquals("OffHeapLongLongTreapMap{1=2}", treap.toString());
+    } finally {
+      treap.close();
+    }
+
+    Assertions.assertThrows(IllegalStateException.class, treap::size);
+    Assertions.assertThrows(IllegalStateException.class, () -> treap.put(1, 2));
+  }
+
+  private static void check(TreeMap<Long, Long> expected, MappedLongLongTreapMap treap) {
+    long[] keys = expected.keySet().stream().mapToLong(Long::longValue).toArray();
+    long[] values = expected.values().stream().mapToLong(Long::longValue).toArray();
+    Assertions.assertEquals(expected.size(), treap.size());
+    for (int index = 0; index < keys.length; ++index) {
+      Assertions.assertEquals(keys[index], treap.keyAt(index));
+      Assertions.assertEquals(values[index], treap.getByIndex(index));
+    }
+
+    PrimitiveIterator.OfLong iterator = treap.keyIterator();
+    for (long key : keys) {
+      Assertions.assertEquals(key, iterator.nextLong());
+    }
+    Assertions.assertFalse(iterator.hasNext());
+
+    for (long key = -1; key <= BOUND * 2; key += 7) {
+      Assertions.assertEquals(expected.getOrDefault(key, -1L), treap.getOrDefault(key, -1L));
+      Long floor = expected.floorKey(key);
+      Long ceiling = expected.ceilingKey(key);
+      Assertions.assertEquals(floor == null ? Long.MIN_VALUE : floor, treap.floorKey(key, Long.MIN_VALUE));
+      Assertions.assertEquals(ceiling == null ? Long.MAX_VALUE : ceiling, treap.ceilingKey(key, Long.MAX_VALUE));
+    }
+
+    TreeMap<Long, Long> range = new TreeMap<>();
+    treap.forEach(BOUND / 3, BOUND, range::put);
+    Assertions.assertEquals(expected.subMap((long) BOUND / 3, (long) BOUND), range);
+  }
+
+  @Test
+  @DisplayName("Check MappedLongLongTreapMap with its overlay against TreeMap")
+  void mapped_map_test() throws IOException {
+    Random random = new Random(41);
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND; ++i) {
+      expected.put((long) random.nextInt(BOUND * 2), random.nextLong());
+    }
+
+    Path file = Files.createTempFile("treap", ".bin");
+    Path saved = Files.createTempFile("treap", ".bin");
+    try {
+      MappedLongLongTreapMap.write(file, expected);
+      MappedLongLongTreapMap overlay = MappedLongLongTreapMap.open(file);
+      try {
+        check(expected, overlay);
+
+        for (int i = 0; i < OPERATIONS / 4; ++i) {
+          long key = random.nextInt(BOUND * 2);
+          if (random.nextBoolean()) {
+            Assertions.assertEquals(expected.remove(key) != null, overlay.remove(key));
+          } else {
+            Assertions.assertEquals(expected.put(key, (long) i) == null, overlay.put(key, i));
+          }
+          Assertions.assertEquals(expected.containsKey(key), overlay.containsKey(key));
+        }
+        check(expected, overlay);
+        Assertions.assertEquals("MappedLongLongTreapMap{" + expected.toString().substring(1), overlay.toString());
+
+        overlay.save(saved);
+      } finally {
+        overlay.close();
+      }
+      Assertions.assertThrows(IllegalStateException.class, () -> overlay.getOrDefault(1, 1));
+
+      try (MappedLongLongTreapMap treap = MappedLongLongTreapMap.open(saved)) {
+        check(expected, treap);
+        for (long key = 0; key < BOUND; key += 3) {
+          treap.put(key, -key);
+          expected.put(key, -key);
+        }
+
+        treap.save(saved);
+        check(expected, treap);
+      }
+
+      try (MappedLongLongTreapMap treap = MappedLongLongTreapMap.open(saved)) {
+        check(expected, treap);
+      }
+
+      Files.write(file, new byte[] {1, 2, 3});
+      Assertions.assertThrows(IOException.class, () -> MappedLongLongTreapMap.open(file));
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(saved);
+    }
+  }
+}
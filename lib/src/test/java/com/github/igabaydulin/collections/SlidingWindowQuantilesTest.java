@@ -0,0 +1,95 @@
+package com.github.igabaydulin.collections;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing sliding window quantiles")
+class SlidingWindowQuantilesTest {
+
+  private static final double[] QUANTILES = {0, 0.01, 0.07, 0.25, 0.29, 0.5, 0.57, 0.9, 0.99, 1};
+
+  /** Returns the nearest-rank quantile of the samples sorting them */
+  private static long quantile(Deque<long[]> window, double quantile) {
+    long[] values = window.stream().mapToLong(sample -> sample[1]).sorted().toArray();
+    BigDecimal product = BigDecimal.valueOf(quantile).multiply(BigDecimal.valueOf(values.length));
+    int rank = product.setScale(0, RoundingMode.CEILING).intValueExact();
+    return values[Math.max(rank - 1, 0)];
+  }
+
+  @Test
+  @DisplayName("Check quantiles of a time window against sorting its samples")
+  void period_test() {
+    Random random = new Random(113);
+    SlidingWindowQuantiles quantiles = SlidingWindowQuantiles.ofLastPeriod(1000);
+    Deque<long[]> expected = new ArrayDeque<>();
+    long timestamp = 0;
+    for (int i = 0; i < 20000; ++i) {
+      timestamp += random.nextInt(random.nextInt(100) == 0 ? 500 : 3);
+      long value = (long) (-Math.log(1 - random.nextDouble()) * 100);
+      quantiles.add(timestamp, value);
+      expected.addLast(new long[] {timestamp, value});
+      while (expected.peekFirst()[0] <= timestamp - 1000) {
+        expected.removeFirst();
+      }
+
+      Assertions.assertEquals(expected.size(), quantiles.size());
+      if (i % 97 == 0) {
+        for (double quantile : QUANTILES) {
+          Assertions.assertEquals(quantile(expected, quantile), quantiles.quantile(quantile));
+        }
+        long count = expected.stream().filter(sample -> sample[1] <= value).count();
+        Assertions.assertEquals(count, quantiles.countAtMost(value));
+      }
+    }
+
+    long last = timestamp;
+    quantiles.advance(last + 999);
+    Assertions.assertEquals(expected.stream().filter(sample -> sample[0] == last).count(), quantiles.size());
+    quantiles.advance(last + 1000);
+    Assertions.assertTrue(quantiles.isEmpty());
+    Assertions.assertThrows(NoSuchElementException.class, quantiles::median);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> quantiles.add(last, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> quantiles.quantile(1.5));
+  }
+
+  @Test
+  @DisplayName("Check quantiles of a window of the last samples")
+  void samples_test() {
+    SlidingWindowQuantiles quantiles = SlidingWindowQuantiles.ofLastSamples(5);
+    for (long value : new long[] {9, 1, 8, 2, 7, 3, 6}) {
+      quantiles.add(0, value);
+    }
+
+    Assertions.assertEquals(5, quantiles.size());
+    Assertions.assertEquals(6, quantiles.median());
+    Assertions.assertEquals(2, quantiles.quantile(0));
+    Assertions.assertEquals(8, quantiles.quantile(1));
+    Assertions.assertEquals(3, quantiles.countAtMost(6));
+    Assertions.assertEquals(0, quantiles.countAtMost(1));
+    quantiles.clear();
+    Assertions.assertTrue(quantiles.isEmpty());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> SlidingWindowQuantiles.ofLastSamples(0));
+  }
+
+  @Test
+  @DisplayName("Check nearest ranks at quantiles whose product with the size is rounded")
+  void rank_boundary_test() {
+    for (int size : new int[] {100, 1000, 12345}) {
+      SlidingWindowQuantiles quantiles = SlidingWindowQuantiles.ofLastSamples(size);
+      for (int value = size; value > 0; --value) {
+        quantiles.add(0, value);
+      }
+
+      for (int rank = 1; rank <= size; ++rank) {
+        Assertions.assertEquals(rank, quantiles.quantile(rank / (double) size));
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing subtree aggregates")
+class TreapAggregateTest {
+
+  private static final int BOUND = 5000;
+  private static final TreapAggregator<Integer, Long, Long> SUM =
+      TreapAggregator.of(0L, (key, value) -> value, Long::sum);
+  /** Keys in ascending order, which checks that aggregates are combined in order */
+  private static final TreapAggregator<Integer, Long, String> KEYS =
+      TreapAggregator.of("", (key, value) -> key + ";", String::concat);
+
+  private static long sum(Map<Integer, Long> map) {
+    return map.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  private static String keys(Map<Integer, Long> map) {
+    StringBuilder builder = new StringBuilder();
+    map.keySet().forEach(key -> builder.append(key).append(';'));
+    return builder.toString();
+  }
+
+  @Test
+  @DisplayName("Check range sums against TreeMap while the map is modified")
+  void sum_test() {
+    Random random = new Random(89);
+    TreapMap<Integer, Long> treap = new TreapMap<>(89, SUM);
+    TreeMap<Integer, Long> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND * 4; ++i) {
+      int key = random.nextInt(BOUND);
+      long value = random.nextInt(1000);
+      switch (random.nextInt(6)) {
+        case 0:
+          Assertions.assertEquals(expected.remove(key), treap.remove(key));
+          break;
+        case 1:
+          Assertions.assertEquals(expected.pollFirstEntry(), treap.pollFirstEntry());
+          break;
+        case 2:
+          int count = treap.removeRange(key, true, key + 10, false);
+          Assertions.assertEquals(expected.subMap(key, key + 10).size(), count);
+          expected.subMap(key, key + 10).clear();
+          break;
+        default:
+          Assertions.assertEquals(expected.put(key, value), treap.put(key, value));
+      }
+
+      int to = key + random.nextInt(BOUND / 5);
+      Assertions.assertEquals(sum(expected.subMap(key, to)), (long) treap.aggregate(SUM, key, to));
+      Assertions.assertEquals(
+          sum(expected.subMap(key, false, to, true)), (long) treap.aggregate(SUM, key, false, to, true));
+    }
+
+    List<Map.Entry<Integer, Long>> entries = new ArrayList<>(expected.entrySet());
+    for (int from = 0; from < entries.size(); from += 7) {
+      int to = from + random.nextInt(entries.size() - from + 1);
+      long sum = entries.subList(from, to).stream().mapToLong(Map.Entry::getValue).sum();
+      Assertions.assertEquals(sum, (long) treap.aggregateByIndex(SUM, from, to));
+    }
+    Assertions.assertEquals(sum(expected), (long) treap.aggregateByIndex(SUM, 0, treap.size()));
+    Assertions.assertEquals(0L, (long) treap.aggregate(SUM, 7, 7));
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.aggregate(KEYS, 0, 10));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.aggregate(SUM, 10, 0));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.aggregateByIndex(SUM, 0, treap.size() + 1));
+    TreapMap<Integer, Long> plain = new TreapMap<>();
+    plain.put(-1, 1L);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.union(plain));
+  }
+
+  @Test
+  @DisplayName("Check ordered aggregates survive splits, merges and unions")
+  void split_merge_test() {
+    Random random = new Random(97);
+    TreapMap<Integer, Long> treap = new TreapMap<>(97, KEYS);
+    TreeMap<Integer, Long> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND; ++i) {
+      int key = random.nextInt(BOUND * 2);
+      treap.put(key, 0L);
+      expected.put(key, 0L);
+    }
+    Assertions.assertEquals(keys(expected), treap.aggregateByIndex(KEYS, 0, treap.size()));
+
+    TreapMap<Integer, Long> right = new TreapMap<>(KEYS);
+    treap.splitInPlace(BOUND, right, Inclusion.RIGHT);
+    Assertions.assertEquals(keys(expected.headMap(BOUND)), treap.aggregate(KEYS, 0, BOUND));
+    Assertions.assertEquals(keys(expected.tailMap(BOUND)), right.aggregate(KEYS, BOUND, BOUND * 2));
+    treap.mergeInPlace(right);
+    Assertions.assertEquals(keys(expected), treap.aggregate(KEYS, 0, BOUND * 2));
+
+    TreapMap<Integer, Long> other = new TreapMap<>(KEYS);
+    for (int key = -100; key < 0; ++key) {
+      other.put(key, 0L);
+      expected.put(key, 0L);
+    }
+    treap.union(other);
+    Assertions.assertEquals(keys(expected), treap.aggregate(KEYS, -100, BOUND * 2));
+    Assertions.assertEquals(keys(expected.subMap(-50, 300)), treap.aggregate(KEYS, -50, 300));
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.TreapCodec.Serializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing binary codec of treaps")
+class TreapCodecTest {
+
+  private static TreapMap<Integer, String> random(Random random, int size) {
+    TreapMap<Integer, String> map = new TreapMap<>(random.nextLong());
+    while (map.size() < size) {
+      int key = random.nextInt() >> random.nextInt(32);
+      map.put(key, "value " + key);
+    }
+    return map;
+  }
+
+  @Test
+  @DisplayName("Check map round trip through streams keeps entries and shape")
+  void map_stream_test() throws IOException {
+    TreapMap<Integer, String> map = random(new Random(43), 10000);
+    TreapCodec<Integer, String> codec = new TreapCodec<>(Serializer.INTEGER, Serializer.STRING, true);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    codec.writeMap(map, output);
+    TreapMap<Integer, String> read = codec.readMap(new ByteArrayInputStream(output.toByteArray()));
+    Assertions.assertEquals(new TreeMap<>(map), read);
+    Assertions.assertEquals(map.height(), read.height());
+    for (int index = 0; index < map.size(); index += 101) {
+      Assertions.assertEquals(map.getByIndex(index), read.getByIndex(index));
+    }
+
+    read.put(Integer.MIN_VALUE, "min");
+    Assertions.assertEquals("min", read.firstEntry().getValue());
+  }
+
+  @Test
+  @DisplayName("Check map and set round trips through byte buffers")
+  void buffer_test() throws IOException {
+    TreapMap<Integer, String> map = random(new Random(47), 1000);
+    TreapCodec<Integer, String> codec = new TreapCodec<>(Serializer.INTEGER, Serializer.STRING);
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    codec.writeMap(map, buffer);
+    buffer.flip();
+    Assertions.assertEquals(new TreeMap<>(map), codec.readMap(buffer));
+    Assertions.assertFalse(buffer.hasRemaining());
+
+    TreapSet<Long> set = TreapSet.fromSorted(Arrays.asList(-5L, 0L, 3L, 1L << 40, Long.MAX_VALUE));
+    TreapCodec<Long, Void> setCodec = new TreapCodec<>(Serializer.LONG, true);
+    buffer.clear();
+    setCodec.writeSet(set, buffer);
+    Assertions.assertEquals(4 + 1 + 4 + 1 + 1 + 1 + 6 + 10 + 5 * 4, buffer.position());
+    buffer.flip();
+    Assertions.assertEquals(new ArrayList<>(set), new ArrayList<>(setCodec.readSet(buffer)));
+
+    Assertions.assertThrows(BufferOverflowException.class, () -> codec.writeMap(map, ByteBuffer.allocate(100)));
+    Assertions.assertThrows(IllegalStateException.class, () -> setCodec.readMap(ByteBuffer.allocate(100)));
+  }
+
+  @Test
+  @DisplayName("Check malformed payloads are rejected")
+  void malformed_test() throws IOException {
+    TreapCodec<Integer, String> codec = new TreapCodec<>(Serializer.INTEGER, Serializer.STRING);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    codec.writeMap(random(new Random(53), 100), output);
+    byte[] bytes = output.toByteArray();
+
+    Assertions.assertThrows(
+        IOException.class, () -> codec.readMap(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+    Assertions.assertThrows(IOException.class, () -> codec.readSet(new ByteArrayInputStream(bytes)));
+    bytes[0] = 0;
+    Assertions.assertThrows(IOException.class, () -> codec.readMap(new ByteArrayInputStream(bytes)));
+
+    ByteBuffer unordered = ByteBuffer.allocate(64);
+    TreapCodec<Integer, Void> setCodec = new TreapCodec<>(Serializer.INTEGER, false);
+    setCodec.writeSet(TreapSet.fromSorted(Arrays.asList(1, 2)), unordered);
+    unordered.put(unordered.position() - 1, (byte) 0);
+    unordered.flip();
+    Assertions.assertThrows(IOException.class, () -> setCodec.readSet(unordered));
+  }
+}
@@ -1,6 +1,8 @@
 package com.github.igabaydulin.collections;
 
 import com.github.igabaydulin.collections.arguments.provider.TreapImplementationProvider;
+import java.util.Random;
+import java.util.TreeSet;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -71,4 +73,27 @@ class TreapCommonTest {
     Assertions.assertFalse(treap.contains(5));
     Assertions.assertEquals(0, treap.size());
   }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Testing random insertions and deletions against TreeSet")
+  void random_insertion_and_deletion_test(Treap<Integer> treap) {
+    Random random = new Random(42);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 10000; ++i) {
+      int value = random.nextInt(1000);
+      if (random.nextBoolean()) {
+        Assertions.assertEquals(expected.add(value), treap.add(value));
+      } else {
+        Assertions.assertEquals(expected.remove(value), treap.remove(value));
+      }
+    }
+
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertArrayEquals(expected.toArray(), treap.toArray());
+    int index = 0;
+    for (int value : expected) {
+      Assertions.assertEquals(value, treap.get(index++));
+    }
+  }
 }
@@ -0,0 +1,140 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing bulk construction from sorted input")
+class TreapFromSortedTest {
+
+  private static List<Integer> range(int from, int to) {
+    return IntStream.range(from, to).boxed().collect(Collectors.toList());
+  }
+
+  private static void check(TreapSet<Integer> treap, int from, int to) {
+    Assertions.assertEquals(to - from, treap.size());
+    int index = 0;
+    for (int value : treap) {
+      Assertions.assertEquals(from + index, value);
+      Assertions.assertEquals(value, treap.get(index++));
+    }
+  }
+
+  @Test
+  @DisplayName("Check set built from sorted values keeps order, sizes and treap height")
+  void from_sorted_test() {
+    TreapSet<Integer> treap = TreapSet.fromSorted(range(0, 100000));
+
+    check(treap, 0, 100000);
+    Assertions.assertTrue(treap.height() < 100);
+    Assertions.assertTrue(treap.contains(4242));
+    Assertions.assertTrue(treap.remove(4242));
+    Assertions.assertTrue(treap.add(4242));
+    check(treap, 0, 100000);
+
+    check(TreapSet.fromSorted(new Integer[0]), 0, 0);
+    check(TreapSet.fromSorted(new Integer[] {0, 1, 2}), 0, 3);
+  }
+
+  @Test
+  @DisplayName("Check unsorted input is rejected")
+  void from_unsorted_test() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> TreapSet.fromSorted(Arrays.asList(1, 3, 2)));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> TreapSet.fromSorted(Arrays.asList(1, 1)));
+  }
+
+  @Test
+  @DisplayName("Check copy constructors copy maps and sets with natural ordering only")
+  void copy_constructor_test() {
+    TreeMap<Integer, String> treeMap = new TreeMap<>();
+    for (int i = 0; i < 1000; ++i) {
+      treeMap.put(i, String.valueOf(i));
+    }
+
+    TreapMap<Integer, String> treapMap = new TreapMap<>(treeMap);
+    Assertions.assertEquals(treeMap, treapMap);
+    Assertions.assertEquals("500", treapMap.getByIndex(500));
+
+    TreapMap<Integer, String> fromSorted = TreapMap.fromSorted(treeMap.entrySet());
+    Assertions.assertEquals(treeMap, fromSorted);
+
+    ArrayTreapMap<Integer, String> arrayTreapMap = new ArrayTreapMap<>(treeMap);
+    Assertions.assertEquals(treeMap, arrayTreapMap);
+    Assertions.assertEquals("500", arrayTreapMap.getByIndex(500));
+
+    check(new TreapSet<>(new TreeSet<>(range(0, 1000))), 0, 1000);
+    TreeSet<Integer> reversed = new TreeSet<>(Collections.reverseOrder());
+    reversed.addAll(range(0, 1000));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new TreapSet<>(reversed));
+    TreeMap<Integer, String> reversedMap = new TreeMap<>(Collections.reverseOrder());
+    reversedMap.putAll(treeMap);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new TreapMap<>(reversedMap));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ArrayTreapMap<>(reversedMap));
+  }
+
+  @Test
+  @DisplayName("Check addAll and putAll with sorted input")
+  void add_all_sorted_test() {
+    TreapSet<Integer> treap = TreapSet.fromSorted(range(100, 200));
+
+    Assertions.assertTrue(treap.addAll(new TreeSet<>(range(200, 300))));
+    Assertions.assertTrue(treap.addAll(new TreeSet<>(range(0, 100))));
+    Assertions.assertTrue(treap.addAll(TreapSet.fromSorted(range(250, 350))));
+    Assertions.assertFalse(treap.addAll(new TreeSet<>(range(0, 10))));
+    check(treap, 0, 350);
+
+    TreapMap<Integer, Integer> treapMap = new TreapMap<>();
+    TreeMap<Integer, Integer> treeMap = new TreeMap<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      treeMap.clear();
+      for (int j = 0; j < 10; ++j) {
+        int key = (i % 2 == 0 ? i : -i) * 10 + j;
+        treeMap.put(key, key);
+        expected.add(key);
+      }
+      treapMap.putAll(treeMap);
+    }
+
+    Collections.sort(expected);
+    Assertions.assertEquals(expected, new ArrayList<>(treapMap.keySet()));
+    for (Entry<Integer, Integer> entry : treapMap.entrySet()) {
+      Assertions.assertEquals(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Test
+  @DisplayName("Check views and iterators see sorted input added before all elements")
+  void add_all_sorted_views_test() {
+    TreapSet<Integer> treap = TreapSet.fromSorted(range(100, 200));
+    NavigableSet<Integer> descending = treap.descendingSet();
+    NavigableSet<Integer> head = treap.headSet(50, false);
+    Iterator<Integer> iterator = treap.iterator();
+    iterator.next();
+
+    Assertions.assertTrue(treap.addAll(new TreeSet<>(range(0, 100))));
+    check(treap, 0, 200);
+    Assertions.assertEquals(200, descending.size());
+    Assertions.assertEquals(0, descending.last());
+    Assertions.assertEquals(range(0, 50), new ArrayList<>(head));
+    Assertions.assertThrows(ConcurrentModificationException.class, iterator::next);
+
+    TreapMap<Integer, Integer> treapMap = new TreapMap<>();
+    treapMap.put(100, 100);
+    NavigableSet<Integer> keys = treapMap.navigableKeySet();
+    treapMap.putAll(new TreeMap<>(Collections.singletonMap(0, 0)));
+    Assertions.assertEquals(Arrays.asList(0, 100), new ArrayList<>(keys));
+  }
+}
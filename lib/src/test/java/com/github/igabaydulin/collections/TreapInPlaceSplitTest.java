@@ -0,0 +1,122 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.ValueTreap.Inclusion;
+import com.github.igabaydulin.collections.utils.Reference;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing in-place split and merge")
+class TreapInPlaceSplitTest {
+
+  private static TreapSet<Integer> range(int from, int to) {
+    TreapSet<Integer> treap = new TreapSet<>();
+    for (int i = from; i < to; ++i) {
+      treap.add(i);
+    }
+    return treap;
+  }
+
+  private static void check(TreapSet<Integer> treap, int from, int to) {
+    Assertions.assertEquals(to - from, treap.size());
+    int index = 0;
+    for (int value : treap) {
+      Assertions.assertEquals(from + index, value);
+      Assertions.assertEquals(value, treap.get(index++));
+    }
+  }
+
+  @Test
+  @DisplayName("Check in-place split keeps sizes and order of both halves")
+  void split_test() {
+    TreapSet<Integer> left = range(0, 100);
+    TreapSet<Integer> right = new TreapSet<>();
+
+    Assertions.assertTrue(left.splitInPlace(40, right, Inclusion.RIGHT));
+    check(left, 0, 40);
+    check(right, 40, 100);
+
+    Assertions.assertTrue(right.splitInPlace(60, left, Inclusion.LEFT));
+    check(right, 40, 61);
+    check(left, 61, 100);
+
+    Assertions.assertFalse(left.splitInPlace(1000, right, Inclusion.NONE));
+    check(left, 61, 100);
+    Assertions.assertTrue(right.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check in-place split drops the key for Inclusion.NONE")
+  void split_none_inclusion_test() {
+    TreapSet<Integer> left = range(0, 10);
+    TreapSet<Integer> right = new TreapSet<>();
+
+    Assertions.assertTrue(left.splitInPlace(5, right, Inclusion.NONE));
+    check(left, 0, 5);
+    check(right, 6, 10);
+  }
+
+  @Test
+  @DisplayName("Check in-place split into itself is rejected and repeated splits keep both halves")
+  void split_into_itself_test() {
+    TreapSet<Integer> left = range(0, 10);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> left.splitInPlace(5, left, Inclusion.RIGHT));
+    check(left, 0, 10);
+
+    TreapSet<Integer> right = new TreapSet<>();
+    TreapSet<Integer> other = new TreapSet<>();
+    Assertions.assertTrue(left.splitInPlace(5, right, Inclusion.RIGHT));
+    Assertions.assertTrue(right.splitInPlace(8, other, Inclusion.LEFT));
+    Assertions.assertFalse(left.splitInPlace(20, other, Inclusion.RIGHT));
+    check(left, 0, 5);
+    check(right, 5, 9);
+    Assertions.assertTrue(other.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check in-place split and merge keep heights of copying split and merge")
+  void height_test() {
+    TreapSet<Integer> treap = new TreapSet<>(7);
+    for (int i = 0; i < 1000; ++i) {
+      treap.add(i);
+    }
+
+    Reference<Treap<Integer>> leftCopy = new Reference<>();
+    Reference<Treap<Integer>> rightCopy = new Reference<>();
+    treap.split(500, leftCopy, rightCopy, Inclusion.RIGHT);
+
+    TreapSet<Integer> right = new TreapSet<>();
+    treap.splitInPlace(500, right, Inclusion.RIGHT);
+    Assertions.assertEquals(leftCopy.get().height(), treap.height());
+    Assertions.assertEquals(rightCopy.get().height(), right.height());
+
+    Treap<Integer> mergedCopy = leftCopy.get().merge(rightCopy.get());
+    treap.mergeInPlace(right);
+    Assertions.assertTrue(right.isEmpty());
+    Assertions.assertEquals(mergedCopy.height(), treap.height());
+    check(treap, 0, 1000);
+  }
+
+  @Test
+  @DisplayName("Check moving window with in-place split and merge")
+  void moving_window_test() {
+    Random random = new Random(3);
+    TreapSet<Integer> window = range(0, 100);
+    TreapSet<Integer> expired = new TreapSet<>();
+    for (int start = 0; start < 1000; start += 10) {
+      window.splitInPlace(start, expired, Inclusion.RIGHT);
+      TreapSet<Integer> head = expired;
+      expired = window;
+      window = head;
+
+      TreapSet<Integer> tail = range(start + 100, start + 110);
+      window.mergeInPlace(tail);
+      check(window, start, start + 110);
+
+      int value = start + random.nextInt(110);
+      window.remove(value);
+      window.add(value);
+    }
+  }
+}
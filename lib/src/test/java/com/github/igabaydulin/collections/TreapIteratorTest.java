@@ -1,6 +1,10 @@
 package com.github.igabaydulin.collections;
 
 import com.github.igabaydulin.collections.arguments.provider.TreapImplementationProvider;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -39,4 +43,98 @@ class TreapIteratorTest {
       Assertions.assertEquals(sortedArray[index++], value);
     }
   }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check descending iterator order")
+  void descending_iterator_test(Treap<Integer> treap) {
+    for (int value : new int[] {3, 1, 4, 1, 5, 9, 2, 6, 5}) {
+      treap.add(value);
+    }
+    int[] sortedArray = new int[] {9, 6, 5, 4, 3, 2, 1};
+    int index = 0;
+    Iterator<Integer> iterator = treap.descendingIterator();
+    while (iterator.hasNext()) {
+      Assertions.assertEquals(sortedArray[index++], iterator.next());
+    }
+    Assertions.assertEquals(sortedArray.length, index);
+    Assertions.assertThrows(NoSuchElementException.class, iterator::next);
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check removal of every other element through iterator")
+  void iterator_remove_test(Treap<Integer> treap) {
+    for (int i = 0; i < 100; ++i) {
+      treap.add(i);
+    }
+
+    int expected = 0;
+    Iterator<Integer> iterator = treap.iterator();
+    while (iterator.hasNext()) {
+      int value = iterator.next();
+      Assertions.assertEquals(expected++, value);
+      if (value % 2 == 0) {
+        iterator.remove();
+      }
+    }
+
+    Assertions.assertEquals(100, expected);
+    Assertions.assertEquals(50, treap.size());
+    for (int i = 0; i < 100; ++i) {
+      Assertions.assertEquals(i % 2 != 0, treap.contains(i));
+    }
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check removal through descending iterator")
+  void descending_iterator_remove_test(Treap<Integer> treap) {
+    for (int i = 0; i < 10; ++i) {
+      treap.add(i);
+    }
+
+    Iterator<Integer> iterator = treap.descendingIterator();
+    Assertions.assertEquals(9, iterator.next());
+    iterator.remove();
+    Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+    Assertions.assertEquals(8, iterator.next());
+    Assertions.assertEquals(7, iterator.next());
+    iterator.remove();
+    Assertions.assertEquals(6, iterator.next());
+    Assertions.assertArrayEquals(new Integer[] {0, 1, 2, 3, 4, 5, 6, 8}, treap.toArray(new Integer[] {}));
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check iterator fails fast on concurrent modification")
+  void iterator_concurrent_modification_test(Treap<Integer> treap) {
+    treap.add(1);
+    treap.add(2);
+
+    Iterator<Integer> iterator = treap.iterator();
+    iterator.next();
+    treap.add(3);
+    Assertions.assertThrows(ConcurrentModificationException.class, iterator::next);
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check clear is seen by earlier views and iterators")
+  void clear_views_test(Treap<Integer> treap) {
+    for (int i = 0; i < 20; ++i) {
+      treap.add(i);
+    }
+
+    NavigableSet<Integer> head = treap.headSet(15, true);
+    Iterator<Integer> iterator = treap.iterator();
+    iterator.next();
+    treap.clear();
+    Assertions.assertEquals(0, head.size());
+    Assertions.assertTrue(head.isEmpty());
+    Assertions.assertThrows(ConcurrentModificationException.class, iterator::next);
+
+    treap.add(3);
+    Assertions.assertArrayEquals(new Integer[] {3}, head.toArray(new Integer[] {}));
+  }
 }
@@ -0,0 +1,170 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing implicit treap list")
+class TreapListTest {
+
+  private static final int OPERATIONS = 20000;
+
+  @Test
+  @DisplayName("Check TreapList against ArrayList")
+  void list_test() {
+    Random random = new Random(73);
+    TreapList<Integer> treap = new TreapList<>(73);
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < OPERATIONS; ++i) {
+      int index = random.nextInt(expected.size() + 1);
+      switch (random.nextInt(5)) {
+        case 0:
+          if (index < expected.size()) {
+            Assertions.assertEquals(expected.remove(index), treap.remove(index));
+          }
+          break;
+        case 1:
+          if (index < expected.size()) {
+            Assertions.assertEquals(expected.set(index, -i), treap.set(index, -i));
+          }
+          break;
+        case 2:
+          Assertions.assertEquals(expected.add(i), treap.add(i));
+          break;
+        default:
+          expected.add(index, i);
+          treap.add(index, i);
+      }
+
+      if (index < expected.size()) {
+        Assertions.assertEquals(expected.get(index), treap.get(index));
+      }
+    }
+
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertEquals(expected, treap);
+    Assertions.assertEquals(expected.hashCode(), treap.hashCode());
+    Assertions.assertEquals(expected.subList(100, 200), treap.subList(100, 200));
+    Assertions.assertEquals(expected.indexOf(expected.get(500)), treap.indexOf(expected.get(500)));
+
+    treap.subList(1000, 3000).clear();
+    expected.subList(1000, 3000).clear();
+    Assertions.assertEquals(expected, treap);
+
+    Iterator<Integer> iterator = treap.iterator();
+    Iterator<Integer> expectedIterator = expected.iterator();
+    while (expectedIterator.hasNext()) {
+      Assertions.assertEquals(expectedIterator.next(), iterator.next());
+      if (random.nextInt(3) == 0) {
+        iterator.remove();
+        expectedIterator.remove();
+      }
+    }
+    Assertions.assertFalse(iterator.hasNext());
+    Assertions.assertEquals(expected, treap);
+  }
+
+  @Test
+  @DisplayName("Check cut, paste and concat move ranges between lists")
+  void cut_paste_test() {
+    TreapList<Integer> treap = new TreapList<>(79);
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      treap.add(i);
+      expected.add(i);
+    }
+
+    TreapList<Integer> cut = treap.cut(100, 300);
+    Assertions.assertEquals(expected.subList(100, 300), cut);
+    List<Integer> moved = new ArrayList<>(expected.subList(100, 300));
+    expected.subList(100, 300).clear();
+    Assertions.assertEquals(expected, treap);
+
+    treap.paste(500, cut);
+    expected.addAll(500, moved);
+    Assertions.assertEquals(expected, treap);
+    Assertions.assertTrue(cut.isEmpty());
+
+    TreapList<Integer> tail = new TreapList<>(Arrays.asList(-1, -2, -3));
+    treap.concat(tail);
+    expected.addAll(Arrays.asList(-1, -2, -3));
+    Assertions.assertEquals(expected, treap);
+    Assertions.assertTrue(tail.isEmpty());
+
+    Assertions.assertTrue(treap.addAll(0, Arrays.asList(7, null, 9)));
+    expected.addAll(0, Arrays.asList(7, null, 9));
+    Assertions.assertEquals(expected, treap);
+    Assertions.assertEquals("TreapList{array=" + expected + "}", treap.toString());
+
+    Assertions.assertTrue(treap.cut(5, 5).isEmpty());
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.cut(5, 4));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.add(treap.size() + 1, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.concat(treap));
+  }
+
+  @Test
+  @DisplayName("Check lazy range updates against element by element updates of ArrayList")
+  void range_update_test() {
+    Random random = new Random(83);
+    TreapList<Long> treap = TreapList.withAddition(Long::sum);
+    List<Long> expected = new ArrayList<>();
+    for (long i = 0; i < 2000; ++i) {
+      treap.add(i);
+      expected.add(i);
+    }
+
+    for (int i = 0; i < OPERATIONS / 10; ++i) {
+      int from = random.nextInt(expected.size() + 1);
+      int to = from + random.nextInt(expected.size() - from + 1);
+      List<Long> range = expected.subList(from, to);
+      switch (random.nextInt(5)) {
+        case 0:
+          treap.reverse(from, to);
+          Collections.reverse(range);
+          break;
+        case 1:
+          treap.assignRange(from, to, (long) i);
+          Collections.fill(range, (long) i);
+          break;
+        case 2:
+          long delta = i;
+          treap.addToRange(from, to, delta);
+          range.replaceAll(value -> value + delta);
+          break;
+        case 3:
+          int index = random.nextInt(expected.size());
+          expected.add(index, (long) -i);
+          treap.add(index, (long) -i);
+          Assertions.assertEquals(expected.remove(to / 2), treap.remove(to / 2));
+          break;
+        default:
+          treap.paste(from, treap.cut(from, to));
+      }
+
+      int index = random.nextInt(expected.size());
+      Assertions.assertEquals(expected.get(index), treap.get(index));
+    }
+    Assertions.assertEquals(expected, treap);
+
+    TreapList<Long> cut = treap.cut(100, 200);
+    cut.addToRange(0, 100, 1L);
+    treap.paste(0, cut);
+    expected.subList(100, 200).replaceAll(value -> value + 1);
+    Collections.rotate(expected.subList(0, 200), 100);
+    Assertions.assertEquals(expected, treap);
+
+    TreapList<Long> plain = new TreapList<>(Arrays.asList(1L, 2L, 3L));
+    plain.reverse(0, 3);
+    plain.assignRange(2, 3, 7L);
+    Assertions.assertEquals(Arrays.asList(3L, 2L, 7L), plain);
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> plain.addToRange(0, 1, 1L));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> plain.paste(0, cut));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.reverse(2, 1));
+  }
+}
@@ -0,0 +1,111 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing treap multiset")
+class TreapMultisetTest {
+
+  private static final int BOUND = 1000;
+
+  private static List<Integer> occurrences(TreeMap<Integer, Integer> counts) {
+    List<Integer> occurrences = new ArrayList<>();
+    counts.forEach((key, count) -> occurrences.addAll(Collections.nCopies(count, key)));
+    return occurrences;
+  }
+
+  @Test
+  @DisplayName("Check counts, weighted indices and ranks against TreeMap of counts")
+  void multiset_test() {
+    Random random = new Random(107);
+    TreapMultiset<Integer> multiset = new TreapMultiset<>(107);
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND * 10; ++i) {
+      int key = random.nextInt(BOUND);
+      int occurrences = random.nextInt(5);
+      int count = expected.getOrDefault(key, 0);
+      if (random.nextInt(3) == 0) {
+        Assertions.assertEquals(count, multiset.remove(key, occurrences));
+        if (count > occurrences) {
+          expected.put(key, count - occurrences);
+        } else {
+          expected.remove(key);
+        }
+      } else {
+        Assertions.assertEquals(count, multiset.add(key, occurrences));
+        if (count + occurrences > 0) {
+          expected.put(key, count + occurrences);
+        }
+      }
+      Assertions.assertEquals(expected.getOrDefault(key, 0), multiset.count(key));
+    }
+
+    List<Integer> occurrences = occurrences(expected);
+    Assertions.assertEquals(occurrences.size(), multiset.size());
+    Assertions.assertEquals(occurrences.size(), multiset.totalCount());
+    Assertions.assertEquals(expected.size(), multiset.distinctCount());
+    Assertions.assertEquals(occurrences, new ArrayList<>(multiset));
+    for (int index = 0; index < occurrences.size(); index += 13) {
+      Assertions.assertEquals(occurrences.get(index), multiset.get(index));
+    }
+    for (int key = -1; key <= BOUND; ++key) {
+      int rank = 0;
+      for (int count : expected.headMap(key).values()) {
+        rank += count;
+      }
+      Assertions.assertEquals(rank, multiset.rankOf(key));
+    }
+
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> multiset.get(multiset.totalCount()));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> multiset.add(1, -1));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> multiset.remove(1, -1));
+  }
+
+  @Test
+  @DisplayName("Check sliding window median and iterator removal")
+  void window_test() {
+    Random random = new Random(109);
+    TreapMultiset<Integer> window = new TreapMultiset<>(109);
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      int value = random.nextInt(100);
+      values.add(value);
+      window.add(value);
+      if (values.size() > 101) {
+        Assertions.assertTrue(window.remove(values.get(values.size() - 102)));
+      }
+
+      List<Integer> sorted = new ArrayList<>(values.subList(Math.max(0, values.size() - 101), values.size()));
+      Collections.sort(sorted);
+      Assertions.assertEquals(sorted.get(sorted.size() / 2), window.get(window.totalCount() / 2));
+    }
+
+    window.add(1000, Integer.MAX_VALUE - 1);
+    Assertions.assertEquals(Integer.MAX_VALUE, window.size());
+    Assertions.assertEquals(Integer.MAX_VALUE + 100L, window.totalCount());
+    Assertions.assertEquals(1000, (int) window.get(window.totalCount() - 1));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> window.add(1000, 2));
+    window.remove(1000, Integer.MAX_VALUE);
+
+    List<Integer> expected = new ArrayList<>(window);
+    Iterator<Integer> iterator = window.iterator();
+    Iterator<Integer> expectedIterator = expected.iterator();
+    while (expectedIterator.hasNext()) {
+      Assertions.assertEquals(expectedIterator.next(), iterator.next());
+      if (random.nextBoolean()) {
+        iterator.remove();
+        expectedIterator.remove();
+      }
+    }
+    Assertions.assertFalse(iterator.hasNext());
+    Assertions.assertEquals(expected, new ArrayList<>(window));
+    Assertions.assertEquals("TreapMultiset{array=" + expected + "}", window.toString());
+  }
+}
@@ -0,0 +1,90 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.arguments.provider.TreapImplementationProvider;
+import com.github.igabaydulin.collections.arguments.provider.ValueTreapImplementationProvider;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+@DisplayName("Testing order statistics")
+class TreapOrderStatisticsTest {
+
+  private static final int BOUND = 2000;
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check ranks, counts and indices of a set against TreeSet")
+  void set_test(Treap<Integer> treap) {
+    Random random = new Random(59);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < BOUND / 2; ++i) {
+      int value = random.nextInt(BOUND);
+      expected.add(value);
+      treap.add(value);
+    }
+
+    for (int value = -1; value <= BOUND; ++value) {
+      int rank = expected.headSet(value).size();
+      Assertions.assertEquals(rank, treap.rankOf(value));
+      Assertions.assertEquals(expected.headSet(value, true).size() - 1, treap.indexOfFloor(value));
+      Assertions.assertEquals(rank == expected.size() ? -1 : rank, treap.indexOfCeiling(value));
+
+      int to = value + random.nextInt(100);
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      Assertions.assertEquals(
+          expected.subSet(value, fromInclusive, to, toInclusive).size(),
+          treap.countInRange(value, fromInclusive, to, toInclusive));
+    }
+    Assertions.assertEquals(0, treap.countInRange(5, false, 5, true));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.countInRange(5, true, 4, true));
+
+    List<Integer> values = new ArrayList<>(expected);
+    List<Integer> subList = treap.subList(100, 300);
+    Assertions.assertEquals(values.subList(100, 300), subList);
+    Assertions.assertEquals(values.subList(100, 300), new ArrayList<>(subList));
+    Assertions.assertEquals(values.get(250), subList.get(150));
+    Assertions.assertTrue(treap.subList(7, 7).isEmpty());
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.subList(5, 4));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.subList(0, values.size() + 1));
+
+    treap.add(-1);
+    Assertions.assertThrows(ConcurrentModificationException.class, () -> subList.get(0));
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check ranks and sub lists of a map against TreeMap")
+  void map_test(ValueTreap<Integer, Integer> treap) {
+    Random random = new Random(61);
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND / 2; ++i) {
+      int key = random.nextInt(BOUND);
+      expected.put(key, i);
+      treap.put(key, i);
+    }
+
+    for (int key = -1; key <= BOUND; key += 3) {
+      Assertions.assertEquals(expected.headMap(key).size(), treap.rankOf(key));
+      Assertions.assertEquals(expected.headMap(key, true).size() - 1, treap.indexOfFloor(key));
+      Integer ceiling = expected.ceilingKey(key);
+      Assertions.assertEquals(ceiling == null ? -1 : expected.headMap(ceiling).size(), treap.indexOfCeiling(key));
+      Assertions.assertEquals(
+          expected.subMap(key, true, key + 50, false).size(), treap.countInRange(key, true, key + 50, false));
+    }
+
+    List<Entry<Integer, Integer>> entries = new ArrayList<>(expected.entrySet());
+    List<Entry<Integer, Integer>> subList = treap.subList(entries.size() - 200, entries.size());
+    Assertions.assertEquals(entries.subList(entries.size() - 200, entries.size()), subList);
+    Assertions.assertEquals(entries.get(entries.size() - 1), subList.get(199));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> subList.remove(0));
+  }
+}
@@ -0,0 +1,89 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing parallel bulk build and set operations")
+class TreapParallelTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    pool.shutdown();
+  }
+
+  private static TreeSet<Integer> random(Random random, int size, int bound) {
+    TreeSet<Integer> set = new TreeSet<>();
+    while (set.size() < size) {
+      set.add(random.nextInt(bound));
+    }
+    return set;
+  }
+
+  private static void check(TreeSet<Integer> expected, TreapSet<Integer> treap) {
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(treap));
+
+    int index = 0;
+    for (int value : expected) {
+      if (index % 1000 == 0) {
+        Assertions.assertEquals(value, treap.get(index));
+        Assertions.assertTrue(treap.remove(value));
+        Assertions.assertTrue(treap.add(value));
+      }
+      ++index;
+    }
+  }
+
+  @Test
+  @DisplayName("Check parallel build from sorted values")
+  void from_sorted_test() {
+    List<Integer> values = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+    TreapSet<Integer> treap = TreapSet.fromSorted(values, pool);
+
+    check(new TreeSet<>(values), treap);
+    Assertions.assertTrue(treap.height() < 100);
+
+    values.set(50000, 49998);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> TreapSet.fromSorted(values, pool));
+  }
+
+  @Test
+  @DisplayName("Check parallel set operations against TreeSet")
+  void set_operations_test() {
+    Random random = new Random(11);
+    TreeSet<Integer> left = random(random, 100000, 400000);
+    TreeSet<Integer> right = random(random, 60000, 400000);
+
+    TreapSet<Integer> union = new TreapSet<>(left);
+    TreeSet<Integer> expectedUnion = new TreeSet<>(left);
+    Assertions.assertEquals(expectedUnion.addAll(right), union.union(new TreapSet<>(right), pool));
+    check(expectedUnion, union);
+
+    TreapSet<Integer> intersection = new TreapSet<>(left);
+    TreeSet<Integer> expectedIntersection = new TreeSet<>(left);
+    Assertions.assertEquals(expectedIntersection.retainAll(right), intersection.intersect(new TreapSet<>(right), pool));
+    check(expectedIntersection, intersection);
+
+    TreapSet<Integer> difference = new TreapSet<>(left);
+    TreeSet<Integer> expectedDifference = new TreeSet<>(left);
+    Assertions.assertEquals(expectedDifference.removeAll(right), difference.difference(new TreapSet<>(right), pool));
+    check(expectedDifference, difference);
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing removal by indices and ranges")
+class TreapRemoveRangeTest {
+
+  private static final int BOUND = 5000;
+
+  @Test
+  @DisplayName("Check removeAt and removeRange of TreapMap against TreeMap")
+  void map_test() {
+    Random random = new Random(67);
+    TreapMap<Integer, Integer> treap = new TreapMap<>(67);
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < BOUND; ++i) {
+      int key = random.nextInt(BOUND * 4);
+      treap.put(key, i);
+      expected.put(key, i);
+    }
+
+    while (expected.size() > 10) {
+      List<Entry<Integer, Integer>> entries = new ArrayList<>(expected.entrySet());
+      int index = random.nextInt(entries.size());
+      switch (random.nextInt(3)) {
+        case 0:
+          Entry<Integer, Integer> removed = treap.removeAt(index);
+          Assertions.assertEquals(entries.get(index), removed);
+          expected.remove(removed.getKey());
+          break;
+        case 1:
+          int toIndex = index + random.nextInt(Math.min(200, entries.size() - index + 1));
+          treap.removeRange(index, toIndex);
+          entries.subList(index, toIndex).forEach(entry -> expected.remove(entry.getKey()));
+          break;
+        default:
+          int from = random.nextInt(BOUND * 4);
+          int to = from + random.nextInt(500);
+          boolean fromInclusive = random.nextBoolean();
+          boolean toInclusive = random.nextBoolean();
+          int count = expected.subMap(from, fromInclusive, to, toInclusive).size();
+          Assertions.assertEquals(count, treap.removeRange(from, fromInclusive, to, toInclusive));
+          expected.subMap(from, fromInclusive, to, toInclusive).clear();
+      }
+
+      Assertions.assertEquals(expected.size(), treap.size());
+      Assertions.assertEquals(expected, new TreeMap<>(treap));
+    }
+
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.removeAt(treap.size()));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> treap.removeRange(3, 2));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> treap.removeRange(3, true, 2, true));
+    treap.removeRange(0, treap.size());
+    Assertions.assertTrue(treap.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check TreapSet range removal and sub set clearing")
+  void set_test() {
+    TreapSet<Integer> treap = new TreapSet<>(71);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < BOUND; ++i) {
+      treap.add(i);
+      expected.add(i);
+    }
+
+    Assertions.assertEquals(100, (int) treap.removeAt(100));
+    expected.remove(100);
+    treap.removeRange(0, 50);
+    expected.headSet(50).clear();
+    Assertions.assertEquals(101, treap.removeRange(1000, true, 1100, true));
+    expected.subSet(1000, true, 1100, true).clear();
+    treap.subSet(2000, 3000).clear();
+    expected.subSet(2000, 3000).clear();
+
+    Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(treap));
+    Assertions.assertEquals(expected.size(), treap.size());
+  }
+}
@@ -0,0 +1,118 @@
+package com.github.igabaydulin.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing union, intersection and difference")
+class TreapSetAlgebraTest {
+
+  private static final Random RANDOM = new Random(7);
+
+  private static TreapSet<Integer> random(TreeSet<Integer> expected, int size, int bound) {
+    TreapSet<Integer> treap = new TreapSet<>();
+    for (int i = 0; i < size; ++i) {
+      int value = RANDOM.nextInt(bound);
+      treap.add(value);
+      expected.add(value);
+    }
+    return treap;
+  }
+
+  private static void check(TreeSet<Integer> expected, TreapSet<Integer> treap) {
+    Assertions.assertEquals(expected.size(), treap.size());
+    Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(treap));
+    for (int index = 0; index < treap.size(); index += 7) {
+      Assertions.assertEquals(treap.get(index), treap.toArray()[index]);
+    }
+
+    List<Integer> values = new ArrayList<>(expected);
+    for (int i = 0; i < values.size(); i += 3) {
+      Assertions.assertTrue(treap.remove(values.get(i)));
+      expected.remove(values.get(i));
+    }
+    Assertions.assertEquals(new ArrayList<>(expected), new ArrayList<>(treap));
+  }
+
+  @Test
+  @DisplayName("Check set operations against TreeSet")
+  void set_operations_test() {
+    int[][] sizes = {{0, 10}, {10, 0}, {1000, 1000}, {10, 1000}, {1000, 10}, {5000, 50}};
+    for (int[] size : sizes) {
+      TreeSet<Integer> expectedLeft = new TreeSet<>();
+      TreeSet<Integer> expectedRight = new TreeSet<>();
+      TreapSet<Integer> left = random(expectedLeft, size[0], 3000);
+      TreapSet<Integer> right = random(expectedRight, size[1], 3000);
+
+      TreapSet<Integer> union = new TreapSet<>(left);
+      TreeSet<Integer> expectedUnion = new TreeSet<>(expectedLeft);
+      Assertions.assertEquals(expectedUnion.addAll(expectedRight), union.union(right));
+
+      TreapSet<Integer> intersection = new TreapSet<>(left);
+      TreeSet<Integer> expectedIntersection = new TreeSet<>(expectedLeft);
+      Assertions.assertEquals(expectedIntersection.retainAll(expectedRight), intersection.intersect(right));
+
+      TreapSet<Integer> difference = new TreapSet<>(left);
+      TreeSet<Integer> expectedDifference = new TreeSet<>(expectedLeft);
+      Assertions.assertEquals(expectedDifference.removeAll(expectedRight), difference.difference(right));
+
+      Assertions.assertEquals(new ArrayList<>(expectedRight), new ArrayList<>(right));
+      check(expectedUnion, union);
+      check(expectedIntersection, intersection);
+      check(expectedDifference, difference);
+    }
+  }
+
+  @Test
+  @DisplayName("Check addAll, retainAll and removeAll")
+  void bulk_operations_test() {
+    TreapSet<Integer> treap = TreapSet.fromSorted(new Integer[] {1, 2, 3, 4, 5});
+
+    Assertions.assertTrue(treap.addAll(TreapSet.fromSorted(new Integer[] {4, 5, 6})));
+    Assertions.assertFalse(treap.addAll(TreapSet.fromSorted(new Integer[] {1, 6})));
+    Assertions.assertTrue(treap.retainAll(TreapSet.fromSorted(new Integer[] {0, 2, 3, 4, 5, 6})));
+    Assertions.assertFalse(treap.retainAll(Arrays.asList(2, 3, 4, 5, 6)));
+    Assertions.assertTrue(treap.retainAll(Arrays.asList(2, 3, 4, 5, 7)));
+    Assertions.assertTrue(treap.removeAll(TreapSet.fromSorted(new Integer[] {3, 5, 7})));
+    Assertions.assertFalse(treap.removeAll(TreapSet.fromSorted(new Integer[] {3, 5, 7})));
+    Assertions.assertArrayEquals(new Object[] {2, 4}, treap.toArray());
+
+    Assertions.assertTrue(treap.removeAll(treap));
+    Assertions.assertTrue(treap.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check map operations combine values")
+  void map_operations_test() {
+    TreapMap<Integer, Integer> left = new TreapMap<>();
+    TreapMap<Integer, Integer> right = new TreapMap<>();
+    for (int i = 0; i < 100; ++i) {
+      left.put(i, 1);
+      right.put(i + 50, 2);
+    }
+
+    TreapMap<Integer, Integer> union = new TreapMap<>(left);
+    Assertions.assertTrue(union.union(right, Integer::sum));
+    Assertions.assertEquals(150, union.size());
+    Assertions.assertEquals(1, union.get(0));
+    Assertions.assertEquals(3, union.get(50));
+    Assertions.assertEquals(2, union.get(149));
+
+    TreapMap<Integer, Integer> intersection = new TreapMap<>(left);
+    Assertions.assertTrue(intersection.intersect(right, (value, otherValue) -> value - otherValue));
+    Assertions.assertEquals(50, intersection.size());
+    Assertions.assertEquals(50, intersection.firstKey());
+    Assertions.assertEquals(-1, intersection.get(99));
+
+    Assertions.assertTrue(left.difference(right));
+    Assertions.assertEquals(50, left.size());
+    Assertions.assertEquals(49, left.lastKey());
+    Assertions.assertFalse(right.union(right));
+    Assertions.assertEquals(100, right.size());
+  }
+}
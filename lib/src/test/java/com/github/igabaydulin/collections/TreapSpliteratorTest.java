@@ -0,0 +1,72 @@
+package com.github.igabaydulin.collections;
+
+import com.github.igabaydulin.collections.arguments.provider.TreapImplementationProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+@DisplayName("Testing spliterator and stream usage")
+class TreapSpliteratorTest {
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check spliterator characteristics")
+  void characteristics_test(Treap<Integer> treap) {
+    treap.add(1);
+    Spliterator<Integer> spliterator = treap.spliterator();
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+    Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.DISTINCT));
+    Assertions.assertNull(spliterator.getComparator());
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check split halves are exactly sized and keep order")
+  void split_test(Treap<Integer> treap) {
+    for (int i = 0; i < 101; ++i) {
+      treap.add(i);
+    }
+
+    Spliterator<Integer> right = treap.spliterator();
+    Spliterator<Integer> left = right.trySplit();
+    Assertions.assertEquals(50, left.estimateSize());
+    Assertions.assertEquals(51, right.estimateSize());
+
+    List<Integer> values = new ArrayList<>();
+    left.forEachRemaining(values::add);
+    right.tryAdvance(values::add);
+    Spliterator<Integer> middle = right.trySplit();
+    Assertions.assertEquals(25, middle.estimateSize());
+    Assertions.assertEquals(25, right.estimateSize());
+    middle.forEachRemaining(values::add);
+    right.forEachRemaining(values::add);
+
+    Assertions.assertEquals(IntStream.range(0, 101).boxed().collect(Collectors.toList()), values);
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(TreapImplementationProvider.class)
+  @DisplayName("Check parallel stream reduction")
+  void parallel_stream_test(Treap<Integer> treap) {
+    for (int i = 0; i < 10000; ++i) {
+      treap.add(i);
+    }
+
+    Assertions.assertEquals(49995000L, treap.parallelStream().mapToLong(Integer::longValue).sum());
+    Assertions.assertEquals(
+        IntStream.range(0, 10000).boxed().collect(Collectors.toList()),
+        treap.parallelStream().collect(Collectors.toList()));
+    Assertions.assertEquals(
+        IntStream.range(0, 10000).map(i -> 9999 - i).boxed().collect(Collectors.toList()),
+        treap.descendingSet().parallelStream().collect(Collectors.toList()));
+  }
+}
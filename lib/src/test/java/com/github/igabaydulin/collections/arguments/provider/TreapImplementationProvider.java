@@ -1,5 +1,6 @@
 package com.github.igabaydulin.collections.arguments.provider;
 
+import com.github.igabaydulin.collections.ArrayTreapSet;
 import com.github.igabaydulin.collections.TreapSet;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -10,6 +11,6 @@ public class TreapImplementationProvider implements ArgumentsProvider {
 
   @Override
   public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
-    return Stream.of(Arguments.of(new TreapSet<Integer>()));
+    return Stream.of(Arguments.of(new TreapSet<Integer>()), Arguments.of(new ArrayTreapSet<Integer>()));
   }
 }
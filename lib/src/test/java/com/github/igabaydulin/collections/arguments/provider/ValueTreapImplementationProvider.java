@@ -1,5 +1,6 @@
 package com.github.igabaydulin.collections.arguments.provider;
 
+import com.github.igabaydulin.collections.ArrayTreapMap;
 import com.github.igabaydulin.collections.TreapMap;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -10,6 +11,7 @@ public class ValueTreapImplementationProvider implements ArgumentsProvider {
 
   @Override
   public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
-    return Stream.of(Arguments.of(new TreapMap<Integer, Integer>()));
+    return Stream.of(
+        Arguments.of(new TreapMap<Integer, Integer>()), Arguments.of(new ArrayTreapMap<Integer, Integer>()));
   }
 }
@@ -0,0 +1,139 @@
+package com.github.igabaydulin.collections.map;
+
+import com.github.igabaydulin.collections.ConcurrentTreapMap;
+import com.github.igabaydulin.collections.PersistentTreapMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Testing concurrent treap map")
+class ConcurrentTreapMapTest {
+
+  private static ConcurrentTreapMap<Integer, Integer> range(int from, int to) {
+    ConcurrentTreapMap<Integer, Integer> map = new ConcurrentTreapMap<>();
+    for (int i = from; i < to; ++i) {
+      map.put(i, i * 10);
+    }
+    return map;
+  }
+
+  @Test
+  @DisplayName("Check concurrent map operations")
+  void concurrent_map_operations_test() {
+    ConcurrentTreapMap<Integer, Integer> map = range(0, 10);
+
+    Assertions.assertEquals(10, map.size());
+    Assertions.assertEquals(30, map.putIfAbsent(3, 0));
+    Assertions.assertNull(map.putIfAbsent(10, 100));
+    Assertions.assertFalse(map.remove(10, 0));
+    Assertions.assertTrue(map.remove(10, 100));
+    Assertions.assertFalse(map.replace(1, 0, 1));
+    Assertions.assertTrue(map.replace(1, 10, 11));
+    Assertions.assertEquals(11, map.replace(1, 10));
+    Assertions.assertNull(map.replace(-1, 10));
+    Assertions.assertEquals(21, map.computeIfPresent(2, (key, value) -> value + 1));
+    Assertions.assertEquals(21, map.get(2));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(5, null));
+
+    Assertions.assertEquals(0, map.pollFirstEntry().getKey());
+    Assertions.assertEquals(9, map.pollLastEntry().getKey());
+    Assertions.assertArrayEquals(new Object[] {1, 2, 3, 4, 5, 6, 7, 8}, map.keySet().toArray());
+  }
+
+  @Test
+  @DisplayName("Check sub maps and descending maps are live views")
+  void views_test() {
+    ConcurrentTreapMap<Integer, Integer> map = range(0, 10);
+    ConcurrentNavigableMap<Integer, Integer> subMap = map.subMap(2, 8);
+    ConcurrentNavigableMap<Integer, Integer> descending = subMap.descendingMap();
+
+    Assertions.assertEquals(6, subMap.size());
+    Assertions.assertArrayEquals(new Object[] {7, 6, 5, 4, 3, 2}, descending.keySet().toArray());
+    Assertions.assertEquals(7, descending.firstKey());
+    Assertions.assertEquals(6, descending.higherKey(7));
+    Assertions.assertNull(subMap.get(9));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> subMap.put(9, 90));
+
+    map.remove(7);
+    Assertions.assertEquals(6, descending.firstKey());
+    Assertions.assertEquals(2, descending.pollLastEntry().getKey());
+
+    subMap.clear();
+    Assertions.assertArrayEquals(new Object[] {0, 1, 8, 9}, map.keySet().toArray());
+    Assertions.assertTrue(descending.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check iterators work with a snapshot")
+  void snapshot_iterator_test() {
+    ConcurrentTreapMap<Integer, Integer> map = range(0, 10);
+    Iterator<Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+    PersistentTreapMap<Integer, Integer> snapshot = map.snapshot();
+
+    map.clear();
+    int count = 0;
+    while (iterator.hasNext()) {
+      Assertions.assertEquals(count++, iterator.next().getKey());
+    }
+    Assertions.assertEquals(10, count);
+    Assertions.assertEquals(10, snapshot.size());
+    Assertions.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Check concurrent writers do not lose updates and readers see batches atomically")
+  void concurrent_writers_test() throws Exception {
+    ConcurrentTreapMap<Integer, Integer> map = new ConcurrentTreapMap<>();
+    AtomicBoolean running = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int thread = 0; thread < 4; ++thread) {
+        int offset = thread * 10000;
+        writers.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 5000; i += 2) {
+                    int key = offset + i;
+                    map.update(current -> current.put(key, key).put(key + 1, key));
+                  }
+                }));
+      }
+
+      Future<Boolean> reader =
+          executor.submit(
+              () -> {
+                boolean consistent = true;
+                while (running.get()) {
+                  consistent &= map.snapshot().size() % 2 == 0;
+                }
+                return consistent;
+              });
+
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+      running.set(false);
+
+      Assertions.assertTrue(reader.get());
+      Assertions.assertEquals(20000, map.size());
+      for (int thread = 0; thread < 4; ++thread) {
+        Assertions.assertEquals(thread * 10000 + 4998, map.get(thread * 10000 + 4999));
+      }
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+}
@@ -1,6 +1,6 @@
 package com.github.igabaydulin.collections.map;
 
-import com.github.igabaydulin.collections.TreapMap;
+import com.github.igabaydulin.collections.ValueTreap;
 import com.github.igabaydulin.collections.arguments.provider.ValueTreapImplementationProvider;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
@@ -16,7 +16,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first entry")
-  void test_first_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_first_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -31,7 +31,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last entry")
-  void test_last_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_last_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -46,7 +46,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first key")
-  void test_first_key(TreapMap<Integer, Integer> treapMap) {
+  void test_first_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -60,7 +60,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last key")
-  void test_last_key(TreapMap<Integer, Integer> treapMap) {
+  void test_last_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -74,7 +74,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check lower entry")
-  void test_lower_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_lower_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -89,7 +89,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check floor entry")
-  void test_floor_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_floor_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -104,7 +104,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check ceiling entry")
-  void test_ceiling_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_ceiling_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -119,7 +119,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check higher entry")
-  void test_higher_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_higher_entry(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -134,7 +134,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check lower key")
-  void test_lower_key(TreapMap<Integer, Integer> treapMap) {
+  void test_lower_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -148,7 +148,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check floor key")
-  void test_floor_key(TreapMap<Integer, Integer> treapMap) {
+  void test_floor_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -162,7 +162,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check ceiling key")
-  void test_ceiling_key(TreapMap<Integer, Integer> treapMap) {
+  void test_ceiling_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -176,7 +176,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check higher key")
-  void test_higher_key(TreapMap<Integer, Integer> treapMap) {
+  void test_higher_key(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -190,7 +190,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map")
-  void test_head_map(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -205,7 +205,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (false inclusive)")
-  void test_head_map_inclusive_false(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map_inclusive_false(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -220,7 +220,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (true inclusive)")
-  void test_head_map_inclusive_true(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map_inclusive_true(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -236,7 +236,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check tail map")
-  void test_tail_map(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -253,7 +253,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check tail map (false inclusive)")
-  void test_tail_map_inclusive_false(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map_inclusive_false(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -269,7 +269,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (true inclusive)")
-  void test_tail_map_inclusive_true(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map_inclusive_true(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -286,7 +286,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: false, inclusive: false)")
-  void test_sub_map1(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map1(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -302,7 +302,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: true, inclusive: false))")
-  void test_sub_map2(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map2(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -319,7 +319,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: false, inclusive: true))")
-  void test_sub_map3(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map3(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -336,7 +336,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: true, inclusive: true))")
-  void test_sub_map4(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map4(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -354,7 +354,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first entry and poll")
-  void test_first_entry_and_poll(TreapMap<Integer, Integer> treapMap) {
+  void test_first_entry_and_poll(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -391,7 +391,7 @@ class DescengingNavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last entry and poll")
-  void test_last_entry_and_poll(TreapMap<Integer, Integer> treapMap) {
+  void test_last_entry_and_poll(ValueTreap<Integer, Integer> treapMap) {
     NavigableMap<Integer, Integer> descendingMap = treapMap.descendingMap();
     descendingMap.put(3, 8);
     descendingMap.put(4, 1);
@@ -85,4 +85,17 @@ class EntrySetValueTreapTest {
       Assertions.assertEquals(values[index++], entry.getValue());
     }
   }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check entry set parallel stream")
+  void test_parallel_stream(ValueTreap<Integer, Integer> valueTreap) {
+    for (int i = 0; i < 1000; ++i) {
+      valueTreap.put(i, -i);
+    }
+
+    Assertions.assertEquals(
+        999000, valueTreap.entrySet().parallelStream().mapToInt(entry -> entry.getKey() - entry.getValue()).sum());
+    Assertions.assertEquals(-499500, valueTreap.values().parallelStream().mapToInt(Integer::intValue).sum());
+  }
 }
@@ -1,8 +1,9 @@
 package com.github.igabaydulin.collections.map;
 
-import com.github.igabaydulin.collections.TreapMap;
+import com.github.igabaydulin.collections.ValueTreap;
 import com.github.igabaydulin.collections.arguments.provider.ValueTreapImplementationProvider;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -14,7 +15,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first entry")
-  void test_first_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_first_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -28,7 +29,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last entry")
-  void test_last_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_last_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -42,7 +43,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first key")
-  void test_first_key(TreapMap<Integer, Integer> treapMap) {
+  void test_first_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -55,7 +56,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last key")
-  void test_last_key(TreapMap<Integer, Integer> treapMap) {
+  void test_last_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -68,7 +69,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check lower entry")
-  void test_lower_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_lower_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -82,7 +83,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check floor entry")
-  void test_floor_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_floor_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -96,7 +97,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check ceiling entry")
-  void test_ceiling_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_ceiling_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -110,7 +111,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check higher entry")
-  void test_higher_entry(TreapMap<Integer, Integer> treapMap) {
+  void test_higher_entry(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -124,7 +125,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check lower key")
-  void test_lower_key(TreapMap<Integer, Integer> treapMap) {
+  void test_lower_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -137,7 +138,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check floor key")
-  void test_floor_key(TreapMap<Integer, Integer> treapMap) {
+  void test_floor_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -150,7 +151,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check ceiling key")
-  void test_ceiling_key(TreapMap<Integer, Integer> treapMap) {
+  void test_ceiling_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -163,7 +164,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check higher key")
-  void test_higher_key(TreapMap<Integer, Integer> treapMap) {
+  void test_higher_key(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -176,161 +177,161 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map")
-  void test_head_map(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> headMap = treapMap.headMap(6);
+    NavigableMap<Integer, Integer> headMap = treapMap.headMap(6, false);
     Assertions.assertEquals(2, headMap.size());
-    Assertions.assertTrue(headMap.contains(3));
-    Assertions.assertTrue(headMap.contains(4));
+    Assertions.assertTrue(headMap.containsKey(3));
+    Assertions.assertTrue(headMap.containsKey(4));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (false inclusive)")
-  void test_head_map_inclusive_false(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map_inclusive_false(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> headMap = treapMap.headMap(6, false);
+    NavigableMap<Integer, Integer> headMap = treapMap.headMap(6, false);
     Assertions.assertEquals(2, headMap.size());
-    Assertions.assertTrue(headMap.contains(3));
-    Assertions.assertTrue(headMap.contains(4));
+    Assertions.assertTrue(headMap.containsKey(3));
+    Assertions.assertTrue(headMap.containsKey(4));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (true inclusive)")
-  void test_head_map_inclusive_true(TreapMap<Integer, Integer> treapMap) {
+  void test_head_map_inclusive_true(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> headMap = treapMap.headMap(6, true);
+    NavigableMap<Integer, Integer> headMap = treapMap.headMap(6, true);
     Assertions.assertEquals(3, headMap.size());
-    Assertions.assertTrue(headMap.contains(3));
-    Assertions.assertTrue(headMap.contains(4));
-    Assertions.assertTrue(headMap.contains(6));
+    Assertions.assertTrue(headMap.containsKey(3));
+    Assertions.assertTrue(headMap.containsKey(4));
+    Assertions.assertTrue(headMap.containsKey(6));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check tail map")
-  void test_tail_map(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> tailMap = treapMap.tailMap(6);
+    NavigableMap<Integer, Integer> tailMap = treapMap.tailMap(6, true);
     Assertions.assertEquals(2, tailMap.size());
-    Assertions.assertTrue(tailMap.contains(6));
-    Assertions.assertTrue(tailMap.contains(9));
+    Assertions.assertTrue(tailMap.containsKey(6));
+    Assertions.assertTrue(tailMap.containsKey(9));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check tail map (false inclusive)")
-  void test_tail_map_inclusive_false(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map_inclusive_false(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> tailMap = treapMap.tailMap(6, false);
+    NavigableMap<Integer, Integer> tailMap = treapMap.tailMap(6, false);
     Assertions.assertEquals(1, tailMap.size());
-    Assertions.assertTrue(tailMap.contains(9));
+    Assertions.assertTrue(tailMap.containsKey(9));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check head map (true inclusive)")
-  void test_tail_map_inclusive_true(TreapMap<Integer, Integer> treapMap) {
+  void test_tail_map_inclusive_true(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> tailMap = treapMap.tailMap(6, true);
+    NavigableMap<Integer, Integer> tailMap = treapMap.tailMap(6, true);
     Assertions.assertEquals(2, tailMap.size());
-    Assertions.assertTrue(tailMap.contains(6));
-    Assertions.assertTrue(tailMap.contains(9));
+    Assertions.assertTrue(tailMap.containsKey(6));
+    Assertions.assertTrue(tailMap.containsKey(9));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: false, inclusive: false)")
-  void test_sub_map1(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map1(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> subMap = treapMap.subMap(3, false, 9, false);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(3, false, 9, false);
     Assertions.assertEquals(2, subMap.size());
-    Assertions.assertTrue(subMap.contains(4));
-    Assertions.assertTrue(subMap.contains(6));
+    Assertions.assertTrue(subMap.containsKey(4));
+    Assertions.assertTrue(subMap.containsKey(6));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: true, inclusive: false))")
-  void test_sub_map2(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map2(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> subMap = treapMap.subMap(3, true, 9, false);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(3, true, 9, false);
     Assertions.assertEquals(3, subMap.size());
-    Assertions.assertTrue(subMap.contains(3));
-    Assertions.assertTrue(subMap.contains(4));
-    Assertions.assertTrue(subMap.contains(6));
+    Assertions.assertTrue(subMap.containsKey(3));
+    Assertions.assertTrue(subMap.containsKey(4));
+    Assertions.assertTrue(subMap.containsKey(6));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: false, inclusive: true))")
-  void test_sub_map3(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map3(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> subMap = treapMap.subMap(3, false, 9, true);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(3, false, 9, true);
     Assertions.assertEquals(3, subMap.size());
-    Assertions.assertTrue(subMap.contains(4));
-    Assertions.assertTrue(subMap.contains(6));
-    Assertions.assertTrue(subMap.contains(9));
+    Assertions.assertTrue(subMap.containsKey(4));
+    Assertions.assertTrue(subMap.containsKey(6));
+    Assertions.assertTrue(subMap.containsKey(9));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check sub map (inclusive: true, inclusive: true))")
-  void test_sub_map4(TreapMap<Integer, Integer> treapMap) {
+  void test_sub_map4(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
     treapMap.put(6, 5);
 
-    TreapMap<Integer, Integer> subMap = treapMap.subMap(3, true, 9, true);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(3, true, 9, true);
     Assertions.assertEquals(4, subMap.size());
-    Assertions.assertTrue(subMap.contains(3));
-    Assertions.assertTrue(subMap.contains(4));
-    Assertions.assertTrue(subMap.contains(6));
-    Assertions.assertTrue(subMap.contains(9));
+    Assertions.assertTrue(subMap.containsKey(3));
+    Assertions.assertTrue(subMap.containsKey(4));
+    Assertions.assertTrue(subMap.containsKey(6));
+    Assertions.assertTrue(subMap.containsKey(9));
   }
 
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check first entry and poll")
-  void test_first_entry_and_poll(TreapMap<Integer, Integer> treapMap) {
+  void test_first_entry_and_poll(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
@@ -366,7 +367,7 @@ class NavigableMapTest {
   @ParameterizedTest
   @ArgumentsSource(ValueTreapImplementationProvider.class)
   @DisplayName("Check last entry and poll")
-  void test_last_entry_and_poll(TreapMap<Integer, Integer> treapMap) {
+  void test_last_entry_and_poll(ValueTreap<Integer, Integer> treapMap) {
     treapMap.put(3, 8);
     treapMap.put(4, 1);
     treapMap.put(9, 2);
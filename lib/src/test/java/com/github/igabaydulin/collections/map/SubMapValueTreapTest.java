@@ -0,0 +1,131 @@
+package com.github.igabaydulin.collections.map;
+
+import com.github.igabaydulin.collections.ValueTreap;
+import com.github.igabaydulin.collections.arguments.provider.ValueTreapImplementationProvider;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+@DisplayName("Test live sub map views")
+class SubMapValueTreapTest {
+
+  private static void fill(ValueTreap<Integer, Integer> treapMap) {
+    for (int i = 0; i < 10; ++i) {
+      treapMap.put(i, i * 10);
+    }
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check sub map reflects changes of the map")
+  void test_sub_map_is_live(ValueTreap<Integer, Integer> treapMap) {
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(3, true, 20, false);
+    Assertions.assertTrue(subMap.isEmpty());
+
+    fill(treapMap);
+    Assertions.assertEquals(7, subMap.size());
+    Assertions.assertEquals(3, subMap.firstKey());
+    Assertions.assertEquals(9, subMap.lastKey());
+
+    treapMap.put(15, 150);
+    treapMap.remove(3);
+    Assertions.assertEquals(7, subMap.size());
+    Assertions.assertEquals(4, subMap.firstKey());
+    Assertions.assertEquals(15, subMap.lastKey());
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check sub map writes through to the map")
+  void test_sub_map_writes_through(ValueTreap<Integer, Integer> treapMap) {
+    fill(treapMap);
+    NavigableMap<Integer, Integer> headMap = treapMap.headMap(5, false);
+
+    Assertions.assertEquals(30, headMap.remove(3));
+    Assertions.assertNull(headMap.remove(7));
+    Assertions.assertNull(headMap.put(-1, -10));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> headMap.put(5, 50));
+
+    Assertions.assertEquals(10, treapMap.size());
+    Assertions.assertFalse(treapMap.containsKey(3));
+    Assertions.assertEquals(-10, treapMap.get(-1));
+
+    headMap.clear();
+    Assertions.assertEquals(5, treapMap.size());
+    Assertions.assertEquals(5, treapMap.firstKey());
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check sub map does not change the source map")
+  void test_sub_map_does_not_change_map(ValueTreap<Integer, Integer> treapMap) {
+    fill(treapMap);
+    int height = treapMap.height();
+
+    treapMap.subMap(2, 8).size();
+    treapMap.tailMap(4, true).firstEntry();
+    Assertions.assertEquals(height, treapMap.height());
+    Assertions.assertArrayEquals(new Object[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, treapMap.keySet().toArray());
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check sub map navigation is clamped to the range")
+  void test_sub_map_navigation(ValueTreap<Integer, Integer> treapMap) {
+    fill(treapMap);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(2, false, 7, true);
+
+    Assertions.assertEquals(3, subMap.firstKey());
+    Assertions.assertEquals(7, subMap.lastKey());
+    Assertions.assertEquals(3, subMap.ceilingKey(0));
+    Assertions.assertNull(subMap.lowerKey(3));
+    Assertions.assertNull(subMap.higherKey(7));
+    Assertions.assertEquals(7, subMap.floorKey(100));
+    Assertions.assertNull(subMap.get(2));
+    Assertions.assertFalse(subMap.containsKey(8));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> subMap.subMap(0, 5));
+    Assertions.assertEquals(2, subMap.subMap(4, 6).size());
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check sub map iteration and removal through iterator")
+  void test_sub_map_iteration(ValueTreap<Integer, Integer> treapMap) {
+    fill(treapMap);
+    NavigableMap<Integer, Integer> subMap = treapMap.subMap(2, true, 8, false);
+
+    Assertions.assertEquals(
+        "[2, 3, 4, 5, 6, 7]", subMap.keySet().stream().map(String::valueOf).collect(Collectors.toList()).toString());
+    Assertions.assertArrayEquals(new Object[] {7, 6, 5, 4, 3, 2}, subMap.descendingKeySet().toArray());
+    Assertions.assertArrayEquals(new Object[] {20, 30, 40, 50, 60, 70}, subMap.values().toArray());
+
+    Iterator<Integer> iterator = subMap.keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    Assertions.assertArrayEquals(new Object[] {0, 1, 3, 5, 7, 8, 9}, treapMap.keySet().toArray());
+    Assertions.assertEquals(15, subMap.values().parallelStream().mapToInt(Integer::intValue).sum() / 10);
+  }
+
+  @ParameterizedTest
+  @ArgumentsSource(ValueTreapImplementationProvider.class)
+  @DisplayName("Check descending sub map")
+  void test_descending_sub_map(ValueTreap<Integer, Integer> treapMap) {
+    fill(treapMap);
+    NavigableMap<Integer, Integer> subMap = treapMap.descendingMap().subMap(8, true, 3, false);
+
+    Assertions.assertArrayEquals(new Object[] {8, 7, 6, 5, 4}, subMap.keySet().toArray());
+    Assertions.assertEquals(8, subMap.firstKey());
+    Assertions.assertEquals(7, subMap.higherKey(8));
+    Assertions.assertArrayEquals(new Object[] {8, 7}, subMap.headMap(6).keySet().toArray());
+    Assertions.assertArrayEquals(new Object[] {4, 5, 6, 7, 8}, subMap.descendingMap().keySet().toArray());
+    Assertions.assertEquals(8, subMap.pollFirstEntry().getKey());
+    Assertions.assertFalse(treapMap.containsKey(8));
+  }
+}